@@ -61,6 +61,7 @@ import java.util.Set;
 import org.apache.fop.fonts.Base14Font;
 import org.apache.fop.fonts.CodePointMapping;
 import org.apache.fop.fonts.FontType;
+import org.apache.fop.fonts.KerningTable;
 import org.apache.fop.fonts.Typeface;
 
 // CSOFF: ConstantNameCheck
@@ -85,6 +86,7 @@ public class <xsl:value-of select="class-name"/> extends Base14Font {
         CodePointMapping.getMapping("<xsl:value-of select="$encoding"/>");
 <xsl:if test="count(kerning) &gt; 0">
     private static final Map kerning;
+    private static final KerningTable kerningTable;
 </xsl:if>
 
     private boolean enableKerning;
@@ -108,6 +110,7 @@ public class <xsl:value-of select="class-name"/> extends Base14Font {
         Integer second;
         Map pairs;
 <xsl:apply-templates select="kerning"/>
+        kerningTable = KerningTable.fromMap(kerning);
 </xsl:if>
     }
 
@@ -202,6 +205,10 @@ public class <xsl:value-of select="class-name"/> extends Base14Font {
     public java.util.Map getKerningInfo() {
         return kerning;
     }
+
+    public KerningTable getKerningTable() {
+        return enableKerning ? kerningTable : KerningTable.EMPTY;
+    }
 </xsl:when>
 <xsl:otherwise>
     public boolean hasKerningInfo() {
@@ -211,6 +218,10 @@ public class <xsl:value-of select="class-name"/> extends Base14Font {
     public java.util.Map getKerningInfo() {
         return java.util.Collections.EMPTY_MAP;
     }
+
+    public KerningTable getKerningTable() {
+        return KerningTable.EMPTY;
+    }
 </xsl:otherwise>
 </xsl:choose>
     public char mapChar(char c) {
@@ -56,8 +56,11 @@ import org.apache.fop.events.LoggingEventListener;
 import org.apache.fop.fo.ElementMappingRegistry;
 import org.apache.fop.fo.FOEventHandler;
 import org.apache.fop.fonts.FontManager;
+import org.apache.fop.hyphenation.HyphenationCache;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
+import org.apache.fop.pdf.EncodedImageCache;
+import org.apache.fop.pdf.FontSubsetCache;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.RendererConfig;
@@ -105,6 +108,8 @@ public class FOUserAgent {
     private FOEventHandler foEventHandlerOverride;
     private boolean locatorEnabled = true; // true by default (for error messages).
     private boolean conserveMemoryPolicy;
+    private int pageSequenceLayoutThreads;
+    private int pageBreakingLookahead;
     private EventBroadcaster eventBroadcaster = new FOPEventBroadcaster();
     private StructureTreeEventHandler structureTreeEventHandler
             = DummyStructureTreeEventHandler.INSTANCE;
@@ -641,6 +646,62 @@ public class FOUserAgent {
         this.conserveMemoryPolicy = conserveMemoryPolicy;
     }
 
+    /**
+     * Returns the number of threads used to lay out page-sequences concurrently.
+     *
+     * @return the number of threads, 0 if page-sequences are laid out one after the other
+     */
+    public int getPageSequenceLayoutThreads() {
+        return this.pageSequenceLayoutThreads;
+    }
+
+    /**
+     * Sets the number of threads used to lay out page-sequences concurrently. Only the
+     * page-sequences that have a numeric initial-page-number and no fo:retrieve-marker or
+     * fo:retrieve-table-marker are laid out concurrently, since their layout does not depend
+     * on the preceding page-sequences. The pages are still added to the area tree in document
+     * order. Concurrent layout is not used when accessibility is enabled. Note that events
+     * may then be broadcast from the layout threads.
+     *
+     * @param threads the number of threads, 0 (the default) to lay out page-sequences one
+     * after the other
+     */
+    public void setPageSequenceLayoutThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("The number of threads must not be negative");
+        }
+        this.pageSequenceLayoutThreads = threads;
+    }
+
+    /**
+     * Returns the number of pages the page breaking may look ahead before committing to the
+     * pages before.
+     *
+     * @return the number of pages, 0 if the pages of a whole flow are chosen together
+     */
+    public int getPageBreakingLookahead() {
+        return this.pageBreakingLookahead;
+    }
+
+    /**
+     * Bounds the number of pages the page breaking looks ahead before committing to the
+     * pages before. By default, the page breaks between two forced breaks are chosen
+     * together, and no page is produced before all of them are known. With a bounded
+     * lookahead, pages are committed and produced as the breaking goes through the content,
+     * once the candidate breaks are far enough ahead. This lowers the latency and the memory
+     * used by the page breaking for very long flows, at the cost of page breaks which may
+     * differ from the optimal ones.
+     *
+     * @param pages the number of pages, 0 (the default) to choose the page breaks of a whole
+     * flow together
+     */
+    public void setPageBreakingLookahead(int pages) {
+        if (pages < 0) {
+            throw new IllegalArgumentException("The lookahead must not be negative");
+        }
+        this.pageBreakingLookahead = pages;
+    }
+
     /**
      * Check whether complex script features are enabled.
      *
@@ -803,6 +864,16 @@ public class FOUserAgent {
         return factory.getColorSpaceCache();
     }
 
+    /** @return the cache of encoded PDF images */
+    public EncodedImageCache getEncodedImageCache() {
+        return factory.getEncodedImageCache();
+    }
+
+    /** @return the cache of encoded PDF font subsets, null if the font subsets are not cached */
+    public FontSubsetCache getFontSubsetCache() {
+        return factory.getFontSubsetCache();
+    }
+
     /** @see FopFactory#getHyphenationPatternNames() */
     public Map<String, String> getHyphenationPatternNames() {
         return factory.getHyphenationPatternNames();
@@ -819,6 +890,11 @@ public class FOUserAgent {
         return factory.getHyphenationTreeCache();
     }
 
+    /** @return the cache of hyphenated words */
+    public HyphenationCache getHyphenationCache() {
+        return factory.getHyphenationCache();
+    }
+
     public void setKeepEmptyTags(boolean b) {
         getRendererOptions().put(Accessibility.KEEP_EMPTY_TAGS, b);
     }
@@ -57,6 +57,7 @@ public class FopConfParser {
 
     private static final String PREFER_RENDERER = "prefer-renderer";
     private static final String TABLE_BORDER_OVERPAINT = "table-border-overpaint";
+    private static final String FONT_SUBSET_CACHE_SIZE = "font-subset-cache-size";
 
     private final Log log = LogFactory.getLog(FopConfParser.class);
 
@@ -275,6 +276,17 @@ public class FopConfParser {
             }
         }
 
+        if (cfg.getChild(FONT_SUBSET_CACHE_SIZE, false) != null) {
+            try {
+                fopFactoryBuilder.setFontSubsetCacheSize(
+                        Long.parseLong(cfg.getChild(FONT_SUBSET_CACHE_SIZE).getValue().trim()));
+            } catch (ConfigurationException e) {
+                LogUtil.handleException(log, e, strict);
+            } catch (NumberFormatException e) {
+                LogUtil.handleException(log, e, strict);
+            }
+        }
+
         // configure font manager
         new FontManagerConfigurator(cfg, baseURI, fopFactoryBuilder.getBaseURI(), resourceResolver)
                 .configure(fopFactoryBuilder.getFontManager(), strict);
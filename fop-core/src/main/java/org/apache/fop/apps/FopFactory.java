@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -43,14 +44,21 @@ import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
 import org.apache.fop.fo.ElementMapping;
 import org.apache.fop.fo.ElementMappingRegistry;
+import org.apache.fop.fonts.FontInfo;
 import org.apache.fop.fonts.FontManager;
+import org.apache.fop.fonts.FontTriplet;
+import org.apache.fop.hyphenation.HyphenationCache;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
+import org.apache.fop.pdf.EncodedImageCache;
+import org.apache.fop.pdf.FontSubsetCache;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.RendererConfig;
 import org.apache.fop.render.RendererConfig.RendererConfigParser;
 import org.apache.fop.render.RendererFactory;
 import org.apache.fop.render.XMLHandlerRegistry;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFUtil;
 import org.apache.fop.util.ColorSpaceCache;
 import org.apache.fop.util.ContentHandlerFactoryRegistry;
 
@@ -83,6 +91,12 @@ public final class FopFactory implements ImageContext {
 
     private final ColorSpaceCache colorSpaceCache;
 
+    private final EncodedImageCache encodedImageCache = new EncodedImageCache();
+
+    private final FontSubsetCache fontSubsetCache;
+
+    private final HyphenationCache hyphenationCache = new HyphenationCache();
+
     private final FopFactoryConfig config;
 
     private final InternalResourceResolver resolver;
@@ -97,6 +111,8 @@ public final class FopFactory implements ImageContext {
                 config.getResourceResolver());
         this.elementMappingRegistry = new ElementMappingRegistry(this);
         this.colorSpaceCache = new ColorSpaceCache(resolver);
+        this.fontSubsetCache = config.getFontSubsetCacheSize() > 0
+                ? new FontSubsetCache(config.getFontSubsetCacheSize()) : null;
         this.rendererFactory = new RendererFactory(config.preferRenderer());
         this.xmlHandlers = new XMLHandlerRegistry();
         this.imageHandlers = new ImageHandlerRegistry();
@@ -433,6 +449,24 @@ public final class FopFactory implements ImageContext {
         return config.getFontManager();
     }
 
+    /**
+     * Loads the fonts configured for an output format that match the given font triplets, so
+     * that the documents rendered afterwards don't have to wait for them. The fonts are loaded
+     * concurrently. This is typically called once, at the start of an application.
+     * @param outputFormat the MIME type of the output format whose fonts are to be loaded
+     * @param triplets the font triplets of the fonts to load
+     * @return the number of fonts that were loaded
+     * @throws FOPException if the fonts of the output format could not be set up
+     */
+    public int preloadFonts(String outputFormat, Collection<FontTriplet> triplets)
+            throws FOPException {
+        IFDocumentHandler documentHandler = getRendererFactory().createDocumentHandler(
+                newFOUserAgent(), outputFormat);
+        FontInfo fontInfo = new FontInfo();
+        IFUtil.setupFonts(documentHandler, fontInfo);
+        return getFontManager().preloadFonts(fontInfo, triplets);
+    }
+
     /** @see FopFactoryConfig#getFallbackResolver() */
     FallbackResolver getFallbackResolver() {
         return config.getFallbackResolver();
@@ -448,6 +482,37 @@ public final class FopFactory implements ImageContext {
         return this.colorSpaceCache;
     }
 
+    /**
+     * Returns the cache of encoded PDF images shared by the documents of this instance.
+     * <p>
+     * Note: this method should not be considered as part of FOP's external API.
+     * @return the encoded image cache
+     */
+    public EncodedImageCache getEncodedImageCache() {
+        return this.encodedImageCache;
+    }
+
+    /**
+     * Returns the cache of encoded PDF font subsets shared by the documents of this instance.
+     * <p>
+     * Note: this method should not be considered as part of FOP's external API.
+     * @return the font subset cache, null if the font subsets are not cached
+     * @see FopFactoryBuilder#setFontSubsetCacheSize(long)
+     */
+    public FontSubsetCache getFontSubsetCache() {
+        return this.fontSubsetCache;
+    }
+
+    /**
+     * Returns the cache of hyphenated words shared by the documents of this instance.
+     * <p>
+     * Note: this method should not be considered as part of FOP's external API.
+     * @return the hyphenation cache
+     */
+    public HyphenationCache getHyphenationCache() {
+        return this.hyphenationCache;
+    }
+
     public HyphenationTreeCache getHyphenationTreeCache() {
         if (hyphenationTreeCache == null) {
             hyphenationTreeCache = new HyphenationTreeCache();
@@ -332,6 +332,20 @@ public final class FopFactoryBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum size of the cache of encoded PDF font subsets, which lets the documents
+     * that use the same glyphs of a font embed the subset created for an earlier document.
+     * The font subsets are not cached by default.
+     *
+     * @param size the maximum number of bytes of encoded font data to hold, 0 to disable the
+     * cache
+     * @return <code>this</code>
+     */
+    public FopFactoryBuilder setFontSubsetCacheSize(long size) {
+        fopFactoryConfigBuilder.setFontSubsetCacheSize(size);
+        return this;
+    }
+
     public static class FopFactoryConfigImpl implements FopFactoryConfig {
 
         private final EnvironmentProfile enviro;
@@ -375,6 +389,8 @@ public final class FopFactoryBuilder {
 
         private boolean tableBorderOverpaint;
 
+        private long fontSubsetCacheSize;
+
         private static final class ImageContextImpl implements ImageContext {
 
             private final FopFactoryConfig config;
@@ -495,6 +511,10 @@ public final class FopFactoryBuilder {
             return tableBorderOverpaint;
         }
 
+        public long getFontSubsetCacheSize() {
+            return fontSubsetCacheSize;
+        }
+
         public Map<String, String> getHyphenationPatternNames() {
             return hyphPatNames;
         }
@@ -542,6 +562,8 @@ public final class FopFactoryBuilder {
         void setHyphPatNames(Map<String, String> hyphPatNames);
 
         void setTableBorderOverpaint(boolean b);
+
+        void setFontSubsetCacheSize(long size);
     }
 
     private static final class CompletedFopFactoryConfigBuilder implements FopFactoryConfigBuilder {
@@ -629,6 +651,10 @@ public final class FopFactoryBuilder {
         public void setTableBorderOverpaint(boolean b) {
             throwIllegalStateException();
         }
+
+        public void setFontSubsetCacheSize(long size) {
+            throwIllegalStateException();
+        }
     }
 
     private static final class ActiveFopFactoryConfigBuilder implements FopFactoryConfigBuilder {
@@ -717,6 +743,10 @@ public final class FopFactoryBuilder {
         public void setTableBorderOverpaint(boolean b) {
             config.tableBorderOverpaint = b;
         }
+
+        public void setFontSubsetCacheSize(long size) {
+            config.fontSubsetCacheSize = size;
+        }
     }
 
 }
@@ -165,6 +165,15 @@ public interface FopFactoryConfig {
 
     boolean isTableBorderOverpaint();
 
+    /**
+     * Returns the maximum size of the cache of encoded PDF font subsets shared by the
+     * documents of the factory.
+     *
+     * @return the maximum number of bytes of encoded font data to hold, 0 if the font
+     * subsets are not cached
+     */
+    long getFontSubsetCacheSize();
+
     /** @return the hyphenation pattern names */
     Map<String, String> getHyphenationPatternNames();
 
@@ -19,6 +19,7 @@
 
 package org.apache.fop.apps.io;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -92,6 +93,29 @@ public class InternalResourceResolver {
         return resourceResolver.getResource(resolveFromBase(uri));
     }
 
+    /**
+     * Returns the local file a URI resolves to, when the resource may be read from the file
+     * directly rather than through {@link #getResource(URI)}. That is only the case with the
+     * default resource resolver: a resolver supplied by the user sees every resource read.
+     *
+     * @param uri the resource URI
+     * @return the file, or null if the resource must be read through the resolver
+     */
+    public File getLocalFile(URI uri) {
+        if (!ResourceResolverFactory.isDefaultResourceResolver(resourceResolver)) {
+            return null;
+        }
+        URI resolved = resolveFromBase(uri);
+        if ("file".equals(resolved.getScheme())) {
+            try {
+                return new File(resolved);
+            } catch (IllegalArgumentException e) {
+                // not a plain file URI, read through the resolver
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the OutputStream for a given URI.
      *
@@ -54,6 +54,17 @@ public final class ResourceResolverFactory {
         return DefaultResourceResolver.INSTANCE;
     }
 
+    /**
+     * Indicates whether a resolver is the default one, which reads "file" URIs from the file
+     * system without any restriction.
+     *
+     * @param resolver the resolver
+     * @return true if the resolver is the default resource resolver
+     */
+    static boolean isDefaultResourceResolver(ResourceResolver resolver) {
+        return resolver == DefaultResourceResolver.INSTANCE;
+    }
+
     /**
      * A helper merthod that creates an internal resource resolver using the default resover:
      * {@link ResourceResolverFactory#createDefaultResourceResolver()}.
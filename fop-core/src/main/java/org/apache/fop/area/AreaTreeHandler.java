@@ -87,6 +87,9 @@ public class AreaTreeHandler extends FOEventHandler {
 
     private TopLevelLayoutManager prevPageSeqLM;
 
+    // The page-sequences laid out concurrently, null if they are laid out one after another
+    private ConcurrentPageSequenceLayout concurrentLayout;
+
     private int idGen;
 
     /**
@@ -113,11 +116,26 @@ public class AreaTreeHandler extends FOEventHandler {
 
         this.useComplexScriptFeatures = userAgent.isComplexScriptFeaturesEnabled();
 
+        if (userAgent.getPageSequenceLayoutThreads() > 0 && !userAgent.isAccessibilityEnabled()) {
+            concurrentLayout = new ConcurrentPageSequenceLayout(
+                    this, userAgent.getPageSequenceLayoutThreads());
+        }
+
         if (log.isDebugEnabled()) {
             statistics = new Statistics();
         }
     }
 
+    /**
+     * Constructor for the handlers of the page-sequences laid out concurrently, see
+     * {@link ConcurrentPageSequenceLayout}.
+     *
+     * @param userAgent FOUserAgent object for process
+     */
+    AreaTreeHandler(FOUserAgent userAgent) {
+        super(userAgent);
+    }
+
     /**
      * Sets up the AreaTreeModel instance for use by the AreaTreeHandler.
      *
@@ -226,7 +244,8 @@ public class AreaTreeHandler extends FOEventHandler {
         rootFObj = pageSequence.getRoot();
 
         //Before the first page-sequence...
-        if (this.prevPageSeqLM == null) {
+        if (this.prevPageSeqLM == null
+                && (concurrentLayout == null || !concurrentLayout.isStarted())) {
             // extension attachments from fo:root
             wrapAndAddExtensionAttachments(rootFObj.getExtensionAttachments());
             // extension attachments from fo:declarations
@@ -236,6 +255,13 @@ public class AreaTreeHandler extends FOEventHandler {
             }
         }
 
+        if (concurrentLayout != null && concurrentLayout.hasPendingPageSequences()) {
+            concurrentLayout.startNextPageSequence(pageSequence.getInitialPageNumber());
+            if (!ConcurrentPageSequenceLayout.hasExplicitInitialPageNumber(pageSequence)) {
+                // the page numbers depend on the last page of the previous page-sequence
+                concurrentLayout.commitAll();
+            }
+        }
         finishPrevPageSequence(pageSequence.getInitialPageNumber());
         pageSequence.initPageNumber();
     }
@@ -261,6 +287,13 @@ public class AreaTreeHandler extends FOEventHandler {
 
         // If no main flow, nothing to layout!
         if (pageSequence.getMainFlow() != null) {
+            if (concurrentLayout != null) {
+                if (ConcurrentPageSequenceLayout.accepts(pageSequence)) {
+                    concurrentLayout.submit(pageSequence);
+                    return;
+                }
+                concurrentLayout.commitAll();
+            }
             PageSequenceLayoutManager pageSLM;
             pageSLM = getLayoutManagerMaker().makePageSequenceLayoutManager(
                     this, pageSequence);
@@ -316,6 +349,16 @@ public class AreaTreeHandler extends FOEventHandler {
     @Override
     public void endDocument() throws SAXException {
 
+        if (concurrentLayout != null) {
+            try {
+                if (concurrentLayout.hasPendingPageSequences()) {
+                    concurrentLayout.startNextPageSequence(null);
+                    concurrentLayout.commitAll();
+                }
+            } finally {
+                concurrentLayout.shutdown();
+            }
+        }
         finishPrevPageSequence(null);
         // process fox:destination elements
         if (rootFObj != null) {
@@ -346,6 +389,14 @@ public class AreaTreeHandler extends FOEventHandler {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void abortDocument() {
+        if (concurrentLayout != null) {
+            concurrentLayout.shutdown();
+        }
+    }
+
     /**
      * Add a OffDocumentItem to the area tree model. This checks if the
      * OffDocumentItem is resolvable and attempts to resolve or add the
@@ -382,7 +433,7 @@ public class AreaTreeHandler extends FOEventHandler {
      *
      * @return the generated key.
      */
-    public String generatePageViewportKey() {
+    public synchronized String generatePageViewportKey() {
         this.idGen++;
         return "P" + this.idGen;
     }
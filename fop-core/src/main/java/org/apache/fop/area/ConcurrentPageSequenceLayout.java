@@ -0,0 +1,534 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fop.apps.FormattingResults;
+import org.apache.fop.datatypes.Numeric;
+import org.apache.fop.fo.pagination.AbstractPageSequence;
+import org.apache.fop.fo.pagination.Root;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.layoutmgr.LayoutManagerMaker;
+import org.apache.fop.layoutmgr.PageSequenceLayoutManager;
+
+/**
+ * Lays out page-sequences concurrently with the building of the FO tree and with each other.
+ * A page-sequence whose initial-page-number is an explicit number does not depend on the
+ * previous page-sequences: it is laid out on a thread of a pool as soon as it has been
+ * parsed. The other page-sequences are laid out by the {@link AreaTreeHandler} as usual, once
+ * all the previous ones have been committed.
+ * <p>
+ * A page-sequence laid out concurrently has its own area tree model and ID tracker, which
+ * record the pages and the ID notifications of its layout. They are committed to the area
+ * tree model and the ID tracker of the document in document order, on the thread building
+ * the FO tree. References to IDs of other page-sequences are therefore left unresolved during
+ * layout, like forward references, and are resolved when the page-sequence is committed.
+ * Since the force-page-count of a page-sequence depends on the initial-page-number of the
+ * next one, a page-sequence is committed only once the next one has started.
+ * <p>
+ * Page-sequences retrieving markers are not laid out concurrently, since the retrieved markers
+ * are cloned with the context used to build the FO tree. Neither are page-sequences with a
+ * page-master for the last or only page, whose layout depends on the page-sequence laid out
+ * before (see {@link Root#getLastSeq()}).
+ */
+final class ConcurrentPageSequenceLayout {
+
+    /** The number of seconds after which an idle thread of the pool ends */
+    private static final long IDLE_THREAD_TIMEOUT = 10;
+
+    private final AreaTreeHandler documentHandler;
+
+    private final int threadCount;
+
+    private ExecutorService executor;
+
+    /** The page-sequences submitted and not yet committed, in document order */
+    private final LinkedList<LayoutTask> tasks = new LinkedList<LayoutTask>();
+
+    private boolean started;
+
+    /**
+     * Creates a new instance.
+     * @param documentHandler the area tree handler of the document
+     * @param threadCount the number of threads laying out page-sequences
+     */
+    ConcurrentPageSequenceLayout(AreaTreeHandler documentHandler, int threadCount) {
+        this.documentHandler = documentHandler;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Indicates whether the initial-page-number of the given page-sequence is an explicit
+     * number, so that its page numbers don't depend on the previous page-sequences.
+     * @param pageSequence the page-sequence
+     * @return true if the page numbers of the page-sequence are known
+     */
+    static boolean hasExplicitInitialPageNumber(AbstractPageSequence pageSequence) {
+        return pageSequence instanceof org.apache.fop.fo.pagination.PageSequence
+                && pageSequence.getInitialPageNumber().getEnum() == 0;
+    }
+
+    /**
+     * Indicates whether the given page-sequence may be laid out concurrently.
+     * @param pageSequence the page-sequence, completely parsed
+     * @return true if the page-sequence may be submitted
+     */
+    static boolean accepts(org.apache.fop.fo.pagination.PageSequence pageSequence) {
+        return hasExplicitInitialPageNumber(pageSequence)
+                && !pageSequence.hasMarkerRetrieval()
+                && !pageSequence.hasPagePositionLast()
+                && !pageSequence.hasPagePositionOnly();
+    }
+
+    /**
+     * Indicates whether a page-sequence has been submitted.
+     * @return true if at least a page-sequence has been laid out concurrently
+     */
+    boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Indicates whether page-sequences remain to be committed.
+     * @return true if page-sequences have been submitted and not committed
+     */
+    boolean hasPendingPageSequences() {
+        return !tasks.isEmpty();
+    }
+
+    /**
+     * Lays out the given page-sequence on a thread of the pool. Page-sequences which have
+     * been laid out in the meantime are committed.
+     * @param pageSequence the page-sequence, {@link #accepts(
+     * org.apache.fop.fo.pagination.PageSequence) accepted} by this instance
+     */
+    void submit(org.apache.fop.fo.pagination.PageSequence pageSequence) {
+        pageSequence.isolatePageSequenceMaster();
+        LayoutTask task = new LayoutTask(pageSequence);
+        task.future = getExecutor().submit(task);
+        tasks.add(task);
+        started = true;
+        commitFinished();
+        // bound the number of laid out page-sequences held in memory
+        while (tasks.size() > 2 * threadCount && tasks.getFirst().nextPageSequenceStarted) {
+            commit(tasks.removeFirst());
+        }
+    }
+
+    /**
+     * Signals that the page-sequence following the last submitted one has started.
+     * @param initialPageNumber the initial-page-number of the next page-sequence, null at
+     * the end of the document
+     */
+    void startNextPageSequence(Numeric initialPageNumber) {
+        LayoutTask task = tasks.getLast();
+        task.nextInitialPageNumber = initialPageNumber;
+        task.nextPageSequenceStarted = true;
+        commitFinished();
+    }
+
+    /**
+     * Commits the page-sequences whose layout is finished, up to the first one still laid out.
+     */
+    void commitFinished() {
+        while (!tasks.isEmpty() && tasks.getFirst().nextPageSequenceStarted
+                && tasks.getFirst().future.isDone()) {
+            commit(tasks.removeFirst());
+        }
+    }
+
+    /**
+     * Waits for the layout of all the submitted page-sequences and commits them. The page-sequence
+     * following the last one must have started.
+     */
+    void commitAll() {
+        while (!tasks.isEmpty()) {
+            commit(tasks.removeFirst());
+        }
+    }
+
+    /**
+     * Stops the threads of the pool, and the layouts still running. This is done at the end
+     * of the document, and when the document run stops on an error.
+     */
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount, threadCount,
+                    IDLE_THREAD_TIMEOUT, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "FOP page-sequence layout");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            // the threads end even if the document run is dropped without notice
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    private void commit(LayoutTask task) {
+        assert task.nextPageSequenceStarted;
+        try {
+            task.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the layout of a page-sequence", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        task.commit(documentHandler.getAreaTreeModel(), documentHandler.getIDTracker());
+        if (task.lastSeqCleared) {
+            task.pageSequence.getRoot().setLastSeq(null);
+        }
+        task.layoutManager.doForcePageCount(task.nextInitialPageNumber);
+        task.layoutManager.finishPageSequence();
+    }
+
+    /** A notification recorded during the layout of a page-sequence. */
+    private interface Operation {
+
+        void replay(AreaTreeModel model, IDTracker idTracker);
+    }
+
+    /** The layout of a page-sequence. */
+    private final class LayoutTask implements Callable<Void> {
+
+        private final List<Operation> operations = new ArrayList<Operation>();
+
+        private final RecordingAreaTreeModel model = new RecordingAreaTreeModel();
+
+        private final RecordingIDTracker idTracker;
+
+        private final org.apache.fop.fo.pagination.PageSequence pageSequence;
+
+        private final PageSequenceLayoutManager layoutManager;
+
+        /** Whether the layout cleared the last page-sequence of the root, done again on commit */
+        private boolean lastSeqCleared;
+
+        private Future<Void> future;
+
+        private boolean nextPageSequenceStarted;
+
+        private Numeric nextInitialPageNumber;
+
+        /** The model and ID tracker of the document, once the task is committed */
+        private AreaTreeModel targetModel;
+
+        private IDTracker targetIDTracker;
+
+        LayoutTask(org.apache.fop.fo.pagination.PageSequence pageSequence) {
+            this.pageSequence = pageSequence;
+            idTracker = new RecordingIDTracker(pageSequence.getRoot().getId());
+            LayoutTaskHandler handler = new LayoutTaskHandler(this);
+            layoutManager = documentHandler.getLayoutManagerMaker()
+                    .makePageSequenceLayoutManager(handler, pageSequence);
+        }
+
+        /** {@inheritDoc} */
+        public Void call() {
+            Root root = pageSequence.getRoot();
+            // Without a page-master for the last page, the layout neither records its page-sequence
+            // as the last one nor reads it, but clears it from its second page on. It starts from
+            // its own page-sequence, rather than one left on this thread by a previous task, to
+            // tell whether it did.
+            root.setLastSeq(pageSequence);
+            try {
+                layoutManager.activateLayout();
+                lastSeqCleared = root.getLastSeq() == null;
+            } finally {
+                root.removeLastSeq();
+            }
+            return null;
+        }
+
+        /**
+         * Replays the recorded notifications on the model and ID tracker of the document, to
+         * which the later notifications are forwarded.
+         */
+        void commit(AreaTreeModel model, IDTracker idTracker) {
+            for (Operation operation : operations) {
+                operation.replay(model, idTracker);
+            }
+            operations.clear();
+            targetModel = model;
+            targetIDTracker = idTracker;
+        }
+
+        /** Records the pages of the page-sequence. */
+        private final class RecordingAreaTreeModel extends AreaTreeModel {
+
+            private PageSequence currentSequence;
+
+            private final List<PageViewport> pages = new ArrayList<PageViewport>();
+
+            @Override
+            public void startPageSequence(final PageSequence pageSequence) {
+                if (targetModel != null) {
+                    targetModel.startPageSequence(pageSequence);
+                    return;
+                }
+                currentSequence = pageSequence;
+                pages.clear();
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        model.startPageSequence(pageSequence);
+                    }
+                });
+            }
+
+            @Override
+            public void addPage(final PageViewport page) {
+                if (targetModel != null) {
+                    targetModel.addPage(page);
+                    return;
+                }
+                pages.add(page);
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        model.addPage(page);
+                    }
+                });
+            }
+
+            @Override
+            public PageSequence getCurrentPageSequence() {
+                return targetModel != null ? targetModel.getCurrentPageSequence() : currentSequence;
+            }
+
+            @Override
+            public int getPageSequenceCount() {
+                if (targetModel != null) {
+                    return targetModel.getPageSequenceCount();
+                }
+                return currentSequence != null ? 1 : 0;
+            }
+
+            @Override
+            public int getPageCount(int seq) {
+                return targetModel != null ? targetModel.getPageCount(seq) : pages.size();
+            }
+
+            @Override
+            public PageViewport getPage(int seq, int count) {
+                return targetModel != null ? targetModel.getPage(seq, count) : pages.get(count);
+            }
+        }
+
+        /**
+         * Records the ID notifications of the page-sequence, and resolves the references
+         * within the page-sequence. The ID of the fo:root is left to the ID tracker of the
+         * document, since it spans all the page-sequences.
+         */
+        private final class RecordingIDTracker extends IDTracker {
+
+            private final String rootID;
+
+            RecordingIDTracker(String rootID) {
+                this.rootID = rootID;
+            }
+
+            @Override
+            public void associateIDWithPageViewport(final String id, final PageViewport pv) {
+                if (targetIDTracker != null) {
+                    targetIDTracker.associateIDWithPageViewport(id, pv);
+                    return;
+                }
+                if (!id.equals(rootID)) {
+                    super.associateIDWithPageViewport(id, pv);
+                }
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        idTracker.associateIDWithPageViewport(id, pv);
+                    }
+                });
+            }
+
+            @Override
+            public void signalPendingID(final String id) {
+                if (targetIDTracker != null) {
+                    targetIDTracker.signalPendingID(id);
+                    return;
+                }
+                super.signalPendingID(id);
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        idTracker.signalPendingID(id);
+                    }
+                });
+            }
+
+            @Override
+            public void signalIDProcessed(final String id) {
+                if (targetIDTracker != null) {
+                    targetIDTracker.signalIDProcessed(id);
+                    return;
+                }
+                super.signalIDProcessed(id);
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        idTracker.signalIDProcessed(id);
+                    }
+                });
+            }
+
+            @Override
+            public boolean alreadyResolvedID(String id) {
+                if (targetIDTracker != null) {
+                    return targetIDTracker.alreadyResolvedID(id);
+                }
+                return super.alreadyResolvedID(id);
+            }
+
+            @Override
+            public void tryIDResolution(final PageViewport pv) {
+                if (targetIDTracker != null) {
+                    targetIDTracker.tryIDResolution(pv);
+                    return;
+                }
+                super.tryIDResolution(pv);
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        idTracker.tryIDResolution(pv);
+                    }
+                });
+            }
+
+            @Override
+            public List<PageViewport> getPageViewportsContainingID(String id) {
+                if (targetIDTracker != null) {
+                    return targetIDTracker.getPageViewportsContainingID(id);
+                }
+                return super.getPageViewportsContainingID(id);
+            }
+
+            @Override
+            public void addUnresolvedIDRef(final String idref, final Resolvable res) {
+                if (targetIDTracker != null) {
+                    targetIDTracker.addUnresolvedIDRef(idref, res);
+                    return;
+                }
+                super.addUnresolvedIDRef(idref, res);
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        idTracker.addUnresolvedIDRef(idref, res);
+                    }
+                });
+            }
+
+            @Override
+            public void replacePageViewPort(final PageViewport oldPageViewPort,
+                    final PageViewport newPageViewPort) {
+                if (targetIDTracker != null) {
+                    targetIDTracker.replacePageViewPort(oldPageViewPort, newPageViewPort);
+                    return;
+                }
+                super.replacePageViewPort(oldPageViewPort, newPageViewPort);
+                operations.add(new Operation() {
+                    public void replay(AreaTreeModel model, IDTracker idTracker) {
+                        idTracker.replacePageViewPort(oldPageViewPort, newPageViewPort);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * The area tree handler given to the layout managers of a page-sequence laid out
+     * concurrently. It hands out the recording model and ID tracker of the page-sequence, and
+     * delegates everything else to the handler of the document.
+     */
+    private final class LayoutTaskHandler extends AreaTreeHandler {
+
+        private final LayoutTask task;
+
+        LayoutTaskHandler(LayoutTask task) {
+            super(documentHandler.getUserAgent());
+            this.task = task;
+        }
+
+        @Override
+        public AreaTreeModel getAreaTreeModel() {
+            return task.model;
+        }
+
+        @Override
+        public IDTracker getIDTracker() {
+            return task.idTracker;
+        }
+
+        @Override
+        public LayoutManagerMaker getLayoutManagerMaker() {
+            return documentHandler.getLayoutManagerMaker();
+        }
+
+        @Override
+        public boolean isComplexScriptFeaturesEnabled() {
+            return documentHandler.isComplexScriptFeaturesEnabled();
+        }
+
+        @Override
+        public FontInfo getFontInfo() {
+            return documentHandler.getFontInfo();
+        }
+
+        @Override
+        public FormattingResults getResults() {
+            return documentHandler.getResults();
+        }
+
+        @Override
+        public String generatePageViewportKey() {
+            return documentHandler.generatePageViewportKey();
+        }
+
+        @Override
+        public void notifyPageSequenceFinished(AbstractPageSequence pageSequence, int pageCount) {
+            documentHandler.notifyPageSequenceFinished(pageSequence, pageCount);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.complexscripts.util.GlyphSequence;
+
+/**
+ * Cache of the results of the glyph substitution and positioning of the words set in a font,
+ * so that a word met again, like the words repeated throughout the statements of a same
+ * series, is not run through the lookups of the GSUB and GPOS tables again.
+ * <p>
+ * A cache belongs to a font, whose tables and features are therefore implied. Entries are
+ * keyed by the script, the language, the characters and the glyphs of the input sequence, and
+ * for positioning by the font size. The cache hands out copies of the sequences and
+ * adjustments it holds, which callers may modify.
+ * <p>
+ * This class is thread-safe. The entries are spread over segments locked independently,
+ * each of which evicts its least recently used entries once full.
+ */
+public class ShapingCache {
+
+    /** The default maximum number of results held by the cache */
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 8192;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    /** Cached for the sequences that the positioning leaves as they are */
+    private static final int[][] NO_ADJUSTMENTS = new int[0][];
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    /**
+     * Creates a new cache with the default maximum number of entries.
+     */
+    public ShapingCache() {
+        this(DEFAULT_MAXIMUM_ENTRIES);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maximumEntries the maximum number of results to hold
+     */
+    public ShapingCache(int maximumEntries) {
+        int segmentSize = Math.max(maximumEntries / SEGMENT_COUNT, 1);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Substitutes the glyphs of a sequence, using the result of a previous call with the same
+     * parameters if possible.
+     * @param gsub the glyph substitution table of the font
+     * @param gs the input glyph sequence
+     * @param script the script tag
+     * @param language the language tag
+     * @return the substituted glyph sequence
+     * @see GlyphSubstitutionTable#substitute(GlyphSequence, String, String)
+     */
+    public GlyphSequence substitute(GlyphSubstitutionTable gsub, GlyphSequence gs, String script,
+            String language) {
+        ShapingKey key = new ShapingKey(gs, script, language, -1);
+        Segment segment = getSegment(key);
+        GlyphSequence substituted = (GlyphSequence) segment.lookUp(key);
+        if (substituted == null) {
+            substituted = gsub.substitute(gs, script, language);
+            segment.store(key, copy(substituted));
+            return substituted;
+        }
+        return copy(substituted);
+    }
+
+    /**
+     * Computes the position adjustments of the glyphs of a sequence, using the result of a
+     * previous call with the same parameters if possible.
+     * @param gpos the glyph positioning table of the font
+     * @param gs the input glyph sequence
+     * @param script the script tag
+     * @param language the language tag
+     * @param fontSize the font size
+     * @param widths the array of design advancements of the glyphs of the font
+     * @return the unscaled adjustments, as filled by
+     * {@link GlyphPositioningTable#position(GlyphSequence, String, String, int, int[], int[][])},
+     * or null if no glyph was adjusted
+     */
+    public int[][] position(GlyphPositioningTable gpos, GlyphSequence gs, String script,
+            String language, int fontSize, int[] widths) {
+        ShapingKey key = new ShapingKey(gs, script, language, fontSize);
+        Segment segment = getSegment(key);
+        int[][] adjustments = (int[][]) segment.lookUp(key);
+        if (adjustments == null) {
+            adjustments = new int[gs.getGlyphCount()][4];
+            if (!gpos.position(gs, script, language, fontSize, widths, adjustments)) {
+                adjustments = NO_ADJUSTMENTS;
+            }
+            segment.store(key, adjustments != NO_ADJUSTMENTS ? copy(adjustments) : adjustments);
+        } else if (adjustments != NO_ADJUSTMENTS) {
+            adjustments = copy(adjustments);
+        }
+        return adjustments != NO_ADJUSTMENTS ? adjustments : null;
+    }
+
+    private Segment getSegment(ShapingKey key) {
+        int hash = key.hashCode();
+        return segments[(hash >>> 16 ^ hash) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static GlyphSequence copy(GlyphSequence gs) {
+        // the clone has its own buffers and list but shares the associations themselves
+        GlyphSequence clone = (GlyphSequence) gs.clone();
+        List<CharAssociation> associations = new ArrayList<CharAssociation>(clone.getGlyphCount());
+        for (Object association : clone.getAssociations()) {
+            associations.add((CharAssociation) ((CharAssociation) association).clone());
+        }
+        return new GlyphSequence(clone.getCharacters(), clone.getGlyphs(), associations,
+                clone.getPredications());
+    }
+
+    private static int[][] copy(int[][] adjustments) {
+        int[][] copy = new int[adjustments.length][];
+        for (int i = 0; i < adjustments.length; i++) {
+            copy[i] = adjustments[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the number of lookups that found their result in the cache.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        long hitCount = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hitCount += segment.hitCount;
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find their result in the cache.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        long missCount = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                missCount += segment.missCount;
+            }
+        }
+        return missCount;
+    }
+
+    /**
+     * Returns the number of results held by the cache.
+     * @return the number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /** A part of the cache, in least recently used order. */
+    private static final class Segment extends LinkedHashMap<ShapingKey, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumEntries;
+
+        private long hitCount;
+
+        private long missCount;
+
+        Segment(int maximumEntries) {
+            super(16, 0.75f, true);
+            this.maximumEntries = maximumEntries;
+        }
+
+        synchronized Object lookUp(ShapingKey key) {
+            Object result = get(key);
+            if (result != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            return result;
+        }
+
+        synchronized void store(ShapingKey key, Object result) {
+            put(key, result);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ShapingKey, Object> eldest) {
+            return size() > maximumEntries;
+        }
+    }
+
+    /** The key of a result in the cache. */
+    private static final class ShapingKey {
+
+        private final String script;
+
+        private final String language;
+
+        /** The font size for a positioning, -1 for a substitution */
+        private final int fontSize;
+
+        private final int[] characters;
+
+        private final int[] glyphs;
+
+        private final int hash;
+
+        ShapingKey(GlyphSequence gs, String script, String language, int fontSize) {
+            this.script = script;
+            this.language = language;
+            this.fontSize = fontSize;
+            // read with absolute gets, the buffers of the sequence are left as they are
+            characters = new int[gs.getCharacterCount()];
+            for (int i = 0; i < characters.length; i++) {
+                characters[i] = gs.getCharacters().get(i);
+            }
+            glyphs = new int[gs.getGlyphCount()];
+            for (int i = 0; i < glyphs.length; i++) {
+                glyphs[i] = gs.getGlyph(i);
+            }
+            int h = String.valueOf(script).hashCode();
+            h = 31 * h + String.valueOf(language).hashCode();
+            h = 31 * h + fontSize;
+            h = 31 * h + Arrays.hashCode(characters);
+            this.hash = 31 * h + Arrays.hashCode(glyphs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ShapingKey)) {
+                return false;
+            }
+            ShapingKey other = (ShapingKey) obj;
+            return fontSize == other.fontSize && equals(script, other.script)
+                    && equals(language, other.language) && Arrays.equals(glyphs, other.glyphs)
+                    && Arrays.equals(characters, other.characters);
+        }
+
+        private static boolean equals(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+}
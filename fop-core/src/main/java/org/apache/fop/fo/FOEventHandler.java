@@ -125,6 +125,13 @@ public abstract class FOEventHandler {
     public void endDocument() throws SAXException {
     }
 
+    /**
+     * This method is called instead of {@link #endDocument()} when the document run stops on
+     * an error, to release the resources held for the document.
+     */
+    public void abortDocument() {
+    }
+
     /**
      * Called upon start of root element.
      * @param root element
@@ -133,7 +133,15 @@ public class FOTreeBuilder extends DefaultHandler {
     /** {@inheritDoc} */
     public void characters(char[] data, int start, int length)
                 throws SAXException {
-        delegate.characters(data, start, length);
+        try {
+            delegate.characters(data, start, length);
+        } catch (SAXException e) {
+            foEventHandler.abortDocument();
+            throw e;
+        } catch (RuntimeException e) {
+            foEventHandler.abortDocument();
+            throw e;
+        }
     }
 
     /** {@inheritDoc} */
@@ -157,11 +165,19 @@ public class FOTreeBuilder extends DefaultHandler {
 
     /** {@inheritDoc} */
     public void endDocument() throws SAXException {
-        this.delegate.endDocument();
-        if (this.rootFObj == null && empty) {
-            FOValidationEventProducer eventProducer
-                = FOValidationEventProducer.Provider.get(userAgent.getEventBroadcaster());
-            eventProducer.emptyDocument(this);
+        try {
+            this.delegate.endDocument();
+            if (this.rootFObj == null && empty) {
+                FOValidationEventProducer eventProducer
+                    = FOValidationEventProducer.Provider.get(userAgent.getEventBroadcaster());
+                eventProducer.emptyDocument(this);
+            }
+        } catch (SAXException e) {
+            foEventHandler.abortDocument();
+            throw e;
+        } catch (RuntimeException e) {
+            foEventHandler.abortDocument();
+            throw e;
         }
         rootFObj = null;
         if (LOG.isDebugEnabled()) {
@@ -179,6 +195,10 @@ public class FOTreeBuilder extends DefaultHandler {
             delegate.startElement(namespaceURI, localName, rawName, attlist);
         } catch (SAXException e) {
             errorinstart = true;
+            foEventHandler.abortDocument();
+            throw e;
+        } catch (RuntimeException e) {
+            foEventHandler.abortDocument();
             throw e;
         }
     }
@@ -187,15 +207,23 @@ public class FOTreeBuilder extends DefaultHandler {
     public void endElement(String uri, String localName, String rawName)
                 throws SAXException {
         if (!errorinstart) {
-            this.delegate.endElement(uri, localName, rawName);
-            this.depth--;
-            if (depth == 0) {
-                if (delegate != mainFOHandler) {
-                    //Return from sub-handler back to main handler
-                    delegate.endDocument();
-                    delegate = mainFOHandler;
-                    delegate.endElement(uri, localName, rawName);
+            try {
+                this.delegate.endElement(uri, localName, rawName);
+                this.depth--;
+                if (depth == 0) {
+                    if (delegate != mainFOHandler) {
+                        //Return from sub-handler back to main handler
+                        delegate.endDocument();
+                        delegate = mainFOHandler;
+                        delegate.endElement(uri, localName, rawName);
+                    }
                 }
+            } catch (SAXException e) {
+                foEventHandler.abortDocument();
+                throw e;
+            } catch (RuntimeException e) {
+                foEventHandler.abortDocument();
+                throw e;
             }
         }
     }
@@ -213,6 +241,7 @@ public class FOTreeBuilder extends DefaultHandler {
     /** {@inheritDoc} */
     public void fatalError(SAXParseException e) throws SAXException {
         LOG.error(e.toString());
+        foEventHandler.abortDocument();
         throw e;
     }
 
@@ -33,6 +33,7 @@ import org.apache.fop.fo.PropertyList;
 import org.apache.fop.fo.ValidationException;
 import org.apache.fop.fo.XMLObj;
 import org.apache.fop.fo.flow.table.Table;
+import org.apache.fop.fo.pagination.PageSequence;
 
 /**
  * Abstract base class for the <a href="http://www.w3.org/TR/xsl/#fo_retrieve-marker">
@@ -87,6 +88,12 @@ public abstract class AbstractRetrieveMarker extends FObjMixed {
             missingPropertyError("retrieve-class-name");
         }
         this.propertyList = pList.getParentPropertyList();
+        for (FONode ancestor = parent; ancestor != null; ancestor = ancestor.getParent()) {
+            if (ancestor instanceof PageSequence) {
+                ((PageSequence) ancestor).notifyMarkerRetrieval();
+                break;
+            }
+        }
     }
 
     @Override
@@ -85,6 +85,9 @@ public class PageSequence extends AbstractPageSequence implements WritingModeTra
      */
     private final List<ChangeBar> changeBarList = new LinkedList<ChangeBar>();
 
+    /** Whether this page-sequence contains fo:retrieve-marker or fo:retrieve-table-marker */
+    private boolean markerRetrieval;
+
     /**
      * Create a PageSequence instance that is a child of the
      * given {@link FONode}.
@@ -543,6 +546,38 @@ public class PageSequence extends AbstractPageSequence implements WritingModeTra
         return new LinkedList<ChangeBar>(changeBarList);
     }
 
+    /**
+     * Notifies this page-sequence that it contains an fo:retrieve-marker or an
+     * fo:retrieve-table-marker.
+     */
+    public void notifyMarkerRetrieval() {
+        markerRetrieval = true;
+    }
+
+    /**
+     * Indicates whether this page-sequence contains an fo:retrieve-marker or an
+     * fo:retrieve-table-marker, whose layout involves cloning FO nodes.
+     * @return true if markers are retrieved
+     */
+    public boolean hasMarkerRetrieval() {
+        return markerRetrieval;
+    }
+
+    /**
+     * Gives this page-sequence its own copy of its page-sequence-master, so that it can be
+     * laid out concurrently with the other page-sequences using the same
+     * page-sequence-master. Does nothing if the page-sequence uses a simple-page-master.
+     */
+    public void isolatePageSequenceMaster() {
+        if (pageSequenceMaster != null) {
+            try {
+                pageSequenceMaster = pageSequenceMaster.copy();
+            } catch (FOPException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
     public void setOnlyTryInfinite(boolean b) {
         if (pageSequenceMaster != null) {
             pageSequenceMaster.onlyTryInfinite = b;
@@ -20,6 +20,7 @@
 package org.apache.fop.fo.pagination;
 
 // Java
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -81,7 +82,7 @@ public class PageSequenceMaster extends FObj {
 
     /** {@inheritDoc} */
     public void startOfNode() throws FOPException {
-        subSequenceSpecifiers = new java.util.ArrayList<SubSequenceSpecifier>();
+        subSequenceSpecifiers = new ArrayList<SubSequenceSpecifier>();
         layoutMasterSet = parent.getRoot().getLayoutMasterSet();
         layoutMasterSet.addPageSequenceMaster(masterName, this);
     }
@@ -139,6 +140,25 @@ public class PageSequenceMaster extends FObj {
         return Collections.unmodifiableList(subSequenceSpecifiers);
     }
 
+    /**
+     * Returns a copy of this page-sequence-master with its own subsequence specifiers, so
+     * that a page-sequence can go through the page-masters independently of the other
+     * page-sequences using this page-sequence-master.
+     * @return the copy, reset
+     * @throws FOPException if a subsequence specifier cannot be copied
+     */
+    PageSequenceMaster copy() throws FOPException {
+        PageSequenceMaster copy = (PageSequenceMaster) clone();
+        copy.subSequenceSpecifiers
+                = new ArrayList<SubSequenceSpecifier>(subSequenceSpecifiers.size());
+        for (SubSequenceSpecifier subSequenceSpecifier : subSequenceSpecifiers) {
+            copy.subSequenceSpecifiers.add((SubSequenceSpecifier)
+                    ((FONode) subSequenceSpecifier).clone(copy, false));
+        }
+        copy.reset();
+        return copy;
+    }
+
     /**
      * Resets the subsequence specifiers subsystem.
      */
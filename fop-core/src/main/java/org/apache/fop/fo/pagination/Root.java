@@ -75,14 +75,26 @@ public class Root extends FObj implements CommonAccessibilityHolder {
      */
     private FOEventHandler foEventHandler;
 
-    private PageSequence lastSeq;
+    /**
+     * The page-sequence whose last page was made last, per thread as page-sequences may be laid
+     * out concurrently
+     */
+    private final ThreadLocal<PageSequence> lastSeq = new ThreadLocal<PageSequence>();
 
     public void setLastSeq(PageSequence seq) {
-        lastSeq = seq;
+        lastSeq.set(seq);
     }
 
     public PageSequence getLastSeq() {
-          return lastSeq;
+          return lastSeq.get();
+    }
+
+    /**
+     * Forgets the last page-sequence of the current thread, once the thread has laid out a
+     * page-sequence concurrently with the others.
+     */
+    public void removeLastSeq() {
+        lastSeq.remove();
     }
 
     /**
@@ -19,11 +19,16 @@
 
 package org.apache.fop.fonts;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.BitSet;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.fop.util.CharUtilities;
 
@@ -35,56 +40,63 @@ import org.apache.fop.util.CharUtilities;
  * fonts, this is the same as the glyph index.
  * Unicode index: The Unicode codepoint of a character.
  * Glyph name: the Adobe glyph name (as found in Glyphs.java)
+ * <p>
+ * The used glyphs are recorded in arrays of ints allocated by pages and updated without locks, so
+ * that the threads mapping characters of a font shared by concurrent layouts do not contend for it.
+ * The character selectors are still given densely, in the order the glyphs are first used.
  */
 public class CIDSubset implements CIDSet {
 
+    /** The maximum number of glyphs in a font */
+    private static final int MAX_GLYPHS = 0x10000;
+
+    /** Marks a glyph whose character selector is being given by another thread */
+    private static final int ASSIGNING = -1;
+
     /**
-     * usedGlyphs contains orginal, new glyph index (glyph index -> char selector)
+     * usedGlyphs contains the new glyph index plus one by original glyph index
+     * (glyph index -> char selector), 0 for the glyphs not used
      */
-    private Map<Integer, Integer> usedGlyphs = new LinkedHashMap<Integer, Integer>();
+    private final IntPages usedGlyphs = new IntPages(MAX_GLYPHS);
 
     /**
-     * usedGlyphsIndex contains new glyph, original index (char selector -> glyph index)
+     * usedGlyphsIndex contains the original index plus one by new glyph (char selector -> glyph index)
      */
-    private Map<Integer, Integer> usedGlyphsIndex = new HashMap<Integer, Integer>();
-    private int usedGlyphsCount;
+    private final IntPages usedGlyphsIndex = new IntPages(MAX_GLYPHS);
+    private final AtomicInteger usedGlyphsCount = new AtomicInteger();
 
     /**
-     * usedCharsIndex contains new glyph, original char (char selector -> Unicode)
+     * usedCharsIndex contains the original char plus one by new glyph (char selector -> Unicode)
      */
-    private Map<Integer, Integer> usedCharsIndex = new HashMap<Integer, Integer>();
+    private final IntPages usedCharsIndex = new IntPages(MAX_GLYPHS);
 
     /**
-     * A map between the original character and it's GID in the original font.
+     * The GID plus one of each used BMP character in the original font.
      */
-    private Map<Integer, Integer> charToGIDs = new HashMap<Integer, Integer>();
+    private final IntPages charToGIDs = new IntPages(0x10000);
 
+    private final Map<Integer, Integer> glyphs = new UsedGlyphs();
 
     private final MultiByteFont font;
 
     public CIDSubset(MultiByteFont mbf) {
         font = mbf;
         // The zeroth value is reserved for .notdef
-        usedGlyphs.put(0, 0);
-        usedGlyphsIndex.put(0, 0);
-        usedGlyphsCount++;
+        usedGlyphs.set(0, 1);
+        usedGlyphsIndex.set(0, 1);
+        usedGlyphsCount.incrementAndGet();
     }
 
     /** {@inheritDoc} */
     public int getOriginalGlyphIndex(int index) {
-        Integer glyphIndex = usedGlyphsIndex.get(index);
-        if (glyphIndex != null) {
-            return glyphIndex;
-        } else {
-            return -1;
-        }
+        return usedGlyphsIndex.get(index) - 1;
     }
 
     /** {@inheritDoc} */
     public int getUnicode(int index) {
-        Integer mapValue = usedCharsIndex.get(index);
-        if (mapValue != null) {
-            return mapValue;
+        int mapValue = usedCharsIndex.get(index);
+        if (mapValue != 0) {
+            return mapValue - 1;
         } else {
             return CharUtilities.NOT_A_CHARACTER;
         }
@@ -99,45 +111,50 @@ public class CIDSubset implements CIDSet {
     public int mapCodePoint(int glyphIndex, int codePoint) {
         // Reencode to a new subset font or get the reencoded value
         // IOW, accumulate the accessed characters and build a character map for them
-        Integer subsetCharSelector = usedGlyphs.get(glyphIndex);
-        if (subsetCharSelector == null) {
-            int selector = usedGlyphsCount;
-            usedGlyphs.put(glyphIndex, selector);
-            usedGlyphsIndex.put(selector, glyphIndex);
-            usedCharsIndex.put(selector, codePoint);
-            charToGIDs.put(codePoint, glyphIndex);
-            usedGlyphsCount++;
-            return selector;
-        } else {
-            return subsetCharSelector;
+        int subsetCharSelector = usedGlyphs.get(glyphIndex);
+        while (subsetCharSelector <= 0) {
+            if (subsetCharSelector == 0 && usedGlyphs.compareAndSet(glyphIndex, 0, ASSIGNING)) {
+                // only the thread that reserved the glyph takes a selector, so they stay dense
+                int selector = usedGlyphsCount.getAndIncrement();
+                usedGlyphsIndex.set(selector, glyphIndex + 1);
+                usedCharsIndex.set(selector, codePoint + 1);
+                if (codePoint < 0x10000) {
+                    charToGIDs.set(codePoint, glyphIndex + 1);
+                }
+                usedGlyphs.set(glyphIndex, selector + 1);
+                return selector;
+            }
+            Thread.yield();
+            subsetCharSelector = usedGlyphs.get(glyphIndex);
         }
+        return subsetCharSelector - 1;
     }
 
     /** {@inheritDoc} */
     public Map<Integer, Integer> getGlyphs() {
-        return Collections.unmodifiableMap(this.usedGlyphs);
+        return glyphs;
     }
 
     /** {@inheritDoc} */
     public char getUnicodeFromGID(int glyphIndex) {
         // TODO this method is never called in the MultiByte font path.
-        // This is why we can safely cast the value of usedCharsIndex.get(selector)
+        // This is why we can safely cast the value of getUnicode(selector)
         // to int . BTW is a question if it should be changed to int as getUnicode
         // or left like this.
-        int selector = usedGlyphs.get(glyphIndex);
-        return (char) usedCharsIndex.get(selector).intValue();
+        int selector = usedGlyphs.get(glyphIndex) - 1;
+        return (char) getUnicode(selector);
     }
 
     /** {@inheritDoc} */
     public int getGIDFromChar(char ch) {
-        return charToGIDs.get((int) ch);
+        return charToGIDs.get(ch) - 1;
     }
 
     /** {@inheritDoc} */
     public char[] getChars() {
         StringBuilder buf = new StringBuilder();
 
-        for (int i = 0; i < usedGlyphsCount; i++) {
+        for (int i = 0, c = getNumberOfGlyphs(); i < c; i++) {
             buf.appendCodePoint(getUnicode(i));
         }
 
@@ -146,13 +163,13 @@ public class CIDSubset implements CIDSet {
 
     /** {@inheritDoc} */
     public int getNumberOfGlyphs() {
-        return this.usedGlyphsCount;
+        return this.usedGlyphsCount.get();
     }
 
     /** {@inheritDoc} */
     public BitSet getGlyphIndices() {
         BitSet bitset = new BitSet();
-        for (Integer cid : usedGlyphs.keySet()) {
+        for (int cid = usedGlyphs.nextNonZero(0); cid >= 0; cid = usedGlyphs.nextNonZero(cid + 1)) {
             bitset.set(cid);
         }
         return bitset;
@@ -162,11 +179,133 @@ public class CIDSubset implements CIDSet {
     public int[] getWidths() {
         int[] widths = font.getWidths();
         int[] tmpWidth = new int[getNumberOfGlyphs()];
-        for (int i = 0, c = getNumberOfGlyphs(); i < c; i++) {
+        for (int i = 0, c = tmpWidth.length; i < c; i++) {
             int nwx = Math.max(0, getOriginalGlyphIndex(i));
             tmpWidth[i] = widths[nwx];
         }
         return tmpWidth;
     }
 
+    /**
+     * An unmodifiable view of the used glyphs, by glyph index, iterated in the order of the
+     * character selectors.
+     */
+    private final class UsedGlyphs extends AbstractMap<Integer, Integer> {
+
+        @Override
+        public Integer get(Object key) {
+            if (key instanceof Integer) {
+                int selector = usedGlyphs.get((Integer) key);
+                if (selector > 0) {
+                    return selector - 1;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return getNumberOfGlyphs();
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, Integer>>() {
+
+                @Override
+                public Iterator<Map.Entry<Integer, Integer>> iterator() {
+                    return new Iterator<Map.Entry<Integer, Integer>>() {
+
+                        private int selector;
+
+                        public boolean hasNext() {
+                            return selector < getNumberOfGlyphs();
+                        }
+
+                        public Map.Entry<Integer, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int glyphIndex = getOriginalGlyphIndex(selector);
+                            return new SimpleImmutableEntry<Integer, Integer>(glyphIndex, selector++);
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return getNumberOfGlyphs();
+                }
+            };
+        }
+    }
+
+    /**
+     * An array of ints whose pages are allocated the first time one of their entries is set.
+     * The entries are read and written atomically.
+     */
+    private static final class IntPages {
+
+        private static final int PAGE_SIZE = 256;
+
+        private final AtomicReferenceArray<AtomicIntegerArray> pages;
+
+        IntPages(int capacity) {
+            pages = new AtomicReferenceArray<AtomicIntegerArray>(capacity / PAGE_SIZE);
+        }
+
+        /** @return the entry at the given index, 0 if it was never set or is out of bounds */
+        int get(int index) {
+            if (index < 0 || index >= pages.length() * PAGE_SIZE) {
+                return 0;
+            }
+            AtomicIntegerArray page = pages.get(index / PAGE_SIZE);
+            return page != null ? page.get(index % PAGE_SIZE) : 0;
+        }
+
+        void set(int index, int value) {
+            page(index).set(index % PAGE_SIZE, value);
+        }
+
+        boolean compareAndSet(int index, int expect, int update) {
+            return page(index).compareAndSet(index % PAGE_SIZE, expect, update);
+        }
+
+        /** @return the index of the first non-zero entry from the given index, -1 if there is none */
+        int nextNonZero(int index) {
+            for (int i = index / PAGE_SIZE; i < pages.length(); i++) {
+                AtomicIntegerArray page = pages.get(i);
+                if (page != null) {
+                    for (int j = i == index / PAGE_SIZE ? index % PAGE_SIZE : 0; j < PAGE_SIZE; j++) {
+                        if (page.get(j) != 0) {
+                            return i * PAGE_SIZE + j;
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private AtomicIntegerArray page(int index) {
+            if (index < 0 || index >= pages.length() * PAGE_SIZE) {
+                throw new IllegalArgumentException("Index out of range: " + index);
+            }
+            int pageIndex = index / PAGE_SIZE;
+            AtomicIntegerArray page = pages.get(pageIndex);
+            if (page == null) {
+                pages.compareAndSet(pageIndex, null, new AtomicIntegerArray(PAGE_SIZE));
+                page = pages.get(pageIndex);
+            }
+            return page;
+        }
+    }
 }
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.fonts.truetype.FontFileReader;
 import org.apache.fop.fonts.truetype.SVGGlyphData;
 
 
@@ -39,7 +40,7 @@ import org.apache.fop.fonts.truetype.SVGGlyphData;
  * Abstract base class for custom fonts loaded from files, for example.
  */
 public abstract class CustomFont extends Typeface
-            implements FontDescriptor, MutableFont {
+            implements FontDescriptor, MutableFont, Cloneable {
 
     /** Fallback thickness for underline and strikeout when not provided by the font. */
     private static final int DEFAULT_LINE_THICKNESS = 50;
@@ -168,6 +169,46 @@ public abstract class CustomFont extends Typeface
         return resourceResolver.getResource(embedFileURI);
     }
 
+    /**
+     * Returns a {@link FontFileReader} on an embeddable font file. A font file on the local file
+     * system is mapped into memory rather than read onto the heap.
+     *
+     * @return {@link FontFileReader} for an embeddable font file, or null if the font file is
+     * not found
+     * @throws IOException if embedFileName is not null but Source is not found
+     */
+    public FontFileReader getFontFileReader() throws IOException {
+        return FontFileReader.getInstance(resourceResolver, embedFileURI);
+    }
+
+    /**
+     * Returns a copy of this font for a new document. The copy shares the metrics, character
+     * maps, kerning and advanced typographic tables of this font, which must not be modified
+     * afterwards, and starts without any used character, glyph or additional encoding. The
+     * copies may be used by concurrent threads: the lookup caches of the shared advanced
+     * typographic tables are thread-safe.
+     *
+     * @return the copy of this font
+     */
+    public CustomFont copyForNewDocument() {
+        CustomFont copy;
+        try {
+            copy = (CustomFont) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copy.resetUsage();
+        return copy;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void resetUsage() {
+        super.resetUsage();
+        // the unencoded characters are read from the font, the encodings are built on demand
+        additionalEncodings = null;
+    }
+
     /**
      * Returns the lookup name to an embeddable font file available as a
      * resource.
@@ -487,6 +528,7 @@ public abstract class CustomFont extends Typeface
      */
     public void setKerningEnabled(boolean enabled) {
         this.useKerning = enabled;
+        resetKerningTable();
     }
 
     /**
@@ -513,6 +555,7 @@ public abstract class CustomFont extends Typeface
             kerning = new HashMap<Integer, Map<Integer, Integer>>();
         }
         this.kerning.put(key, value);
+        resetKerningTable();
     }
 
     /**
@@ -526,6 +569,7 @@ public abstract class CustomFont extends Typeface
         } else {
             this.kerning = kerningMap;
         }
+        resetKerningTable();
     }
 
     /**
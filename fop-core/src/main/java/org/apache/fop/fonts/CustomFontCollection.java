@@ -31,6 +31,7 @@ public class CustomFontCollection implements FontCollection {
     private final List<EmbedFontInfo> embedFontInfoList;
     private final InternalResourceResolver uriResolver;
     private final boolean useComplexScripts;
+    private final LoadedFontCache loadedFontCache;
 
     /**
      * Main constructor.
@@ -40,9 +41,24 @@ public class CustomFontCollection implements FontCollection {
      */
     public CustomFontCollection(InternalResourceResolver fontResolver,
             List<EmbedFontInfo> customFonts, boolean useComplexScriptFeatures) {
+        this(fontResolver, customFonts, useComplexScriptFeatures, null);
+    }
+
+    /**
+     * Creates a collection whose fonts are taken from a cache of loaded fonts shared by
+     * several documents.
+     * @param fontResolver a font resolver
+     * @param customFonts the list of custom fonts
+     * @param useComplexScriptFeatures true if complex script features enabled
+     * @param loadedFontCache the cache of the loaded fonts, may be null
+     */
+    public CustomFontCollection(InternalResourceResolver fontResolver,
+            List<EmbedFontInfo> customFonts, boolean useComplexScriptFeatures,
+            LoadedFontCache loadedFontCache) {
         this.uriResolver = fontResolver;
         this.embedFontInfoList = customFonts;
         this.useComplexScripts = useComplexScriptFeatures;
+        this.loadedFontCache = loadedFontCache;
     }
 
     /** {@inheritDoc} */
@@ -57,7 +73,8 @@ public class CustomFontCollection implements FontCollection {
             internalName = "F" + num;
             num++;
 
-            LazyFont font = new LazyFont(embedFontInfo, this.uriResolver, useComplexScripts);
+            LazyFont font = new LazyFont(embedFontInfo, this.uriResolver, useComplexScripts,
+                    loadedFontCache);
             fontInfo.addMetrics(internalName, font);
 
             List<FontTriplet> triplets = embedFontInfo.getFontTriplets();
@@ -82,6 +82,8 @@ public class Font implements Substitutable, Positionable {
 
     private final FontMetrics metric;
 
+    private final WordMetricsCache wordMetricsCache = new WordMetricsCache();
+
     /**
      * Main constructor
      * @param key key of the font
@@ -104,6 +106,14 @@ public class Font implements Substitutable, Positionable {
         return this.metric;
     }
 
+    /**
+     * Returns the cache of the measurements of the words set in this font.
+     * @return the word metrics cache
+     */
+    public WordMetricsCache getWordMetricsCache() {
+        return wordMetricsCache;
+    }
+
     /**
      * Determines whether the font is a multibyte font.
      * @return True if it is multibyte
@@ -204,14 +214,7 @@ public class Font implements Substitutable, Positionable {
             return 0;
         }
 
-        Map<Integer, Integer> kernPair = getKerning().get(ch1);
-        if (kernPair != null) {
-            Integer width = kernPair.get(ch2);
-            if (width != null) {
-                return width * getFontSize() / 1000;
-            }
-        }
-        return 0;
+        return metric.getKerningTable().getKernValue(ch1, ch2) * getFontSize() / 1000;
     }
 
     /**
@@ -19,9 +19,14 @@
 
 package org.apache.fop.fonts;
 
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.autodetect.FontInfoFinder;
@@ -33,6 +38,7 @@ public class FontAdder {
     private final FontEventListener listener;
     private final InternalResourceResolver resourceResolver;
     private final FontManager manager;
+    private final ExecutorService executor;
 
     /**
      * Main constructor
@@ -42,9 +48,25 @@ public class FontAdder {
      */
     public FontAdder(FontManager manager, InternalResourceResolver resourceResolver,
             FontEventListener listener) {
+        this(manager, resourceResolver, listener, null);
+    }
+
+    private FontAdder(FontManager manager, InternalResourceResolver resourceResolver,
+            FontEventListener listener, ExecutorService executor) {
         this.manager = manager;
         this.resourceResolver = resourceResolver;
         this.listener = listener;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a font adder like this one, reading the font files on a pool of threads.
+     * @param executor the executor reading the font files, null to read them on the calling
+     * thread
+     * @return the font adder
+     */
+    FontAdder withExecutor(ExecutorService executor) {
+        return new FontAdder(manager, resourceResolver, listener, executor);
     }
 
     /**
@@ -55,19 +77,55 @@ public class FontAdder {
      */
     public void add(List<URL> fontURLList, List<EmbedFontInfo> fontInfoList)
             throws URISyntaxException {
-        FontCache cache = manager.getFontCache();
-        FontInfoFinder finder = new FontInfoFinder();
+        final FontCache cache = manager.getFontCache();
+        final FontInfoFinder finder = new FontInfoFinder();
         finder.setEventListener(listener);
 
-        for (URL fontURL : fontURLList) {
-            EmbedFontInfo[] embedFontInfos = finder.find(fontURL.toURI(), resourceResolver, cache);
-            if (embedFontInfos == null) {
-                continue;
+        if (executor == null || fontURLList.size() < 2) {
+            for (URL fontURL : fontURLList) {
+                add(finder.find(fontURL.toURI(), resourceResolver, cache), fontInfoList);
             }
-            for (EmbedFontInfo fontInfo : embedFontInfos) {
-                if (fontInfo != null) {
-                    fontInfoList.add(fontInfo);
+            return;
+        }
+        // the font files are read concurrently, the fonts are still added in the order of the list
+        List<Future<EmbedFontInfo[]>> results = new java.util.ArrayList<Future<EmbedFontInfo[]>>();
+        for (URL fontURL : fontURLList) {
+            final URI fontURI = fontURL.toURI();
+            results.add(executor.submit(new Callable<EmbedFontInfo[]>() {
+                public EmbedFontInfo[] call() {
+                    return finder.find(fontURI, resourceResolver, cache);
                 }
+            }));
+        }
+        try {
+            for (Future<EmbedFontInfo[]> result : results) {
+                add(result.get(), fontInfoList);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while detecting fonts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            for (Future<EmbedFontInfo[]> result : results) {
+                result.cancel(false);
+            }
+        }
+    }
+
+    private void add(EmbedFontInfo[] embedFontInfos, List<EmbedFontInfo> fontInfoList) {
+        if (embedFontInfos == null) {
+            return;
+        }
+        for (EmbedFontInfo fontInfo : embedFontInfos) {
+            if (fontInfo != null) {
+                fontInfoList.add(fontInfo);
             }
         }
     }
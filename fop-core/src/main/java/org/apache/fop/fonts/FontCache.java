@@ -20,19 +20,23 @@
 package org.apache.fop.fonts;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -46,6 +50,11 @@ import org.apache.fop.util.LogUtil;
 
 /**
  * Fop cache (currently only used for font info caching)
+ * <p>
+ * The cache is written in a compact binary index, read without Java serialization, that
+ * records the modification date and the size of each font file, so that only the files changed
+ * since they were cached are parsed again. Cache files written with Java serialization by
+ * former versions are still read.
  */
 public final class FontCache implements Serializable {
 
@@ -64,6 +73,12 @@ public final class FontCache implements Serializable {
     /** font cache file path */
     private static final String DEFAULT_CACHE_FILENAME = "fop-fonts.cache";
 
+    /** The magic number starting a binary font cache file ("FOPC") */
+    private static final int MAGIC = 0x464F5043;
+
+    /** The version of the binary font cache format */
+    private static final int FORMAT_VERSION = 1;
+
     /** has this cache been changed since it was last read? */
     private transient boolean changed;
 
@@ -160,11 +175,17 @@ public final class FontCache implements Serializable {
                             + cacheFile.getCanonicalPath());
                 }
                 InputStream in = new BufferedInputStream(new FileInputStream(cacheFile));
-                ObjectInputStream oin = new ObjectInputStream(in);
                 try {
-                    return (FontCache) oin.readObject();
+                    in.mark(4);
+                    DataInputStream din = new DataInputStream(in);
+                    if (din.readInt() == MAGIC) {
+                        return readIndex(din);
+                    }
+                    // a cache file written with Java serialization
+                    in.reset();
+                    return (FontCache) new ObjectInputStream(in).readObject();
                 } finally {
-                    IOUtils.closeQuietly(oin);
+                    IOUtils.closeQuietly(in);
                 }
             } catch (ClassNotFoundException e) {
                 // We don't really care about the exception since it's just a
@@ -212,11 +233,11 @@ public final class FontCache implements Serializable {
                     log.trace("Writing font cache to " + cacheFile.getCanonicalPath());
                     OutputStream out = new java.io.FileOutputStream(cacheFile);
                     out = new java.io.BufferedOutputStream(out);
-                    ObjectOutputStream oout = new ObjectOutputStream(out);
+                    DataOutputStream dout = new DataOutputStream(out);
                     try {
-                        oout.writeObject(this);
+                        writeIndex(dout);
                     } finally {
-                        IOUtils.closeQuietly(oout);
+                        IOUtils.closeQuietly(dout);
                     }
                 } catch (IOException ioe) {
                     LogUtil.handleException(log, ioe, true);
@@ -227,6 +248,129 @@ public final class FontCache implements Serializable {
         }
     }
 
+    private void writeIndex(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(getFontFileMap().size());
+        for (Map.Entry<String, CachedFontFile> entry : getFontFileMap().entrySet()) {
+            CachedFontFile cachedFontFile = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(cachedFontFile.lastModified());
+            out.writeLong(cachedFontFile.length());
+            EmbedFontInfo[] fontInfos = cachedFontFile.getEmbedFontInfos();
+            out.writeInt(fontInfos.length);
+            for (EmbedFontInfo fontInfo : fontInfos) {
+                writeFontInfo(out, fontInfo);
+            }
+        }
+        out.writeInt(getFailedFontMap().size());
+        for (Map.Entry<String, Long> entry : getFailedFontMap().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private static FontCache readIndex(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported font cache format version: " + version);
+        }
+        FontCache fontCache = new FontCache();
+        for (int i = in.readInt(); i > 0; i--) {
+            String key = in.readUTF();
+            CachedFontFile cachedFontFile = new CachedFontFile(in.readLong());
+            cachedFontFile.setLength(in.readLong());
+            for (int j = in.readInt(); j > 0; j--) {
+                cachedFontFile.put(readFontInfo(in));
+            }
+            fontCache.getFontFileMap().put(key, cachedFontFile);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            String key = in.readUTF();
+            fontCache.getFailedFontMap().put(key, in.readLong());
+        }
+        return fontCache;
+    }
+
+    private static void writeFontInfo(DataOutputStream out, EmbedFontInfo fontInfo)
+            throws IOException {
+        FontUris fontUris = fontInfo.getFontUris();
+        writeURI(out, fontUris.getEmbed());
+        writeURI(out, fontUris.getMetrics());
+        writeURI(out, fontUris.getAfm());
+        writeURI(out, fontUris.getPfm());
+        out.writeBoolean(fontInfo.getKerning());
+        out.writeBoolean(fontInfo.getAdvanced());
+        writeString(out, fontInfo.getSubFontName());
+        writeString(out, fontInfo.getEncodingMode() != null ? fontInfo.getEncodingMode().getName() : null);
+        writeString(out, fontInfo.getEmbeddingMode() != null ? fontInfo.getEmbeddingMode().getName() : null);
+        out.writeBoolean(fontInfo.getSimulateStyle());
+        out.writeBoolean(fontInfo.getEmbedAsType1());
+        out.writeBoolean(fontInfo.getUseSVG());
+        writeString(out, fontInfo.getPostScriptName());
+        List<FontTriplet> triplets = fontInfo.getFontTriplets();
+        out.writeInt(triplets.size());
+        for (FontTriplet triplet : triplets) {
+            writeString(out, triplet.getName());
+            writeString(out, triplet.getStyle());
+            out.writeInt(triplet.getWeight());
+            out.writeInt(triplet.getPriority());
+        }
+    }
+
+    private static EmbedFontInfo readFontInfo(DataInputStream in) throws IOException {
+        FontUris fontUris = new FontUris(readURI(in), readURI(in), readURI(in), readURI(in));
+        boolean kerning = in.readBoolean();
+        boolean advanced = in.readBoolean();
+        String subFontName = readString(in);
+        String encodingMode = readString(in);
+        String embeddingMode = readString(in);
+        boolean simulateStyle = in.readBoolean();
+        boolean embedAsType1 = in.readBoolean();
+        boolean useSVG = in.readBoolean();
+        String postScriptName = readString(in);
+        int tripletCount = in.readInt();
+        List<FontTriplet> triplets = new ArrayList<FontTriplet>(tripletCount);
+        for (int i = 0; i < tripletCount; i++) {
+            triplets.add(new FontTriplet(readString(in), readString(in), in.readInt(), in.readInt()));
+        }
+        EmbedFontInfo fontInfo;
+        try {
+            fontInfo = new EmbedFontInfo(fontUris, kerning, advanced, triplets, subFontName,
+                    encodingMode != null ? EncodingMode.getValue(encodingMode) : null,
+                    embeddingMode != null ? EmbeddingMode.getValue(embeddingMode) : null,
+                    simulateStyle, embedAsType1, useSVG);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        fontInfo.setPostScriptName(postScriptName);
+        return fontInfo;
+    }
+
+    private static void writeURI(DataOutputStream out, URI uri) throws IOException {
+        writeString(out, uri != null ? uri.toString() : null);
+    }
+
+    private static URI readURI(DataInputStream in) throws IOException {
+        String uri = readString(in);
+        try {
+            return uri != null ? new URI(uri) : null;
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid font URI in the font cache: " + uri);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        out.writeBoolean(str != null);
+        if (str != null) {
+            out.writeUTF(str);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
     /**
      * creates a key given a font info for the font mapping
      *
@@ -260,7 +404,9 @@ public final class FontCache implements Serializable {
      * @return boolean
      */
     public boolean containsFont(String embedUrl) {
-        return (embedUrl != null && getFontFileMap().containsKey(embedUrl));
+        synchronized (changeLock) {
+            return (embedUrl != null && getFontFileMap().containsKey(embedUrl));
+        }
     }
 
     /**
@@ -271,8 +417,10 @@ public final class FontCache implements Serializable {
      * @return font
      */
     public boolean containsFont(EmbedFontInfo fontInfo) {
-        return (fontInfo != null && getFontFileMap().containsKey(
-                getCacheKey(fontInfo)));
+        synchronized (changeLock) {
+            return (fontInfo != null && getFontFileMap().containsKey(
+                    getCacheKey(fontInfo)));
+        }
     }
 
     /**
@@ -333,6 +481,7 @@ public final class FontCache implements Serializable {
                 URI fontUri = resourceResolver.resolveFromBase(fontInfo.getEmbedURI());
                 long lastModified = getLastModified(fontUri);
                 cachedFontFile = new CachedFontFile(lastModified);
+                cachedFontFile.setLength(getLength(fontUri));
                 if (log.isTraceEnabled()) {
                     log.trace("Font added to cache: " + cacheKey);
                 }
@@ -351,13 +500,15 @@ public final class FontCache implements Serializable {
      * @return CachedFontFile object
      */
     public CachedFontFile getFontFile(String embedUrl) {
-        return containsFont(embedUrl) ? getFontFileMap().get(embedUrl) : null;
+        synchronized (changeLock) {
+            return containsFont(embedUrl) ? getFontFileMap().get(embedUrl) : null;
+        }
     }
 
     /**
      * Returns the EmbedFontInfo instances belonging to a font file. If the font
-     * file was modified since it was cached the entry is removed and null is
-     * returned.
+     * file was modified since it was cached, or its size changed, the entry is removed and null
+     * is returned.
      *
      * @param embedUrl
      *            the font URL
@@ -367,12 +518,32 @@ public final class FontCache implements Serializable {
      *         if it is outdated
      */
     public EmbedFontInfo[] getFontInfos(String embedUrl, long lastModified) {
-        CachedFontFile cff = getFontFile(embedUrl);
-        if (cff.lastModified() == lastModified) {
-            return cff.getEmbedFontInfos();
-        } else {
-            removeFont(embedUrl);
-            return null;
+        return getFontInfos(embedUrl, lastModified, getLength(embedUrl));
+    }
+
+    /**
+     * Returns the EmbedFontInfo instances belonging to a font file. If the font
+     * file was modified since it was cached, or its size changed, the entry is removed and null
+     * is returned.
+     *
+     * @param embedUrl
+     *            the font URL
+     * @param lastModified
+     *            the last modified date/time of the font file
+     * @param length
+     *            the size of the font file, see {@link #getLength(URI)}
+     * @return the EmbedFontInfo instances or null if there's no cached entry or
+     *         if it is outdated
+     */
+    public EmbedFontInfo[] getFontInfos(String embedUrl, long lastModified, long length) {
+        synchronized (changeLock) {
+            CachedFontFile cff = getFontFile(embedUrl);
+            if (cff.lastModified() == lastModified && cff.length() == length) {
+                return cff.getEmbedFontInfos();
+            } else {
+                removeFont(embedUrl);
+                return null;
+            }
         }
     }
 
@@ -466,6 +637,11 @@ public final class FontCache implements Serializable {
      * @return the last modified date/time
      */
     public static long getLastModified(URI uri) {
+        File file = toFile(uri);
+        if (file != null) {
+            // without opening the file, as a connection to a file URL does
+            return file.lastModified();
+        }
         try {
             URL url = uri.toURL();
             URLConnection conn = url.openConnection();
@@ -483,12 +659,45 @@ public final class FontCache implements Serializable {
         }
     }
 
+    /**
+     * Retrieve the size of a font file.
+     *
+     * @param uri the URI
+     * @return the size of the file, or -1 if the URI is not a file URI
+     */
+    public static long getLength(URI uri) {
+        File file = toFile(uri);
+        return file != null ? file.length() : -1;
+    }
+
+    private static long getLength(String embedUrl) {
+        try {
+            return getLength(new URI(embedUrl));
+        } catch (URISyntaxException e) {
+            return -1;
+        }
+    }
+
+    private static File toFile(URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            try {
+                return new File(uri);
+            } catch (IllegalArgumentException e) {
+                // not a plain file URI
+            }
+        }
+        return null;
+    }
+
     private static class CachedFontFile implements Serializable {
         private static final long serialVersionUID = 4524237324330578883L;
 
         /** file modify date (if available) */
         private long lastModified = -1;
 
+        /** file size (-1 if not available, 0 in caches written with Java serialization) */
+        private long length = -1;
+
         private Map<String, EmbedFontInfo> filefontsMap;
 
         public CachedFontFile(long lastModified) {
@@ -536,11 +745,19 @@ public final class FontCache implements Serializable {
             this.lastModified = lastModified;
         }
 
+        long length() {
+            return this.length;
+        }
+
+        void setLength(long length) {
+            this.length = length;
+        }
+
         /**
          * @return string representation of this object {@inheritDoc}
          */
         public String toString() {
-            return super.toString() + ", lastModified=" + lastModified;
+            return super.toString() + ", lastModified=" + lastModified + ", length=" + length;
         }
 
     }
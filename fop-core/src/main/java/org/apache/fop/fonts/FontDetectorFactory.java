@@ -25,6 +25,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
@@ -69,7 +72,8 @@ public final class FontDetectorFactory {
     }
 
     /**
-     * Detector of operating system and classpath fonts
+     * Detector of operating system and classpath fonts. The font directories are searched and
+     * the font files read on a pool of threads, one per available processor.
      */
     private static class DefaultFontDetector implements FontDetector {
         private static Log log = LogFactory.getLog(DefaultFontDetector.class);
@@ -86,15 +90,18 @@ public final class FontDetectorFactory {
         public void detect(FontManager fontManager, FontAdder fontAdder, boolean strict,
                 FontEventListener eventListener, List<EmbedFontInfo> fontInfoList)
                 throws FOPException {
+            ExecutorService executor = createExecutor();
+            FontAdder concurrentAdder = fontAdder.withExecutor(executor);
             try {
                 // search in font base if it is defined and
                 // is a directory but don't recurse
                 FontFileFinder fontFileFinder = new FontFileFinder(eventListener);
+                fontFileFinder.setExecutor(executor);
                 URI fontBaseURI = fontManager.getResourceResolver().getBaseURI();
                 File fontBase = FileUtils.toFile(fontBaseURI.toURL());
                 if (fontBase != null) {
                     List<URL> fontURLList = fontFileFinder.find(fontBase.getAbsolutePath());
-                    fontAdder.add(fontURLList, fontInfoList);
+                    concurrentAdder.add(fontURLList, fontInfoList);
 
                     //Can only use the font base URL if it's a file URL
                 }
@@ -102,18 +109,36 @@ public final class FontDetectorFactory {
                 // native o/s font directory finding
                 List<URL> systemFontList;
                 systemFontList = fontFileFinder.find();
-                fontAdder.add(systemFontList, fontInfoList);
+                concurrentAdder.add(systemFontList, fontInfoList);
 
                 // classpath font finding
                 ClasspathResource resource = ClasspathResource.getInstance();
                 for (String mimeTypes : FONT_MIMETYPES) {
-                    fontAdder.add(resource.listResourcesOfMimeType(mimeTypes), fontInfoList);
+                    concurrentAdder.add(resource.listResourcesOfMimeType(mimeTypes), fontInfoList);
                 }
             } catch (IOException e) {
                 LogUtil.handleException(log, e, strict);
             } catch (URISyntaxException use) {
                 LogUtil.handleException(log, use, strict);
+            } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
             }
         }
+
+        private static ExecutorService createExecutor() {
+            int threadCount = Runtime.getRuntime().availableProcessors();
+            if (threadCount < 2) {
+                return null;
+            }
+            return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FOP font detection");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
     }
 }
@@ -20,7 +20,20 @@
 package org.apache.fop.fonts;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.io.InternalResourceResolver;
@@ -36,6 +49,8 @@ import org.apache.fop.fonts.substitute.FontSubstitutions;
  */
 public class FontManager {
 
+    private static Log log = LogFactory.getLog(FontManager.class);
+
     /** The resource resolver */
     private InternalResourceResolver resourceResolver;
 
@@ -52,6 +67,9 @@ public class FontManager {
     /** FontTriplet matcher for fonts that shall be referenced rather than embedded. */
     private FontTriplet.Matcher referencedFontsMatcher;
 
+    /** The fonts loaded from font files, shared by the documents */
+    private final LoadedFontCache loadedFontCache = new LoadedFontCache();
+
     /**
      * Main constructor
      *
@@ -133,6 +151,15 @@ public class FontManager {
         return fontCacheManager.load();
     }
 
+    /**
+     * Returns the cache of the fonts loaded from font files, shared by the documents set up
+     * with this font manager.
+     * @return the loaded font cache
+     */
+    public LoadedFontCache getLoadedFontCache() {
+        return loadedFontCache;
+    }
+
     /**
      * Saves the FontCache as necessary
      *
@@ -229,4 +256,63 @@ public class FontManager {
             fontDetector.detect(this, fontAdder, strict, listener, fontInfoList);
         }
     }
+
+    /**
+     * Loads the fonts matching the given font triplets, so that the first documents using them
+     * do not wait for them to be loaded. The fonts are loaded concurrently. A font that can't
+     * be loaded is reported and skipped.
+     *
+     * @param fontInfo the font info object the fonts have been set up on
+     * @param triplets the font triplets of the fonts to load
+     * @return the number of fonts that were loaded
+     */
+    public int preloadFonts(FontInfo fontInfo, Collection<FontTriplet> triplets) {
+        Set<LazyFont> fonts = new LinkedHashSet<LazyFont>();
+        for (FontTriplet triplet : triplets) {
+            FontTriplet match = fontInfo.fontLookup(triplet.getName(), triplet.getStyle(),
+                    triplet.getWeight());
+            String key = match != null ? fontInfo.getInternalFontKey(match) : null;
+            Typeface font = key != null ? fontInfo.getFonts().get(key) : null;
+            if (font instanceof LazyFont) {
+                fonts.add((LazyFont) font);
+            }
+        }
+        if (fonts.isEmpty()) {
+            return 0;
+        }
+        int threadCount = Math.min(fonts.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FOP font preloading");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Typeface>> results = new ArrayList<Future<Typeface>>(fonts.size());
+            for (final LazyFont font : fonts) {
+                results.add(executor.submit(new Callable<Typeface>() {
+                    public Typeface call() {
+                        return font.getRealFont();
+                    }
+                }));
+            }
+            int loaded = 0;
+            for (Future<Typeface> result : results) {
+                try {
+                    if (result.get() != null) {
+                        loaded++;
+                    }
+                } catch (ExecutionException e) {
+                    log.warn("Font could not be preloaded: " + e.getCause().getMessage());
+                }
+            }
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
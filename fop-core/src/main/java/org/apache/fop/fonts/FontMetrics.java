@@ -146,6 +146,14 @@ public interface FontMetrics {
      */
     Map<Integer, Map<Integer, Integer>> getKerningInfo();
 
+    /**
+     * Returns the kerning of the font as a table that is looked up without boxing. The
+     * table holds the same values as the {@link #getKerningInfo() kerning map} and is empty
+     * if the font has no kerning information.
+     * @return the kerning table
+     */
+    KerningTable getKerningTable();
+
     /**
      * Returns the distance from the baseline to the center of the underline (negative
      * value indicates below baseline).
@@ -246,28 +246,23 @@ public class GlyphMapping {
         }
 
         CharSequence ics = text.subSequence(startIndex, endIndex);
-        int offset = 0;
-        for (int currentChar : CharUtilities.codepointsIter(ics)) {
-
-            // character width
-            int charWidth = font.getCharWidth(currentChar);
-            wordIPD = wordIPD.plus(charWidth);
-
-            // kerning
-            if (kerning) {
-                int kern = 0;
-                if (offset > 0) {
-                    int previousChar = Character.codePointAt(ics, offset - 1);
-                    kern = font.getKernValue(previousChar, currentChar);
-                } else if (precedingChar != 0) {
-                    kern = font.getKernValue(precedingChar, currentChar);
-                }
-                if (kern != 0) {
-                    addToLetterAdjust(letterSpaceAdjustArray, startIndex + offset, kern);
-                    wordIPD = wordIPD.plus(kern);
+        // the preceding character only matters for kerning
+        char wordPrecedingChar = kerning ? precedingChar : 0;
+        String word = ics.toString();
+        WordMetricsCache cache = font.getWordMetricsCache();
+        WordMetricsCache.WordMetrics metrics = cache.get(word, wordPrecedingChar);
+        if (metrics == null) {
+            metrics = measureWord(ics, font, kerning, wordPrecedingChar);
+            cache.put(word, wordPrecedingChar, metrics);
+        }
+        wordIPD = wordIPD.plus(metrics.getWidth());
+        int[] kerns = metrics.getKerning();
+        if (kerns != null) {
+            for (int offset = 0; offset < kerns.length; offset++) {
+                if (kerns[offset] != 0) {
+                    addToLetterAdjust(letterSpaceAdjustArray, startIndex + offset, kerns[offset]);
                 }
             }
-            offset++;
         }
         if (kerning
                 && (breakOpportunityChar != 0)
@@ -308,6 +303,42 @@ public class GlyphMapping {
                 (breakOpportunityChar != 0) && !isSpace(breakOpportunityChar), font, level, null);
     }
 
+    /**
+     * Measures a word character by character: sums the widths of its characters and, if the
+     * font has kerning, the kerning between them.
+     */
+    private static WordMetricsCache.WordMetrics measureWord(CharSequence ics, final Font font,
+            boolean kerning, char precedingChar) {
+        int width = 0;
+        int[] kerns = null;
+        int offset = 0;
+        for (int currentChar : CharUtilities.codepointsIter(ics)) {
+
+            // character width
+            width += font.getCharWidth(currentChar);
+
+            // kerning
+            if (kerning) {
+                int kern = 0;
+                if (offset > 0) {
+                    int previousChar = Character.codePointAt(ics, offset - 1);
+                    kern = font.getKernValue(previousChar, currentChar);
+                } else if (precedingChar != 0) {
+                    kern = font.getKernValue(precedingChar, currentChar);
+                }
+                if (kern != 0) {
+                    if (kerns == null) {
+                        kerns = new int[ics.length()];
+                    }
+                    kerns[offset] = kern;
+                    width += kern;
+                }
+            }
+            offset++;
+        }
+        return new WordMetricsCache.WordMetrics(width, kerns);
+    }
+
     private static void addToLetterAdjust(MinOptMax[] letterSpaceAdjustArray, int index, int width) {
         if (letterSpaceAdjustArray[index] == null) {
             letterSpaceAdjustArray[index] = MinOptMax.getInstance(width);
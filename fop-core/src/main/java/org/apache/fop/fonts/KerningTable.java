@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable table of the kerning values of a font, looked up without boxing. The pairs of
+ * characters are packed into long keys and stored in an open-addressing hash table, so a
+ * lookup costs a single hash probe in most cases instead of two lookups in nested maps.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class KerningTable {
+
+    private static final long NO_KEY = -1L;
+
+    /** A table without kerning pairs */
+    public static final KerningTable EMPTY = new KerningTable(new long[] {NO_KEY}, new int[1], 0);
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final int mask;
+
+    private final int shift;
+
+    private final int size;
+
+    private KerningTable(long[] keys, int[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(keys.length);
+        this.size = size;
+    }
+
+    /**
+     * Builds a kerning table from a kerning map.
+     * @param kerning the kerning values, by first and second character, may be null
+     * @return the kerning table
+     */
+    public static KerningTable fromMap(Map<Integer, Map<Integer, Integer>> kerning) {
+        if (kerning == null || kerning.isEmpty()) {
+            return EMPTY;
+        }
+        int count = 0;
+        for (Map<Integer, Integer> pairs : kerning.values()) {
+            count += pairs != null ? pairs.size() : 0;
+        }
+        // keep the table at most half full
+        int capacity = 2;
+        while (capacity < 2 * count) {
+            capacity <<= 1;
+        }
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, NO_KEY);
+        int[] values = new int[capacity];
+        KerningTable table = new KerningTable(keys, values, count);
+        int size = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> first : kerning.entrySet()) {
+            if (first.getValue() == null) {
+                continue;
+            }
+            for (Map.Entry<Integer, Integer> second : first.getValue().entrySet()) {
+                Integer value = second.getValue();
+                if (value != null && value != 0 && first.getKey() >= 0 && second.getKey() >= 0) {
+                    size += table.put(key(first.getKey(), second.getKey()), value);
+                }
+            }
+        }
+        return size == count ? table : new KerningTable(keys, values, size);
+    }
+
+    private static long key(int ch1, int ch2) {
+        return ((long) ch1 << 32) | (ch2 & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /** @return 1 if the key was added, 0 if it was already in the table */
+    private int put(long key, int value) {
+        int i = slot(key);
+        while (keys[i] != NO_KEY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return 0;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return 1;
+    }
+
+    /**
+     * Returns the kerning between two characters.
+     * @param ch1 the first character
+     * @param ch2 the second character
+     * @return the kerning value, in 1/1000ths of the font size, 0 if there's no kerning
+     */
+    public int getKernValue(int ch1, int ch2) {
+        if (size == 0 || ch1 < 0 || ch2 < 0) {
+            return 0;
+        }
+        long key = key(ch1, ch2);
+        int i = slot(key);
+        long k;
+        while ((k = keys[i]) != NO_KEY) {
+            if (k == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of kerning pairs in the table.
+     * @return the number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indicates whether the table holds no kerning pair.
+     * @return true if there is no kerning
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -53,8 +53,9 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
     private final String subFontName;
     private final boolean embedded;
     private final InternalResourceResolver resourceResolver;
+    private final LoadedFontCache loadedFontCache;
 
-    private boolean isMetricsLoaded;
+    private volatile boolean isMetricsLoaded;
     private Typeface realFont;
     private FontDescriptor realFontDescriptor;
 
@@ -65,6 +66,19 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
      */
     public LazyFont(EmbedFontInfo fontInfo, InternalResourceResolver resourceResolver,
             boolean useComplexScripts) {
+        this(fontInfo, resourceResolver, useComplexScripts, null);
+    }
+
+    /**
+     * Creates a lazy font that takes the fonts loaded from font files from a cache shared by
+     * several documents.
+     * @param fontInfo  the font info to embed
+     * @param resourceResolver the font resolver to handle font URIs
+     * @param useComplexScripts true if complex script features are enabled
+     * @param loadedFontCache the cache of the loaded fonts, may be null
+     */
+    public LazyFont(EmbedFontInfo fontInfo, InternalResourceResolver resourceResolver,
+            boolean useComplexScripts, LoadedFontCache loadedFontCache) {
 
         this.fontUris = fontInfo.getFontUris();
         this.useKerning = fontInfo.getKerning();
@@ -83,6 +97,7 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         this.subFontName = fontInfo.getSubFontName();
         this.embedded = fontInfo.isEmbedded();
         this.resourceResolver = resourceResolver;
+        this.loadedFontCache = loadedFontCache;
     }
 
     /** {@inheritDoc} */
@@ -99,44 +114,59 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
 
     private void load(boolean fail) {
         if (!isMetricsLoaded) {
-            try {
-                if (fontUris.getMetrics() != null) {
-                    // Use of XML based font metrics is DEPRECATED!
-                    // @todo Possible thread problem here
-                    XMLFontMetricsReader reader = null;
-                    InputStream in = resourceResolver.getResource(fontUris.getMetrics());
-                    InputSource src = new InputSource(in);
-                    src.setSystemId(fontUris.getMetrics().toASCIIString());
-                    reader = new XMLFontMetricsReader(src, resourceResolver);
-                    reader.setKerningEnabled(useKerning);
-                    reader.setAdvancedEnabled(useAdvanced);
-                    if (this.embedded) {
-                        reader.setFontEmbedURI(fontUris.getEmbed());
-                    }
-                    realFont = reader.getFont();
-                } else {
-                    if (fontUris.getEmbed() == null) {
-                        throw new RuntimeException("Cannot load font. No font URIs available.");
-                    }
-                    realFont = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode, encodingMode,
-                            useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1, useSVG);
+            synchronized (this) {
+                if (!isMetricsLoaded) {
+                    doLoad(fail);
+                }
+            }
+        }
+    }
+
+    private void doLoad(boolean fail) {
+        try {
+            if (fontUris.getMetrics() != null) {
+                // Use of XML based font metrics is DEPRECATED!
+                // @todo Possible thread problem here
+                XMLFontMetricsReader reader = null;
+                InputStream in = resourceResolver.getResource(fontUris.getMetrics());
+                InputSource src = new InputSource(in);
+                src.setSystemId(fontUris.getMetrics().toASCIIString());
+                reader = new XMLFontMetricsReader(src, resourceResolver);
+                reader.setKerningEnabled(useKerning);
+                reader.setAdvancedEnabled(useAdvanced);
+                if (this.embedded) {
+                    reader.setFontEmbedURI(fontUris.getEmbed());
                 }
-                if (realFont instanceof FontDescriptor) {
-                    realFontDescriptor = (FontDescriptor) realFont;
+                realFont = reader.getFont();
+            } else {
+                if (fontUris.getEmbed() == null) {
+                    throw new RuntimeException("Cannot load font. No font URIs available.");
                 }
-            } catch (RuntimeException e) {
-                String error = "Failed to read font file " + fontUris.getEmbed() + " " + e.getMessage();
-                throw new RuntimeException(error, e);
-            } catch (Exception e) {
-                String error = "Failed to read font file " + fontUris.getEmbed() + " " + e.getMessage();
-                log.error(error, e);
-                if (fail) {
-                    throw new RuntimeException(error, e);
+                if (loadedFontCache != null) {
+                    realFont = loadedFontCache.getFont(fontUris, subFontName, embedded, embeddingMode,
+                            encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle,
+                            embedAsType1, useSVG);
+                } else {
+                    realFont = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
+                            encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle,
+                            embedAsType1, useSVG);
                 }
             }
-            realFont.setEventListener(this.eventListener);
-            isMetricsLoaded = true;
+            if (realFont instanceof FontDescriptor) {
+                realFontDescriptor = (FontDescriptor) realFont;
+            }
+        } catch (RuntimeException e) {
+            String error = "Failed to read font file " + fontUris.getEmbed() + " " + e.getMessage();
+            throw new RuntimeException(error, e);
+        } catch (Exception e) {
+            String error = "Failed to read font file " + fontUris.getEmbed() + " " + e.getMessage();
+            log.error(error, e);
+            if (fail) {
+                throw new RuntimeException(error, e);
+            }
         }
+        realFont.setEventListener(this.eventListener);
+        isMetricsLoaded = true;
     }
 
     /**
@@ -321,6 +351,14 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         return realFont.getKerningInfo();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public KerningTable getKerningTable() {
+        load(true);
+        return realFont.getKerningTable();
+    }
+
     /** {@inheritDoc} */
     public boolean hasFeature(int tableType, String script, String language, String feature) {
         load(true);
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * Cache of the fonts loaded from font files, shared by the documents produced with a same
+ * FontManager, so that a font file is parsed once rather than once per document.
+ * <p>
+ * The cache keeps the loaded fonts to itself and hands out copies made with
+ * {@link CustomFont#copyForNewDocument()}: the metrics, character maps, kerning and advanced
+ * typographic tables are shared by the copies, while the record of the characters and glyphs
+ * used by a document, from which the font subsets are built, belongs to each copy.
+ * <p>
+ * This class is thread-safe. A font requested by several threads at once is loaded once.
+ */
+public class LoadedFontCache {
+
+    private final ConcurrentMap<FontKey, FutureTask<CustomFont>> fonts
+            = new ConcurrentHashMap<FontKey, FutureTask<CustomFont>>();
+
+    /**
+     * Returns a font for a new document, loading the font file if it hasn't been loaded yet.
+     * The parameters are the ones of
+     * {@link FontLoader#loadFont(FontUris, String, boolean, EmbeddingMode, EncodingMode,
+     * boolean, boolean, InternalResourceResolver, boolean, boolean, boolean)}.
+     * @param fontUris the URI for the font
+     * @param subFontName the sub-fontname of a font (for TrueType Collections, null otherwise)
+     * @param embedded indicates whether the font is embedded or referenced
+     * @param embeddingMode the embedding mode of the font
+     * @param encodingMode the requested encoding mode
+     * @param useKerning indicates whether kerning information should be loaded if available
+     * @param useAdvanced indicates whether advanced typographic information shall be loaded if
+     * available
+     * @param resourceResolver the font resolver used to resolve URIs
+     * @param simulateStyle whether to simulate the style of the font
+     * @param embedAsType1 whether to embed the font as a Type 1 font
+     * @param useSVG whether to use the SVG glyphs of the font
+     * @return the font, of which the caller is the only user
+     * @throws IOException in case of an I/O error
+     */
+    public CustomFont getFont(final FontUris fontUris, final String subFontName, final boolean embedded,
+            final EmbeddingMode embeddingMode, final EncodingMode encodingMode, final boolean useKerning,
+            final boolean useAdvanced, final InternalResourceResolver resourceResolver,
+            final boolean simulateStyle, final boolean embedAsType1, final boolean useSVG)
+            throws IOException {
+        FontKey key = new FontKey(new Object[] {fontUris.getEmbed(), fontUris.getMetrics(),
+                subFontName, embedded, embeddingMode, encodingMode, useKerning, useAdvanced,
+                simulateStyle, embedAsType1, useSVG}, resourceResolver);
+        FutureTask<CustomFont> task = fonts.get(key);
+        if (task == null) {
+            FutureTask<CustomFont> newTask = new FutureTask<CustomFont>(new Callable<CustomFont>() {
+                public CustomFont call() throws IOException {
+                    return FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
+                            encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle,
+                            embedAsType1, useSVG);
+                }
+            });
+            task = fonts.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+        try {
+            return task.get().copyForNewDocument();
+        } catch (ExecutionException e) {
+            // a font that failed to load is tried again by the next document
+            fonts.remove(key, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading font " + fontUris.getEmbed());
+        }
+    }
+
+    /**
+     * Returns the number of fonts held by the cache.
+     * @return the number of fonts
+     */
+    public int size() {
+        return fonts.size();
+    }
+
+    /**
+     * Removes all fonts from the cache.
+     */
+    public void clear() {
+        fonts.clear();
+    }
+
+    /** The key of a font in the cache. */
+    private static final class FontKey {
+
+        private final Object[] parameters;
+
+        private final InternalResourceResolver resourceResolver;
+
+        FontKey(Object[] parameters, InternalResourceResolver resourceResolver) {
+            this.parameters = parameters;
+            this.resourceResolver = resourceResolver;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(parameters) + System.identityHashCode(resourceResolver);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FontKey)) {
+                return false;
+            }
+            FontKey other = (FontKey) obj;
+            // the fonts keep their resolver to read the font files when they are embedded
+            return resourceResolver == other.resourceResolver
+                    && Arrays.equals(parameters, other.parameters);
+        }
+    }
+}
@@ -28,6 +28,9 @@ import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +41,7 @@ import org.apache.fop.complexscripts.fonts.GlyphPositioningTable;
 import org.apache.fop.complexscripts.fonts.GlyphSubstitutionTable;
 import org.apache.fop.complexscripts.fonts.GlyphTable;
 import org.apache.fop.complexscripts.fonts.Positionable;
+import org.apache.fop.complexscripts.fonts.ShapingCache;
 import org.apache.fop.complexscripts.fonts.Substitutable;
 import org.apache.fop.complexscripts.util.CharAssociation;
 import org.apache.fop.complexscripts.util.CharNormalize;
@@ -60,13 +64,16 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     private int defaultWidth;
     private CIDFontType cidType = CIDFontType.CIDTYPE2;
 
-    protected final CIDSet cidSet;
+    protected CIDSet cidSet;
 
     /* advanced typographic support */
     private GlyphDefinitionTable gdef;
     private GlyphSubstitutionTable gsub;
     private GlyphPositioningTable gpos;
 
+    // shared by the copies of the font made for each document, as they share the tables
+    private final ShapingCache shapingCache = new ShapingCache();
+
     /* dynamic private use (character) mappings */
     private int numMapped;
     private int numUnmapped;
@@ -81,9 +88,16 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
 
     private boolean isOTFFile;
 
-    // since for most users the most likely glyphs are in the first cmap segments we store their mapping.
-    private static final int NUM_MOST_LIKELY_GLYPHS = 256;
-    private int[] mostLikelyGlyphs = new int[NUM_MOST_LIKELY_GLYPHS];
+    /** The number of code points in a page of the glyph index table */
+    private static final int GLYPH_PAGE_SIZE = 256;
+
+    // the glyph indices of the BMP code points, by pages built when a code point of the page is
+    // first looked up, so that only the blocks used by the documents are expanded
+    private AtomicReferenceArray<int[]> glyphPages
+            = new AtomicReferenceArray<int[]>(0x10000 / GLYPH_PAGE_SIZE);
+
+    // the number of changes made to the character map, a page built from an earlier map is not kept
+    private AtomicInteger cmapModCount = new AtomicInteger();
 
     //A map to store each used glyph from the CID set against the glyph name.
     private LinkedHashMap<Integer, String> usedGlyphNames = new LinkedHashMap<Integer, String>();
@@ -93,6 +107,8 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      */
     public MultiByteFont(InternalResourceResolver resourceResolver, EmbeddingMode embeddingMode) {
         super(resourceResolver);
+        // the private use mappings may be appended while other threads look up glyphs
+        cmap = new CopyOnWriteArrayList<CMapSegment>();
         setFontType(FontType.TYPE0);
         setEmbeddingMode(embeddingMode);
         if (embeddingMode != EmbeddingMode.FULL) {
@@ -219,16 +235,21 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      * @param c the Unicode character index
      * @return the glyph index (or 0 if the glyph is not available)
      */
-    // [TBD] - needs optimization, i.e., change from linear search to binary search
     public int findGlyphIndex(int c) {
+        if (c >= 0 && c < 0x10000) {
+            int pageIndex = c / GLYPH_PAGE_SIZE;
+            int[] page = glyphPages.get(pageIndex);
+            if (page == null) {
+                page = buildGlyphPage(pageIndex);
+            }
+            return page[c % GLYPH_PAGE_SIZE];
+        }
+        return searchGlyphIndex(c);
+    }
+
+    private int searchGlyphIndex(int c) {
         int idx = c;
         int retIdx = SingleByteEncoding.NOT_FOUND_CODE_POINT;
-
-        // for most users the most likely glyphs are in the first cmap segments (meaning the one with
-        // the lowest unicode start values)
-        if (idx < NUM_MOST_LIKELY_GLYPHS && mostLikelyGlyphs[idx] != 0) {
-            return mostLikelyGlyphs[idx];
-        }
         for (CMapSegment i : cmap) {
             if (retIdx == 0
                     && i.getUnicodeStart() <= idx
@@ -236,9 +257,6 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
                 retIdx = i.getGlyphStartIndex()
                     + idx
                     - i.getUnicodeStart();
-                if (idx < NUM_MOST_LIKELY_GLYPHS) {
-                    mostLikelyGlyphs[idx] = retIdx;
-                }
                 if (retIdx != 0) {
                     break;
                 }
@@ -247,13 +265,78 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         return retIdx;
     }
 
+    /**
+     * Expands the glyph indices of a page of BMP code points. Like {@link #searchGlyphIndex(int)},
+     * a code point is given the glyph index of the first segment that maps it to a glyph.
+     */
+    private int[] buildGlyphPage(int pageIndex) {
+        int modCount = cmapModCount.get();
+        int first = pageIndex * GLYPH_PAGE_SIZE;
+        int last = first + GLYPH_PAGE_SIZE - 1;
+        int[] page = new int[GLYPH_PAGE_SIZE];
+        for (CMapSegment segment : cmap) {
+            int start = Math.max(first, segment.getUnicodeStart());
+            int end = Math.min(last, segment.getUnicodeEnd());
+            for (int cp = start; cp <= end; cp++) {
+                if (page[cp - first] == 0) {
+                    page[cp - first] = segment.getGlyphStartIndex() + cp - segment.getUnicodeStart();
+                }
+            }
+        }
+        // a mapping added while the page was built may be missing from it, so the page is
+        // withdrawn if the map changed since; a change counted after the check resets the page
+        if (glyphPages.compareAndSet(pageIndex, null, page) && cmapModCount.get() != modCount) {
+            glyphPages.compareAndSet(pageIndex, page, null);
+        }
+        return page;
+    }
+
+    private void resetGlyphPages() {
+        cmapModCount.incrementAndGet();
+        for (int i = 0; i < glyphPages.length(); i++) {
+            glyphPages.set(i, null);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCMap(CMapSegment[] cmap) {
+        super.setCMap(cmap);
+        resetGlyphPages();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void resetUsage() {
+        super.resetUsage();
+        // the private use mappings are added to the character map of each document
+        cmap = new CopyOnWriteArrayList<CMapSegment>(cmap);
+        AtomicReferenceArray<int[]> pages = new AtomicReferenceArray<int[]>(glyphPages.length());
+        for (int i = 0; i < pages.length(); i++) {
+            pages.set(i, glyphPages.get(i));
+        }
+        glyphPages = pages;
+        cmapModCount = new AtomicInteger();
+        if (cidSet instanceof CIDFull) {
+            cidSet = new CIDFull(this);
+        } else {
+            cidSet = new CIDSubset(this);
+        }
+        usedGlyphNames = new LinkedHashMap<Integer, String>();
+    }
+
     /**
      * Add a private use mapping {PU,GI} to the existing character map.
      * N.B. Does not insert in order, merely appends to end of existing map.
      */
-    protected synchronized void addPrivateUseMapping(int pu, int gi) {
+    protected void addPrivateUseMapping(int pu, int gi) {
         assert findGlyphIndex(pu) == SingleByteEncoding.NOT_FOUND_CODE_POINT;
         cmap.add(new CMapSegment(pu, pu, gi));
+        if (pu < 0x10000) {
+            // counted before the page is reset, see buildGlyphPage()
+            cmapModCount.incrementAndGet();
+            glyphPages.set(pu / GLYPH_PAGE_SIZE, null);
+        }
     }
 
     /**
@@ -268,7 +351,12 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      * @param gi glyph index
      * @returns unicode scalar value
      */
-    private int createPrivateUseMapping(int gi) {
+    private synchronized int createPrivateUseMapping(int gi) {
+        // another thread may have mapped the glyph in the meantime
+        int cc = findCharacterFromGlyphIndex(gi, false);
+        if (cc != 0) {
+            return cc;
+        }
         while ((nextPrivateUse < 0xF900)
                 && (findGlyphIndex(nextPrivateUse) != SingleByteEncoding.NOT_FOUND_CODE_POINT)) {
             nextPrivateUse++;
@@ -374,7 +462,10 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
             glyphIndex = cidSet.mapChar(glyphIndex, c);
         }
         if (isCID() && glyphIndex > 256) {
-            mapUnencodedChar(c);
+            // the additional encodings are not thread-safe
+            synchronized (this) {
+                mapUnencodedChar(c);
+            }
         }
         return (char) glyphIndex;
     }
@@ -548,9 +639,13 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     public CharSequence performSubstitution(CharSequence charSequence, String script, String language,
                                             List associations, boolean retainControls) {
         if (gsub != null) {
+            boolean cacheable = isShapingCacheable(script)
+                    && (associations == null || associations.isEmpty());
             charSequence = gsub.preProcess(charSequence, script, this, associations);
             GlyphSequence glyphSequence = charSequenceToGlyphSequence(charSequence, associations);
-            GlyphSequence glyphSequenceSubstituted = gsub.substitute(glyphSequence, script, language);
+            GlyphSequence glyphSequenceSubstituted = cacheable
+                    ? shapingCache.substitute(gsub, glyphSequence, script, language)
+                    : gsub.substitute(glyphSequence, script, language);
             if (associations != null) {
                 associations.clear();
                 associations.addAll(glyphSequenceSubstituted.getAssociations());
@@ -608,6 +703,10 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         performPositioning(CharSequence cs, String script, String language, int fontSize) {
         if (gpos != null) {
             GlyphSequence gs = mapCharsToGlyphs(cs, null);
+            if (isShapingCacheable(script)) {
+                return scaleAdjustments(shapingCache.position(gpos, gs, script, language, fontSize,
+                        this.width), fontSize);
+            }
             int[][] adjustments = new int [ gs.getGlyphCount() ] [ 4 ];
             if (gpos.position(gs, script, language, fontSize, this.width, adjustments)) {
                 return scaleAdjustments(adjustments, fontSize);
@@ -619,6 +718,23 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         }
     }
 
+    /**
+     * Indicates whether the results of the substitution and positioning of the words of a
+     * script may be cached. The Khmer script processor carries state from the preprocessing
+     * of a word over to its positioning, so its results are always computed.
+     */
+    private static boolean isShapingCacheable(String script) {
+        return !"khmr".equals(script);
+    }
+
+    /**
+     * Returns the cache of the glyph substitution and positioning results of this font.
+     * @return the shaping cache
+     */
+    public ShapingCache getShapingCache() {
+        return shapingCache;
+    }
+
     /** {@inheritDoc} */
     public int[][] performPositioning(CharSequence cs, String script, String language) {
         throw new UnsupportedOperationException();
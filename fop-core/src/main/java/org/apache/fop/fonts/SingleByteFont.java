@@ -81,6 +81,22 @@ public class SingleByteFont extends CustomFont {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void resetUsage() {
+        super.resetUsage();
+        // the alternatives may map to the additional encodings of a document
+        alternativeCodes = null;
+        if (usedGlyphs != null) {
+            usedGlyphNames = new LinkedHashMap<Integer, String>();
+            usedGlyphs = new HashMap<Integer, Integer>();
+            usedCharsIndex = new HashMap<Integer, Character>();
+            charGIDMappings = new HashMap<Character, Integer>();
+            usedGlyphs.put(0, 0);
+            usedGlyphsCount = 1;
+        }
+    }
+
     /** {@inheritDoc} */
     public boolean isEmbeddable() {
         return (!(getEmbedFileURI() == null
@@ -205,7 +221,7 @@ public class SingleByteFont extends CustomFont {
 
     /** {@inheritDoc} */
     @Override
-    public char mapChar(char c) {
+    public synchronized char mapChar(char c) {
         notifyMapOperation();
         char d = lookupChar(c);
         if (d == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
@@ -53,6 +53,8 @@ public abstract class Typeface implements FontMetrics {
 
     private Set<Character> warnedChars;
 
+    private volatile KerningTable kerningTable;
+
     /**
      * Get the encoding of the font.
      * @return the encoding
@@ -112,6 +114,27 @@ public abstract class Typeface implements FontMetrics {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     * The table is built from the kerning map on first use, subclasses whose kerning
+     * may change afterwards must call {@link #resetKerningTable()}.
+     */
+    public KerningTable getKerningTable() {
+        KerningTable table = kerningTable;
+        if (table == null) {
+            table = hasKerningInfo() ? KerningTable.fromMap(getKerningInfo()) : KerningTable.EMPTY;
+            kerningTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Discards the kerning table, so that it is built again from the kerning map.
+     */
+    protected void resetKerningTable() {
+        kerningTable = null;
+    }
+
     /**
      * Sets the font event listener that can be used to receive events about particular events
      * in this class.
@@ -121,13 +144,24 @@ public abstract class Typeface implements FontMetrics {
         this.eventListener = listener;
     }
 
+    /**
+     * Discards the state recorded while the font is used by a document, such as the character
+     * mapping operations and the warnings about missing glyphs, as well as the event listener.
+     * Subclasses recording more state must extend this method.
+     */
+    protected void resetUsage() {
+        charMapOps = 0;
+        eventListener = null;
+        warnedChars = null;
+    }
+
     /**
      * Provide proper warning if a glyph is not available.
      *
      * @param c
      *            the character which is missing.
      */
-    protected void warnMissingGlyph(char c) {
+    protected synchronized void warnMissingGlyph(char c) {
         // Give up, character is not available
         Character ch = c;
         if (warnedChars == null) {
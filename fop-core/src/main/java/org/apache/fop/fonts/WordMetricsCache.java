@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the measurements of words set in a {@link Font}, so that the widths and kerning of
+ * a word that occurs again, like the dates and labels repeated in a table, are not computed
+ * character by character again. As a cache belongs to a font instance, its entries are for a
+ * given font and size.
+ * <p>
+ * The least recently used entries are evicted once the cache holds its maximum number of
+ * words. This class is thread-safe.
+ */
+public class WordMetricsCache {
+
+    /** The default maximum number of words held by the cache */
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 4096;
+
+    private final Map<WordKey, WordMetrics> entries;
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * Creates a new cache with the default maximum number of entries.
+     */
+    public WordMetricsCache() {
+        this(DEFAULT_MAXIMUM_ENTRIES);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maximumEntries the maximum number of words to hold
+     */
+    public WordMetricsCache(final int maximumEntries) {
+        entries = new LinkedHashMap<WordKey, WordMetrics>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<WordKey, WordMetrics> eldest) {
+                return size() > maximumEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the measurements of a word.
+     * @param word the characters of the word
+     * @param precedingChar the character preceding the word, used for kerning, or 0
+     * @return the measurements, or null if the word is not in the cache
+     */
+    public synchronized WordMetrics get(String word, char precedingChar) {
+        WordMetrics metrics = entries.get(new WordKey(word, precedingChar));
+        if (metrics != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return metrics;
+    }
+
+    /**
+     * Stores the measurements of a word.
+     * @param word the characters of the word
+     * @param precedingChar the character preceding the word, used for kerning, or 0
+     * @param metrics the measurements
+     */
+    public synchronized void put(String word, char precedingChar, WordMetrics metrics) {
+        entries.put(new WordKey(word, precedingChar), metrics);
+    }
+
+    /**
+     * Returns the number of lookups that found their word in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find their word in the cache.
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of words held by the cache.
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /** The measurements of a word. */
+    public static final class WordMetrics {
+
+        private final int width;
+
+        private final int[] kerning;
+
+        /**
+         * Creates the measurements of a word.
+         * @param width the width of the word, including its kerning, in mpt
+         * @param kerning the kerning before each character of the word, or null if there is
+         * none
+         */
+        public WordMetrics(int width, int[] kerning) {
+            this.width = width;
+            this.kerning = kerning;
+        }
+
+        /**
+         * Returns the width of the word, including its kerning.
+         * @return the width in mpt
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Returns the kerning before each character of the word, the first value being the
+         * kerning with the preceding character. The array must not be modified.
+         * @return the kerning values in mpt, or null if there is no kerning
+         */
+        public int[] getKerning() {
+            return kerning;
+        }
+    }
+
+    /** The key of a word in the cache. */
+    private static final class WordKey {
+
+        private final String word;
+
+        private final char precedingChar;
+
+        WordKey(String word, char precedingChar) {
+            this.word = word;
+            this.precedingChar = precedingChar;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * word.hashCode() + precedingChar;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof WordKey)) {
+                return false;
+            }
+            WordKey other = (WordKey) obj;
+            return precedingChar == other.precedingChar && word.equals(other.word);
+        }
+    }
+}
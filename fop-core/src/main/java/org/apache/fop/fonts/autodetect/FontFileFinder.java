@@ -25,6 +25,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.DirectoryWalker;
 import org.apache.commons.io.IOCase;
@@ -47,6 +51,7 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
     /** default depth limit of recursion when searching for font files **/
     public static final int DEFAULT_DEPTH_LIMIT = -1;
     private final FontEventListener eventListener;
+    private ExecutorService executor;
 
     /**
      * Default constructor
@@ -66,6 +71,14 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
         eventListener = listener;
     }
 
+    /**
+     * Sets the executor walking the font directories, so that they are searched concurrently.
+     * @param executor the executor, null to search the directories on the calling thread
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     /**
      * Font directory filter.  Currently ignores hidden directories.
      * @return IOFileFilter font directory filter
@@ -153,12 +166,52 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
         }
         List<File> fontDirs = fontDirFinder.find();
         List<URL> results = new java.util.ArrayList<URL>();
-        for (File dir : fontDirs) {
-            super.walk(dir, results);
+        if (executor == null || fontDirs.size() < 2) {
+            for (File dir : fontDirs) {
+                super.walk(dir, results);
+            }
+        } else {
+            walkConcurrently(fontDirs, results);
         }
         return results;
     }
 
+    private void walkConcurrently(List<File> dirs, List<URL> results) throws IOException {
+        List<Future<List<URL>>> dirResults = new java.util.ArrayList<Future<List<URL>>>();
+        for (final File dir : dirs) {
+            dirResults.add(executor.submit(new Callable<List<URL>>() {
+                public List<URL> call() throws IOException {
+                    List<URL> dirResult = new java.util.ArrayList<URL>();
+                    walk(dir, dirResult);
+                    return dirResult;
+                }
+            }));
+        }
+        try {
+            // in the order of the directories, as when they are walked one after the other
+            for (Future<List<URL>> dirResult : dirResults) {
+                results.addAll(dirResult.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new java.io.InterruptedIOException("Interrupted while searching font directories");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            for (Future<List<URL>> dirResult : dirResults) {
+                dirResult.cancel(false);
+            }
+        }
+    }
+
     /**
      * Searches a given directory for font files
      *
@@ -178,7 +178,8 @@ public class FontInfoFinder {
             fileLastModified = FontCache.getLastModified(fontURI);
             // firstly try and fetch it from cache before loading/parsing the font file
             if (fontCache.containsFont(embedStr)) {
-                EmbedFontInfo[] fontInfos = fontCache.getFontInfos(embedStr, fileLastModified);
+                EmbedFontInfo[] fontInfos = fontCache.getFontInfos(embedStr, fileLastModified,
+                        FontCache.getLength(embedUri));
                 if (fontInfos != null) {
                     return fontInfos;
                 }
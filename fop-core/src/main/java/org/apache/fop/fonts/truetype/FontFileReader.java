@@ -19,20 +19,31 @@
 
 package org.apache.fop.fonts.truetype;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.commons.io.IOUtils;
 
+import org.apache.fop.apps.io.InternalResourceResolver;
+
 /**
- * Reads a TrueType font file into a byte array and
- * provides file like functions for array access.
+ * Reads a TrueType font file into a byte buffer and
+ * provides file like functions for buffer access.
+ * <p>
+ * The buffer is either a heap buffer holding the font read from a stream, or a read-only
+ * buffer shared with other readers, like a font file mapped into memory. A read-only buffer is
+ * copied onto the heap the first time the reader is written to or asked for all of its bytes.
  */
 public class FontFileReader {
 
     private final int fsize; // file size
     private int current;    // current position in file
-    private final byte[] file;
+    private ByteBuffer file;
 
     /**
      * Constructor
@@ -41,11 +52,72 @@ public class FontFileReader {
      * @throws IOException In case of an I/O problem
      */
     public FontFileReader(InputStream in) throws IOException {
-        this.file = IOUtils.toByteArray(in);
-        this.fsize = this.file.length;
+        this(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+    }
+
+    /**
+     * Creates a reader for the font held by a buffer, from its position to its limit. The
+     * content of the buffer is not copied, nor modified by the reader, so that the buffer can be
+     * shared by several readers.
+     *
+     * @param buffer the buffer holding the font
+     */
+    public FontFileReader(ByteBuffer buffer) {
+        this.file = buffer.slice();
+        this.fsize = this.file.limit();
         this.current = 0;
     }
 
+    /**
+     * Returns a reader for a font file. A font in a local file is mapped into memory instead of
+     * being read onto the heap, so that the font is not copied for every document using it.
+     * Only the fonts the resolver allows to read from the file system directly are mapped,
+     * the others are read through the resolver.
+     *
+     * @param resourceResolver the resolver of the font file
+     * @param uri the URI of the font file
+     * @return the reader, or null if the resolver does not find the font file
+     * @throws IOException In case of an I/O problem
+     * @see InternalResourceResolver#getLocalFile(URI)
+     */
+    public static FontFileReader getInstance(InternalResourceResolver resourceResolver, URI uri)
+            throws IOException {
+        File file = resourceResolver.getLocalFile(uri);
+        if (file != null && file.isFile()) {
+            return new FontFileReader(map(file));
+        }
+        InputStream in = resourceResolver.getResource(uri);
+        if (in == null) {
+            return null;
+        }
+        try {
+            return new FontFileReader(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Maps a font file into memory.
+     *
+     * @param file the font file
+     * @return a read-only buffer mapping the file
+     * @throws IOException In case of an I/O problem
+     */
+    public static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Font file too large: " + file);
+            }
+            // the mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+    }
+
 
     /**
      * Set current file position to offset
@@ -100,7 +172,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        final byte ret = file[current++];
+        final byte ret = file.get(current++);
         return ret;
     }
 
@@ -167,8 +239,11 @@ public class FontFileReader {
         final byte b1 = (byte)((val >> 8) & 0xff);
         final byte b2 = (byte)(val & 0xff);
         final int fileIndex = (int) pos;
-        file[fileIndex] = b1;
-        file[fileIndex + 1] = b2;
+        if (file.isReadOnly()) {
+            file = ByteBuffer.wrap(copy(0, fsize));
+        }
+        file.put(fileIndex, b1);
+        file.put(fileIndex + 1, b2);
     }
 
     /**
@@ -239,15 +314,14 @@ public class FontFileReader {
      */
     public final String readTTFString() throws IOException {
         int i = current;
-        while (file[i++] != 0) {
+        while (file.get(i++) != 0) {
             if (i >= fsize) {
                 throw new java.io.EOFException("Reached EOF, file size="
                                                + fsize);
             }
         }
 
-        byte[] tmp = new byte[i - current - 1];
-        System.arraycopy(file, current, tmp, 0, i - current - 1);
+        byte[] tmp = copy(current, i - current - 1);
         return new String(tmp, "ISO-8859-1");
     }
 
@@ -264,8 +338,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        byte[] tmp = new byte[len];
-        System.arraycopy(file, current, tmp, 0, len);
+        byte[] tmp = copy(current, len);
         current += len;
         final String encoding;
         if ((tmp.length > 0) && (tmp[0] == 0)) {
@@ -289,8 +362,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        byte[] tmp = new byte[len];
-        System.arraycopy(file, current, tmp, 0, len);
+        byte[] tmp = copy(current, len);
         current += len;
         final String encoding;
         encoding = "UTF-16BE"; //Use this for all known encoding IDs for now
@@ -311,15 +383,27 @@ public class FontFileReader {
             throw new java.io.IOException("Reached EOF");
         }
 
-        byte[] ret = new byte[length];
-        System.arraycopy(file, offset, ret, 0, length);
-        return ret;
+        return copy(offset, length);
     }
+
+    private byte[] copy(int offset, int length) {
+        byte[] bytes = new byte[length];
+        // a duplicate, so that the position of the buffer, which may be shared, is not changed
+        ByteBuffer source = file.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return bytes;
+    }
+
     /**
-     * Returns the full byte array representation of the file.
+     * Returns the full byte array representation of the file. A read-only buffer is copied
+     * onto the heap by the first call.
      * @return byte array.
      */
     public byte[] getAllBytes() {
-        return file;
+        if (!file.hasArray() || file.arrayOffset() != 0 || file.array().length != fsize) {
+            file = ByteBuffer.wrap(copy(0, fsize));
+        }
+        return file.array();
     }
 }
@@ -20,14 +20,12 @@
 package org.apache.fop.fonts.truetype;
 
 import java.awt.Rectangle;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.io.IOUtils;
-
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.CFFToType1Font;
 import org.apache.fop.fonts.CIDFontType;
@@ -110,21 +108,19 @@ public class OFFontLoader extends FontLoader {
      * @throws IOException if an I/O error occurs
      */
     private void read(String ttcFontName) throws IOException {
-        InputStream in = resourceResolver.getResource(this.fontFileURI);
-        try {
-            FontFileReader reader = new FontFileReader(in);
-            String header = readHeader(reader);
-            boolean isCFF = header.equals("OTTO");
-            OpenFont otf = (isCFF) ? new OTFFile(useKerning, useAdvanced) : new TTFFile(useKerning, useAdvanced);
-            boolean supported = otf.readFont(reader, header, ttcFontName);
-            if (!supported) {
-                throw new IOException("The font does not have a Unicode cmap table: " + fontFileURI);
-            }
-            buildFont(otf, ttcFontName);
-            loaded = true;
-        } finally {
-            IOUtils.closeQuietly(in);
+        FontFileReader reader = FontFileReader.getInstance(resourceResolver, this.fontFileURI);
+        if (reader == null) {
+            throw new FileNotFoundException("Font file not found: " + fontFileURI);
+        }
+        String header = readHeader(reader);
+        boolean isCFF = header.equals("OTTO");
+        OpenFont otf = (isCFF) ? new OTFFile(useKerning, useAdvanced) : new TTFFile(useKerning, useAdvanced);
+        boolean supported = otf.readFont(reader, header, ttcFontName);
+        if (!supported) {
+            throw new IOException("The font does not have a Unicode cmap table: " + fontFileURI);
         }
+        buildFont(otf, ttcFontName);
+        loaded = true;
     }
 
     public static String readHeader(FontFileReader fontFile) throws IOException {
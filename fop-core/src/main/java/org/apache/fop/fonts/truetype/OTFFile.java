@@ -22,7 +22,6 @@ package org.apache.fop.fonts.truetype;
 import java.io.IOException;
 import java.util.List;
 
-import org.apache.fontbox.cff.CFFDataInput;
 import org.apache.fontbox.cff.CFFFont;
 import org.apache.fontbox.cff.CFFParser;
 import org.apache.fontbox.cff.CFFType1Font;
@@ -100,7 +99,7 @@ public class OTFFile extends OpenFont {
         fontFile = in;
         fontFile.seekSet(0);
         CFFParser parser = new CFFParser();
-        fileFont = parser.parse(in.getAllBytes()).get(0);
+        fileFont = parser.parse(getCFFData(in)).get(0);
         embedFontName = fileFont.getName();
     }
 
@@ -121,30 +120,26 @@ public class OTFFile extends OpenFont {
      * @return The byte data found in the CFF table
      */
     public static byte[] getCFFData(FontFileReader fontFile) throws IOException {
-        byte[] cff = fontFile.getAllBytes();
-        CFFDataInput input = new CFFDataInput(fontFile.getAllBytes());
-        input.readBytes(4); //OTTO
-        short numTables = input.readShort();
-        input.readShort(); //searchRange
-        input.readShort(); //entrySelector
-        input.readShort(); //rangeShift
-
-        for (int q = 0; q < numTables; q++) {
-            String tagName = new String(input.readBytes(4));
-            readLong(input); //Checksum
-            long offset = readLong(input);
-            long length = readLong(input);
-            if (tagName.equals("CFF ")) {
-                cff = new byte[(int)length];
-                System.arraycopy(fontFile.getAllBytes(), (int)offset, cff, 0, cff.length);
-                break;
+        // read through the reader, so that a font mapped into memory is not copied as a whole
+        int pos = fontFile.getCurrentPos();
+        try {
+            fontFile.seekSet(4); //OTTO
+            short numTables = fontFile.readTTFShort();
+            fontFile.skip(6); //searchRange, entrySelector, rangeShift
+
+            for (int q = 0; q < numTables; q++) {
+                String tagName = fontFile.readTTFString(4);
+                fontFile.readTTFULong(); //Checksum
+                long offset = fontFile.readTTFULong();
+                long length = fontFile.readTTFULong();
+                if (tagName.equals("CFF ")) {
+                    return fontFile.getBytes((int) offset, (int) length);
+                }
             }
+            return fontFile.getAllBytes();
+        } finally {
+            fontFile.seekSet(pos);
         }
-        return cff;
-    }
-
-    private static long readLong(CFFDataInput input) throws IOException {
-        return (input.readCard16() << 16) | input.readCard16();
     }
 
     public boolean isType1() {
@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.InputSource;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <p>A hyphenation tree stored in the compact pattern format, which is queried in place
+ * instead of being deserialized into the arrays of a {@link HyphenationTree}. A compact
+ * pattern file can be memory-mapped, so that the patterns of a language are neither copied
+ * to the heap nor parsed when they are loaded. Only the character classes and the exceptions,
+ * which are small, are read into the heap.</p>
+ *
+ * <p>The format is a flat, big-endian sequence of:</p>
+ * <ul>
+ * <li>a header of 13 ints: the {@link #MAGIC magic number}, the {@link #VERSION version},
+ * the number of patterns, the number of nodes, the root, the length of the key trailers and
+ * the length of the value space of the pattern tree, the number of nodes, the root and the
+ * length of the key trailers of the class map, and the number of exceptions;</li>
+ * <li>the splitchar, low, high and equal arrays of the pattern tree, as chars, followed by
+ * its key trailers, as chars, and its value space, as bytes;</li>
+ * <li>the same arrays and key trailers for the class map;</li>
+ * <li>the exceptions, each as a word followed by a short count of parts, each part being a
+ * byte 0 followed by a string or a byte 1 followed by the pre-break, no-break and post-break
+ * strings of a hyphen. Strings are written as a short length and chars, a length of -1
+ * standing for null.</li>
+ * </ul>
+ *
+ * <p>Instances are read-only and thread-safe, patterns cannot be added to them.</p>
+ */
+public final class CompactHyphenationTree extends HyphenationTree {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The magic number at the start of a compact pattern file ("FHYP") */
+    public static final int MAGIC = 0x46485950;
+
+    /** The version of the compact pattern format */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 13 * 4;
+
+    private static final char COMPRESSED_BRANCH = 0xFFFF;
+
+    private final transient CharBuffer splitChars;
+
+    private final transient CharBuffer lows;
+
+    private final transient CharBuffer highs;
+
+    private final transient CharBuffer equals;
+
+    private final transient CharBuffer keyTrailers;
+
+    private final transient ByteBuffer values;
+
+    private final int nodeCount;
+
+    private CompactHyphenationTree(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a compact hyphenation pattern file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compact hyphenation pattern format version "
+                    + version + " (expected " + VERSION + ")");
+        }
+        length = buffer.getInt();
+        nodeCount = buffer.getInt();
+        root = (char) buffer.getInt();
+        int kvLength = buffer.getInt();
+        int valuesLength = buffer.getInt();
+        int classNodeCount = buffer.getInt();
+        char classRoot = (char) buffer.getInt();
+        int classKvLength = buffer.getInt();
+        int exceptionCount = buffer.getInt();
+        long required = HEADER_SIZE + 8L * nodeCount + 2L * kvLength + valuesLength
+                + 8L * classNodeCount + 2L * classKvLength;
+        if (nodeCount < 0 || kvLength < 0 || valuesLength < 0 || classNodeCount < 0
+                || classKvLength < 0 || exceptionCount < 0 || required > buffer.limit()) {
+            throw new IOException("Truncated or corrupted compact hyphenation pattern file");
+        }
+        splitChars = sliceChars(buffer, nodeCount);
+        lows = sliceChars(buffer, nodeCount);
+        highs = sliceChars(buffer, nodeCount);
+        equals = sliceChars(buffer, nodeCount);
+        keyTrailers = sliceChars(buffer, kvLength);
+        values = slice(buffer, valuesLength);
+
+        classmap.sc = readChars(buffer, classNodeCount);
+        classmap.lo = readChars(buffer, classNodeCount);
+        classmap.hi = readChars(buffer, classNodeCount);
+        classmap.eq = readChars(buffer, classNodeCount);
+        classmap.kv = new CharVector(readChars(buffer, classKvLength));
+        classmap.root = classRoot;
+        classmap.freenode = (char) classNodeCount;
+
+        for (int i = 0; i < exceptionCount; i++) {
+            String word = readString(buffer);
+            int partCount = buffer.getShort() & 0xFFFF;
+            ArrayList parts = new ArrayList(partCount);
+            for (int j = 0; j < partCount; j++) {
+                if (buffer.get() == 0) {
+                    parts.add(readString(buffer));
+                } else {
+                    parts.add(new Hyphen(readString(buffer), readString(buffer), readString(buffer)));
+                }
+            }
+            stoplist.put(word, parts);
+        }
+    }
+
+    /**
+     * Memory-maps a compact pattern file.
+     * @param file the compact pattern file
+     * @return the hyphenation tree
+     * @throws IOException if the file cannot be read or is not a compact pattern file
+     */
+    public static CompactHyphenationTree map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // the mapping remains valid once the file is closed
+            return create(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads a compact pattern file from a stream. The file is read as a single buffer which
+     * is then queried in place.
+     * @param in the stream, which is not closed
+     * @return the hyphenation tree
+     * @throws IOException if the stream cannot be read or is not a compact pattern file
+     */
+    public static CompactHyphenationTree read(InputStream in) throws IOException {
+        return create(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+    }
+
+    private static CompactHyphenationTree create(ByteBuffer buffer) throws IOException {
+        try {
+            return new CompactHyphenationTree(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated compact hyphenation pattern file");
+        }
+    }
+
+    /**
+     * Indicates whether the given stream starts with a compact pattern file. The stream is
+     * reset to its current position.
+     * @param in a stream supporting {@link InputStream#mark(int) marks}
+     * @return true if the stream starts with the magic number of the compact format
+     * @throws IOException if the stream cannot be read
+     */
+    public static boolean isCompactFormat(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = in.read();
+                if (b < 0) {
+                    return false;
+                }
+                magic = (magic << 8) | b;
+            }
+            return magic == MAGIC;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Writes a hyphenation tree in the compact pattern format.
+     * @param hTree the hyphenation tree, whose patterns must have been loaded
+     * @param out the stream to write to, which is not closed
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(HyphenationTree hTree, OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeInt(VERSION);
+        dout.writeInt(hTree.length);
+        dout.writeInt(hTree.freenode);
+        dout.writeInt(hTree.root);
+        dout.writeInt(hTree.kv.length());
+        dout.writeInt(hTree.vspace.length());
+        dout.writeInt(hTree.classmap.freenode);
+        dout.writeInt(hTree.classmap.root);
+        dout.writeInt(hTree.classmap.kv.length());
+        dout.writeInt(hTree.stoplist.size());
+        writeNodes(hTree, dout);
+        dout.write(hTree.vspace.getArray(), 0, hTree.vspace.length());
+        writeNodes(hTree.classmap, dout);
+        for (Object o : hTree.stoplist.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            writeString((String) entry.getKey(), dout);
+            List parts = (List) entry.getValue();
+            dout.writeShort(parts.size());
+            for (Object part : parts) {
+                if (part instanceof Hyphen) {
+                    Hyphen hyphen = (Hyphen) part;
+                    dout.writeByte(1);
+                    writeString(hyphen.preBreak, dout);
+                    writeString(hyphen.noBreak, dout);
+                    writeString(hyphen.postBreak, dout);
+                } else {
+                    dout.writeByte(0);
+                    writeString((String) part, dout);
+                }
+            }
+        }
+        dout.flush();
+    }
+
+    private static void writeNodes(TernaryTree tree, DataOutputStream dout) throws IOException {
+        int nodes = tree.freenode;
+        writeChars(tree.sc, nodes, dout);
+        writeChars(tree.lo, nodes, dout);
+        writeChars(tree.hi, nodes, dout);
+        writeChars(tree.eq, nodes, dout);
+        writeChars(tree.kv.getArray(), tree.kv.length(), dout);
+    }
+
+    private static void writeChars(char[] chars, int count, DataOutputStream dout) throws IOException {
+        for (int i = 0; i < count; i++) {
+            dout.writeChar(chars[i]);
+        }
+    }
+
+    private static void writeString(String s, DataOutputStream dout) throws IOException {
+        if (s == null) {
+            dout.writeShort(-1);
+        } else {
+            dout.writeShort(s.length());
+            dout.writeChars(s);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int size) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(size);
+        buffer.position(buffer.position() + size);
+        return slice;
+    }
+
+    private static CharBuffer sliceChars(ByteBuffer buffer, int count) {
+        return slice(buffer, 2 * count).asCharBuffer();
+    }
+
+    private static char[] readChars(ByteBuffer buffer, int count) {
+        char[] chars = new char[count];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + 2 * count);
+        return chars;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getShort();
+        return len < 0 ? null : new String(readChars(buffer, len));
+    }
+
+    /** The node arrays are held by the buffers. */
+    @Override
+    protected void init() {
+    }
+
+    /**
+     * Not supported, the tree is read-only.
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert(char[] key, int start, char val) {
+        throw new UnsupportedOperationException("A compact hyphenation tree is read-only");
+    }
+
+    /**
+     * Not supported, the tree is read-only.
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadPatterns(InputSource source) throws HyphenationException {
+        throw new UnsupportedOperationException("A compact hyphenation tree is read-only");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void trimToSize() {
+    }
+
+    /**
+     * Not supported.
+     * {@inheritDoc}
+     */
+    @Override
+    public Enumeration keys() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int find(char[] key, int start) {
+        int i = start;
+        char p = root;
+        while (p != 0) {
+            if (splitChars.get(p) == COMPRESSED_BRANCH) {
+                return compareKeyTrailer(key, i, lows.get(p), false) == 0 ? equals.get(p) : -1;
+            }
+            char c = key[i];
+            int d = c - splitChars.get(p);
+            if (d == 0) {
+                if (c == 0) {
+                    return equals.get(p);
+                }
+                i++;
+                p = equals.get(p);
+            } else {
+                p = d < 0 ? lows.get(p) : highs.get(p);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares a null terminated key with a key trailer.
+     * @param prefix true if the trailer only needs to be a prefix of the key
+     */
+    private int compareKeyTrailer(char[] key, int i, int t, boolean prefix) {
+        for (; key[i] == keyTrailers.get(t); i++, t++) {
+            if (key[i] == 0) {
+                return 0;
+            }
+        }
+        if (prefix && keyTrailers.get(t) == 0) {
+            return 0;
+        }
+        return key[i] - keyTrailers.get(t);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected String unpackValues(int k) {
+        byte[] v = getValues(k);
+        StringBuffer buf = new StringBuffer(v.length);
+        for (byte b : v) {
+            buf.append((char) (b + '0'));
+        }
+        return buf.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected byte[] getValues(int k) {
+        int end = k;
+        while (values.get(end) != 0 && (values.get(end) & 0x0f) != 0) {
+            end++;
+        }
+        int count = 2 * (end - k) + (values.get(end) != 0 ? 1 : 0);
+        byte[] res = new byte[count];
+        for (int i = 0; i < count; i++) {
+            byte v = values.get(k + (i >> 1));
+            res[i] = (byte) ((i & 1) == 0 ? (v >>> 4) - 1 : (v & 0x0f) - 1);
+        }
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void searchPatterns(char[] word, int index, byte[] il) {
+        int i = index;
+        char sp = word[i];
+        char p = root;
+        while (p > 0 && p < nodeCount) {
+            if (splitChars.get(p) == COMPRESSED_BRANCH) {
+                if (compareKeyTrailer(word, i, lows.get(p), true) == 0) {
+                    updateValues(equals.get(p), index, il);
+                }
+                return;
+            }
+            int d = sp - splitChars.get(p);
+            if (d == 0) {
+                if (sp == 0) {
+                    break;
+                }
+                sp = word[++i];
+                p = equals.get(p);
+                char q = p;
+                // look for a pattern ending at this position by searching for
+                // the null char ( splitchar == 0 )
+                while (q > 0 && q < nodeCount) {
+                    char qsc = splitChars.get(q);
+                    if (qsc == COMPRESSED_BRANCH) {
+                        break;
+                    }
+                    if (qsc == 0) {
+                        updateValues(equals.get(q), index, il);
+                        break;
+                    }
+                    q = lows.get(q);
+                }
+            } else {
+                p = d < 0 ? lows.get(p) : highs.get(p);
+            }
+        }
+    }
+
+    private void updateValues(int k, int index, byte[] il) {
+        int j = index;
+        for (byte value : getValues(k)) {
+            if (j < il.length && value > il[j]) {
+                il[j] = value;
+            }
+            j++;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void printStats() {
+        System.out.println("Number of keys = " + Integer.toString(length));
+        System.out.println("Node count = " + Integer.toString(nodeCount));
+        System.out.println("Key Array length = " + Integer.toString(keyTrailers.capacity()));
+        System.out.println("Value space size = " + Integer.toString(values.capacity()));
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        throw new NotSerializableException("A compact hyphenation tree is written with "
+                + CompactHyphenationTree.class.getName() + ".write()");
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the hyphenation of words, shared by the documents produced with a same
+ * FopFactory, so that a word met again is not looked up in the patterns again.
+ * <p>
+ * Entries are keyed by the word, the remain and push character counts, and the hyphenation
+ * tree, which stands for the language, the country and the pattern set. Words that have no
+ * hyphenation point are cached as well.
+ * <p>
+ * This class is thread-safe. The entries are spread over segments locked independently,
+ * each of which evicts its least recently used entries once full.
+ */
+public class HyphenationCache {
+
+    /** The default maximum number of words held by the cache */
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 64 * 1024;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    /** Cached for the words that have no hyphenation point */
+    private static final Hyphenation NO_HYPHENATION = new Hyphenation("", new int[0]);
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    /**
+     * Creates a new cache with the default maximum number of entries.
+     */
+    public HyphenationCache() {
+        this(DEFAULT_MAXIMUM_ENTRIES);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maximumEntries the maximum number of words to hold
+     */
+    public HyphenationCache(int maximumEntries) {
+        int segmentSize = Math.max(maximumEntries / SEGMENT_COUNT, 1);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Hyphenates a word, using the result of a previous call with the same parameters if
+     * possible.
+     * @param hTree the hyphenation tree for the language and country of the word
+     * @param word the word
+     * @param remainCharCount the minimum number of characters before a hyphenation point
+     * @param pushCharCount the minimum number of characters after a hyphenation point
+     * @return the hyphenation of the word, or null if it has no hyphenation point
+     * @see HyphenationTree#hyphenate(String, int, int)
+     */
+    public Hyphenation hyphenate(HyphenationTree hTree, String word, int remainCharCount,
+            int pushCharCount) {
+        WordKey key = new WordKey(hTree, word, remainCharCount, pushCharCount);
+        Segment segment = segments[(key.hashCode() >>> 16 ^ key.hashCode()) & (SEGMENT_COUNT - 1)];
+        Hyphenation hyphenation = segment.lookUp(key);
+        if (hyphenation == null) {
+            // looked up outside of the lock, a word may be hyphenated twice concurrently
+            hyphenation = hTree.hyphenate(word, remainCharCount, pushCharCount);
+            segment.store(key, hyphenation != null ? hyphenation : NO_HYPHENATION);
+        }
+        return hyphenation != NO_HYPHENATION ? hyphenation : null;
+    }
+
+    /**
+     * Returns the number of lookups that found their word in the cache.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        long hitCount = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hitCount += segment.hitCount;
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find their word in the cache.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        long missCount = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                missCount += segment.missCount;
+            }
+        }
+        return missCount;
+    }
+
+    /**
+     * Returns the number of words held by the cache.
+     * @return the number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /** A part of the cache, in least recently used order. */
+    private static final class Segment extends LinkedHashMap<WordKey, Hyphenation> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumEntries;
+
+        private long hitCount;
+
+        private long missCount;
+
+        Segment(int maximumEntries) {
+            super(16, 0.75f, true);
+            this.maximumEntries = maximumEntries;
+        }
+
+        synchronized Hyphenation lookUp(WordKey key) {
+            Hyphenation hyphenation = get(key);
+            if (hyphenation != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            return hyphenation;
+        }
+
+        synchronized void store(WordKey key, Hyphenation hyphenation) {
+            put(key, hyphenation);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<WordKey, Hyphenation> eldest) {
+            return size() > maximumEntries;
+        }
+    }
+
+    /** The key of a word in the cache. */
+    private static final class WordKey {
+
+        private final HyphenationTree hTree;
+
+        private final String word;
+
+        private final int remainCharCount;
+
+        private final int pushCharCount;
+
+        private final int hash;
+
+        WordKey(HyphenationTree hTree, String word, int remainCharCount, int pushCharCount) {
+            this.hTree = hTree;
+            this.word = word;
+            this.remainCharCount = remainCharCount;
+            this.pushCharCount = pushCharCount;
+            int h = System.identityHashCode(hTree);
+            h = 31 * h + word.hashCode();
+            h = 31 * h + remainCharCount;
+            this.hash = 31 * h + pushCharCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof WordKey)) {
+                return false;
+            }
+            WordKey other = (WordKey) obj;
+            return hTree == other.hTree && remainCharCount == other.remainCharCount
+                    && pushCharCount == other.pushCharCount && word.equals(other.word);
+        }
+    }
+}
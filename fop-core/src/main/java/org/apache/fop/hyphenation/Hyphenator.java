@@ -20,10 +20,13 @@
 package org.apache.fop.hyphenation;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Map;
 
 import org.xml.sax.InputSource;
@@ -107,8 +110,8 @@ public final class Hyphenator {
         return hTree;
     }
 
-    private static InputStream getResourceStream(String key) {
-        InputStream is = null;
+    private static URL getResource(String key) {
+        URL url = null;
         // Try to use Context Class Loader to load the properties file.
         try {
             java.lang.reflect.Method getCCL = Thread.class.getMethod(
@@ -117,8 +120,8 @@ public final class Hyphenator {
                 ClassLoader contextClassLoader = (ClassLoader)getCCL.invoke(
                         Thread.currentThread(),
                         new Object[0]);
-                is = contextClassLoader.getResourceAsStream("hyph/" + key
-                                                            + ".hyp");
+                url = contextClassLoader.getResource("hyph/" + key
+                                                     + ".hyp");
             }
         } catch (NoSuchMethodException e) {
             //ignore, fallback further down
@@ -128,17 +131,23 @@ public final class Hyphenator {
             //ignore, fallback further down
         }
 
-        if (is == null) {
-            is = Hyphenator.class.getResourceAsStream("/hyph/" + key
-                                                      + ".hyp");
+        if (url == null) {
+            url = Hyphenator.class.getResource("/hyph/" + key
+                                               + ".hyp");
         }
 
-        return is;
+        return url;
     }
 
     private static HyphenationTree readHyphenationTree(InputStream in) {
         HyphenationTree hTree = null;
         try {
+            if (!in.markSupported()) {
+                in = new BufferedInputStream(in);
+            }
+            if (CompactHyphenationTree.isCompactFormat(in)) {
+                return CompactHyphenationTree.read(in);
+            }
             ObjectInputStream ois = new ObjectInputStream(in);
             hTree = (HyphenationTree)ois.readObject();
         } catch (IOException ioe) {
@@ -150,25 +159,66 @@ public final class Hyphenator {
     }
 
     /**
-     * Returns a hyphenation tree. This method looks in the resources (getResourceStream) for
+     * Returns a hyphenation tree. This method looks in the resources (getResource) for
      * the hyphenation patterns.
      * @param key the language/country key
      * @return the hyphenation tree or null if it wasn't found in the resources
      */
     public static HyphenationTree getFopHyphenationTree(String key) {
-        InputStream is = getResourceStream(key);
-        if (is == null) {
+        URL url = getResource(key);
+        if (url == null) {
             if (log.isDebugEnabled()) {
                 log.debug("Couldn't find precompiled hyphenation pattern "
                           + key + " in resources");
             }
             return null;
         }
-        return readHyphenationTree(is);
+        if ("file".equals(url.getProtocol())) {
+            HyphenationTree hTree = mapHyphenationTree(url);
+            if (hTree != null) {
+                return hTree;
+            }
+        }
+        InputStream is = null;
+        try {
+            is = url.openStream();
+            return readHyphenationTree(is);
+        } catch (IOException ioe) {
+            log.error("I/O error while loading precompiled hyphenation pattern file", ioe);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
     }
 
     /**
-     * Load tree from serialized file or xml file
+     * Memory-maps a precompiled pattern file if it is in the compact format.
+     * @return the hyphenation tree, or null if the file is not in the compact format
+     */
+    private static HyphenationTree mapHyphenationTree(URL url) {
+        try {
+            File file = new File(url.toURI());
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                if (!CompactHyphenationTree.isCompactFormat(in)) {
+                    return null;
+                }
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            return CompactHyphenationTree.map(file);
+        } catch (URISyntaxException use) {
+            log.debug("Cannot map hyphenation pattern file " + url, use);
+        } catch (IllegalArgumentException iae) {
+            log.debug("Cannot map hyphenation pattern file " + url, iae);
+        } catch (IOException ioe) {
+            log.error("I/O error while mapping precompiled hyphenation pattern file", ioe);
+        }
+        return null;
+    }
+
+    /**
+     * Load tree from compact or serialized file or xml file
      * using configuration settings
      * @param key language key for the requested hyphenation file
      * @param resourceResolver resource resolver to find the hyphenation files
@@ -179,10 +229,10 @@ public final class Hyphenator {
         HyphenationTree hTree = null;
         // I use here the following convention. The file name specified in
         // the configuration is taken as the base name. First we try
-        // name + ".hyp" assuming a serialized HyphenationTree. If that fails
+        // name + ".hyp" assuming a compact or serialized HyphenationTree. If that fails
         // we try name + ".xml", assumming a raw hyphenation pattern file.
 
-        // first try serialized object
+        // first try precompiled patterns
         String name = key + ".hyp";
         if (key.endsWith(HYPTYPE)) {
             name = key.replace(HYPTYPE, "");
@@ -252,7 +302,11 @@ public final class Hyphenator {
         if (hTree == null) {
             return null;
         }
-        return hTree.hyphenate(word, leftMin, rightMin);
+        HyphenationCache cache = foUserAgent.getHyphenationCache();
+        if (cache == null) {
+            return hTree.hyphenate(word, leftMin, rightMin);
+        }
+        return cache.hyphenate(hTree, word, leftMin, rightMin);
     }
 
 }
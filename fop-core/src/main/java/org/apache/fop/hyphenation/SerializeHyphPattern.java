@@ -19,20 +19,27 @@
 
 package org.apache.fop.hyphenation;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 
 /**
  * <p>Serialize hyphenation patterns.</p>
- * <p>For all xml files in the source directory a pattern file is built in the target directory.</p>
+ * <p>For all xml files in the source directory a pattern file is built in the target directory.
+ * Pattern files are written either as serialized {@link HyphenationTree} objects or in the
+ * format of {@link CompactHyphenationTree}, which can be memory-mapped.</p>
  * <p>This class may be called from the ant build file in a java task.</p>
  */
 public class SerializeHyphPattern {
 
     private boolean errorDump;
 
+    private boolean compactFormat;
+
     /**
      * Controls the amount of error information dumped.
      * @param errorDump True if more error info should be provided
@@ -41,6 +48,15 @@ public class SerializeHyphPattern {
         this.errorDump = errorDump;
     }
 
+    /**
+     * Controls the format of the pattern files.
+     * @param compactFormat true to write the pattern files in the compact format, false to
+     * write serialized objects
+     */
+    public void setCompactFormat(boolean compactFormat) {
+        this.compactFormat = compactFormat;
+    }
+
     /**
      * Compile all xml files in sourceDir, and write output hyp files in targetDir
      * @param sourceDir Directory with pattern xml files
@@ -73,6 +89,10 @@ public class SerializeHyphPattern {
         startProcess = rebuild(infile, outfile);
         if (startProcess) {
             HyphenationTree hTree = buildPatternFile(infile);
+            if (compactFormat) {
+                writeCompactFile(hTree, outfile);
+                return;
+            }
             // serialize class
             try {
                 // @SuppressFBWarnings("OS_OPEN_STREAM_EXCEPTION_PATH")
@@ -89,6 +109,21 @@ public class SerializeHyphPattern {
         }
     }
 
+    private void writeCompactFile(HyphenationTree hTree, File outfile) {
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(outfile));
+            try {
+                CompactHyphenationTree.write(hTree, out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException ioe) {
+            System.err.println("Can't write compiled pattern file: "
+                               + outfile);
+            System.err.println(ioe);
+        }
+    }
+
     /*
      * serializes pattern files
      */
@@ -131,10 +166,12 @@ public class SerializeHyphPattern {
 
     /**
      * Entry point for ant java task
-     * @param args sourceDir, targetDir
+     * @param args sourceDir, targetDir and optionally "compact" to write pattern files in
+     * the compact format
      */
     public static void main(String[] args) {
         SerializeHyphPattern ser = new SerializeHyphPattern();
+        ser.setCompactFormat(args.length > 2 && "compact".equals(args[2]));
         ser.serializeDir(new File(args[0]), new File(args[1]));
     }
 
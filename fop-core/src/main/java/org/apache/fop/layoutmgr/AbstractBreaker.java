@@ -260,6 +260,15 @@ public abstract class AbstractBreaker {
         return false;
     }
 
+    /**
+     * Returns the number of parts the breaking algorithm may look ahead before committing to
+     * the parts before, see {@link BreakingAlgorithm#setMaxLookahead(int)}.
+     * @return the number of parts, 0 if the parts of a whole element list are chosen together
+     */
+    protected int getMaxLookahead() {
+        return 0;
+    }
+
     /**
      * Returns the PageProvider if any. PageBreaker overrides this method because each
      * page may have a different available BPD which needs to be accessible to the breaking
@@ -395,7 +404,9 @@ public abstract class AbstractBreaker {
                     log.debug("  blockListIndex = " + blockListIndex);
                     log.debug("  sequence starts on " + getBreakClassName(blockList.startOn));
                 }
-                observeElementList(blockList);
+                if (blockList.ignoreAtStart == 0) {
+                    observeElementList(blockList);
+                }
                 //debug code end
 
                 //*** Phase 2: Alignment and breaking ***
@@ -407,20 +418,27 @@ public abstract class AbstractBreaker {
                          isPartOverflowRecoveryActivated(), autoHeight, isSinglePartFavored());
 
                 alg.setConstantLineWidth(flowBPD);
-                int optimalPageCount = alg.findBreakingPoints(blockList, 1, true,
-                        BreakingAlgorithm.ALL_BREAKS);
+                alg.setMaxLookahead(getMaxLookahead());
+                int optimalPageCount = alg.findBreakingPoints(blockList, blockList.ignoreAtStart,
+                        1, true, BreakingAlgorithm.ALL_BREAKS);
                 boolean ipdChangesOnNextPage = (alg.getIPDdifference() != 0);
                 boolean onLastPageAndIPDChanges = false;
                 if (!ipdChangesOnNextPage) {
                     onLastPageAndIPDChanges = (lastPageHasIPDChange(optimalPageCount) && !thereIsANonRestartableLM(alg)
                             && (shouldRedoLayout() || (wasLayoutRedone() && optimalPageCount > 1)));
                 }
-                if ((ipdChangesOnNextPage || hasMoreContent() || optimalPageCount > 1)
+                if ((ipdChangesOnNextPage || hasMoreContent() || optimalPageCount > 1
+                        || alg.isLookaheadExceeded())
                         && pslm != null && pslm.getCurrentPage().isPagePositionOnly) {
                     return false;
                 }
                 if (alg.handlingFloat()) {
                     nextSequenceStartsOn = handleFloatLayout(alg, optimalPageCount, blockList, childLC);
+                } else if (alg.isLookaheadExceeded()) {
+                    //*** Phase 3 for the committed parts, then break the rest of the list ***
+                    addAreas(alg, optimalPageCount, blockList, blockList);
+                    prepareToContinueLayout(alg, optimalPageCount, blockList);
+                    blockListIndex--;
                 } else if (ipdChangesOnNextPage || onLastPageAndIPDChanges) {
                     boolean visitedBefore = false;
                     if (onLastPageAndIPDChanges) {
@@ -743,6 +761,20 @@ public abstract class AbstractBreaker {
         return nextSequenceStartsOn;
     }
 
+    /**
+     * Prepares the breaking of the rest of an element list, once the areas have been added
+     * for the parts committed by a run of the breaking algorithm whose lookahead was
+     * exceeded. The next run starts at the first box after the last committed break.
+     * @param alg the algorithm which committed the parts
+     * @param partCount the number of committed parts
+     * @param blockList the element list
+     */
+    protected void prepareToContinueLayout(PageBreakingAlgorithm alg, int partCount,
+            BlockSequence blockList) {
+        PageBreakPosition pbp = alg.getPageBreaks().get(partCount - 1);
+        blockList.ignoreAtStart = alg.par.getFirstBoxIndex(pbp.getLeafPos() + 1);
+    }
+
     protected boolean shouldRedoLayout() {
         return false;
     }
@@ -19,6 +19,10 @@
 
 package org.apache.fop.layoutmgr;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -115,6 +119,11 @@ public abstract class BreakingAlgorithm {
      */
     protected KnuthSequence par;
 
+    /**
+     * Compact copy of the paragraph, for the loops that scan the elements.
+     */
+    final KnuthElementStore store = new KnuthElementStore();
+
     /**
      * The width of a line (or height of a column in page-breaking mode).
      * -1 indicates that the line widths are different for each line.
@@ -192,6 +201,25 @@ public abstract class BreakingAlgorithm {
     private boolean partOverflowRecoveryActivated = true;
     private KnuthNode lastRecovered;
 
+    /**
+     * The nodes allocated by the algorithm. The nodes of a run are only reachable until the
+     * next run starts, they are then reused instead of allocating new ones.
+     */
+    private final List<KnuthNode> nodePool = new ArrayList<KnuthNode>();
+    /** The number of nodes of the pool handed out by the current run. */
+    private int usedNodeCount;
+    /** The number of nodes allocated by the current run. */
+    private int createdNodeCount;
+    /** The last array allocated for {@link #activeLines}, reused by the next run. */
+    private KnuthNode[] activeLinesBuffer;
+
+    /** The number of lines the active nodes may be ahead of the committed lines, 0 if unbounded. */
+    private int maxLookahead;
+    /** The lowest active line at which the current run next tries to commit lines. */
+    private int lookaheadCommitLine;
+    /** True if the last run stopped once the lookahead was exceeded. */
+    private boolean lookaheadExceeded;
+
     /**
      * Create a new instance.
      *
@@ -226,34 +254,34 @@ public abstract class BreakingAlgorithm {
      */
     public class KnuthNode {
         /** index of the breakpoint represented by this node */
-        public final int position;
+        public int position;
 
         /** number of the line ending at this breakpoint */
-        public final int line;
+        public int line;
 
         /** fitness class of the line ending at this breakpoint. One of 0, 1, 2, 3. */
-        public final int fitness;
+        public int fitness;
 
         /** accumulated width of the KnuthElements up to after this breakpoint. */
-        public final int totalWidth;
+        public int totalWidth;
 
         /** accumulated stretchability of the KnuthElements up to after this breakpoint. */
-        public final int totalStretch;
+        public int totalStretch;
 
         /** accumulated shrinkability of the KnuthElements up to after this breakpoint. */
-        public final int totalShrink;
+        public int totalShrink;
 
         /** adjustment ratio if the line ends at this breakpoint */
-        public final double adjustRatio;
+        public double adjustRatio;
 
         /** available stretch of the line ending at this breakpoint */
-        public final int availableShrink;
+        public int availableShrink;
 
         /** available shrink of the line ending at this breakpoint */
-        public final int availableStretch;
+        public int availableStretch;
 
         /** difference between target and actual line width */
-        public final int difference;
+        public int difference;
 
         /** minimum total demerits up to this breakpoint */
         public double totalDemerits;
@@ -303,6 +331,42 @@ public abstract class BreakingAlgorithm {
             this.previous = previous;
         }
 
+        /**
+         * Reinitializes a node of a previous run of the algorithm, as if it had just been
+         * constructed with the given values.
+         * @param position an integer
+         * @param line an integer
+         * @param fitness an integer
+         * @param totalWidth an integer
+         * @param totalStretch an integer
+         * @param totalShrink an integer
+         * @param adjustRatio a real number
+         * @param availableShrink an integer
+         * @param availableStretch an integer
+         * @param difference an integer
+         * @param totalDemerits a real number
+         * @param previous a node
+         */
+        protected void reset(int position, int line, int fitness,
+                int totalWidth, int totalStretch, int totalShrink,
+                double adjustRatio, int availableShrink, int availableStretch,
+                int difference, double totalDemerits, KnuthNode previous) {
+            this.position = position;
+            this.line = line;
+            this.fitness = fitness;
+            this.totalWidth = totalWidth;
+            this.totalStretch = totalStretch;
+            this.totalShrink = totalShrink;
+            this.adjustRatio = adjustRatio;
+            this.availableShrink = availableShrink;
+            this.availableStretch = availableStretch;
+            this.difference = difference;
+            this.totalDemerits = totalDemerits;
+            this.previous = previous;
+            this.next = null;
+            this.fitRecoveryCounter = 0;
+        }
+
         /** {@inheritDoc} */
         public String toString() {
             return "<KnuthNode at " + position + " "
@@ -488,6 +552,32 @@ public abstract class BreakingAlgorithm {
         this.lineWidth = lineWidth;
     }
 
+    /**
+     * Bounds the number of lines the algorithm looks ahead before it commits to breaks. By
+     * default, the breaks of the whole paragraph are chosen together. With a lookahead of
+     * {@code n} lines, once all the active nodes are at least {@code 2n} lines ahead of the
+     * start of the run, the lines up to {@code n} lines before the lowest active line are
+     * committed, following the best active node: the run stops there and
+     * {@link #isLookaheadExceeded()} returns true. The rest of the paragraph is then broken by
+     * another run starting after the last committed break, so that the work and memory of a
+     * run depend on the lookahead rather than on the length of the paragraph.
+     * @param lines the number of lines, 0 to break the whole paragraph at once
+     */
+    public void setMaxLookahead(int lines) {
+        this.maxLookahead = lines;
+    }
+
+    /**
+     * Indicates whether the last run stopped because the lookahead was exceeded. The breaks
+     * found by the run then only cover the committed lines, which are not the last ones of
+     * the paragraph.
+     * @return true if the rest of the paragraph remains to be broken
+     * @see #setMaxLookahead(int)
+     */
+    public boolean isLookaheadExceeded() {
+        return lookaheadExceeded;
+    }
+
     /**
      * @param par           the paragraph to break
      * @param threshold     upper bound of the adjustment ratio
@@ -522,9 +612,32 @@ public abstract class BreakingAlgorithm {
     public int findBreakingPoints(KnuthSequence par, int startIndex,
                                   double threshold, boolean force,
                                   int allowedBreaks) {
+        // the nodes of the previous run are no longer referenced by the algorithm
+        usedNodeCount = 0;
+        createdNodeCount = 0;
+        lastRecovered = null;
+        lookaheadExceeded = false;
+        int line = breakParagraph(par, startIndex, threshold, force, allowedBreaks);
+        if (LayoutMetricsObserver.isObservationActive()) {
+            LayoutMetricsObserver.observeBreaking(this, par.size(),
+                    createdNodeCount, usedNodeCount - createdNodeCount);
+        }
+        return line;
+    }
+
+    private int breakParagraph(KnuthSequence par, int startIndex,
+                               double threshold, boolean force,
+                               int allowedBreaks) {
         this.par = par;
         this.threshold = threshold;
         this.force = force;
+        if (maxLookahead > 0) {
+            // the run may stop long before the end of the paragraph
+            store.loadLazily(par, startIndex);
+            lookaheadCommitLine = 2 * maxLookahead;
+        } else {
+            store.load(par);
+        }
 
         // initialize the algorithm
         initialize();
@@ -537,8 +650,8 @@ public abstract class BreakingAlgorithm {
         // penalties+glues used for the filler spaces
         int previousPosition = startIndex;
         if (alignment != Constants.EN_CENTER) {
-            int firstBoxIndex = par.getFirstBoxIndex(startIndex);
-            previousPosition = (firstBoxIndex >= par.size()) ? startIndex : firstBoxIndex - 1;
+            int firstBoxIndex = store.getFirstBoxIndex(startIndex);
+            previousPosition = (firstBoxIndex >= store.size()) ? startIndex : firstBoxIndex - 1;
         }
         previousPosition = (previousPosition < 0) ? 0 : previousPosition;
 
@@ -552,8 +665,9 @@ public abstract class BreakingAlgorithm {
         }
 
         // main loop
-        for (int elementIndex = startIndex; elementIndex < par.size(); elementIndex++) {
+        for (int elementIndex = startIndex; elementIndex < store.size(); elementIndex++) {
 
+            store.ensureLoaded(elementIndex);
             previousIsBox = handleElementAt(
                     elementIndex, previousIsBox, allowedBreaks).isBox();
 
@@ -586,6 +700,13 @@ public abstract class BreakingAlgorithm {
                     this.lastRecovered = null;
                 }
                 elementIndex = restartFrom(lastForced, elementIndex);
+            } else if (maxLookahead > 0 && startLine >= lookaheadCommitLine
+                    && elementIndex < store.size() - 1 && !handlingFloat()) {
+                KnuthNode committedNode = findCommittableNode();
+                if (committedNode != null) {
+                    return commitBreaks(committedNode);
+                }
+                lookaheadCommitLine = startLine + 1;
             }
 
         }
@@ -608,6 +729,54 @@ public abstract class BreakingAlgorithm {
         return line;
     }
 
+    /**
+     * Finds the node up to which the lines can be committed once the lookahead is exceeded:
+     * the ancestor of the best active node {@link #maxLookahead} lines before the lowest
+     * active line, or the closest {@link #isCommittable(KnuthNode) committable} ancestor
+     * before it.
+     * @return the node, or null if no line can be committed
+     */
+    private KnuthNode findCommittableNode() {
+        KnuthNode bestActiveNode = null;
+        for (int i = startLine; i < endLine; i++) {
+            for (KnuthNode node = getNode(i); node != null; node = node.next) {
+                if (bestActiveNode == null || node.totalDemerits < bestActiveNode.totalDemerits) {
+                    bestActiveNode = node;
+                }
+            }
+        }
+        KnuthNode node = bestActiveNode;
+        while (node != null && node.line > startLine - maxLookahead) {
+            node = node.previous;
+        }
+        while (node != null && node.line > 0 && !isCommittable(node)) {
+            node = node.previous;
+        }
+        return (node == null || node.line == 0) ? null : node;
+    }
+
+    /**
+     * Indicates whether the lines up to the given node may be committed, the rest of the
+     * paragraph being broken by another run starting after the node's break. The default
+     * implementation always allows it.
+     * @param node a node of the chain of the best active node
+     * @return true if the lines may be committed
+     */
+    protected boolean isCommittable(KnuthNode node) {
+        return true;
+    }
+
+    private int commitBreaks(KnuthNode node) {
+        if (log.isDebugEnabled()) {
+            log.debug("Lookahead exceeded, committing " + node.line + " lines up to " + node);
+        }
+        lookaheadExceeded = true;
+        // the committed lines are not the last ones of the paragraph
+        calculateBreakPoints(node, par, node.line + 1);
+        activeLines = null;
+        return node.line;
+    }
+
     /**
      * obtain ipd difference
      * @return an integer
@@ -645,6 +814,7 @@ public abstract class BreakingAlgorithm {
             ListElement el = (ListElement)this.par.get(0);
             if (!el.isPenalty()) {
                 this.par.add(0, KnuthPenalty.DUMMY_ZERO_PENALTY);
+                store.insert(0, KnuthPenalty.DUMMY_ZERO_PENALTY);
             }
         }
 
@@ -665,7 +835,12 @@ public abstract class BreakingAlgorithm {
         this.lastTooLong = null;
         this.startLine = 0;
         this.endLine = 0;
-        this.activeLines = new KnuthNode[20];
+        if (activeLinesBuffer != null) {
+            Arrays.fill(activeLinesBuffer, null);
+        } else {
+            activeLinesBuffer = new KnuthNode[20];
+        }
+        this.activeLines = activeLinesBuffer;
     }
 
     /**
@@ -692,10 +867,18 @@ public abstract class BreakingAlgorithm {
             int totalWidth, int totalStretch, int totalShrink,
             double adjustRatio, int availableShrink, int availableStretch,
             int difference, double totalDemerits, KnuthNode previous) {
-        return new KnuthNode(position, line, fitness,
-                             totalWidth, totalStretch, totalShrink,
-                             adjustRatio, availableShrink, availableStretch,
-                             difference, totalDemerits, previous);
+        KnuthNode node = recycleNode();
+        if (node == null) {
+            return registerNode(new KnuthNode(position, line, fitness,
+                                 totalWidth, totalStretch, totalShrink,
+                                 adjustRatio, availableShrink, availableStretch,
+                                 difference, totalDemerits, previous));
+        }
+        node.reset(position, line, fitness,
+                   totalWidth, totalStretch, totalShrink,
+                   adjustRatio, availableShrink, availableStretch,
+                   difference, totalDemerits, previous);
+        return node;
     }
 
     /** Creates a new active node for a break from the best active node of the given
@@ -715,11 +898,38 @@ public abstract class BreakingAlgorithm {
      */
     protected KnuthNode createNode(int position, int line, int fitness,
                                    int totalWidth, int totalStretch, int totalShrink) {
-        return new KnuthNode(position, line, fitness,
-                             totalWidth, totalStretch, totalShrink, best.getAdjust(fitness),
-                             best.getAvailableShrink(fitness), best.getAvailableStretch(fitness),
-                             best.getDifference(fitness), best.getDemerits(fitness),
-                             best.getNode(fitness));
+        return createNode(position, line, fitness,
+                          totalWidth, totalStretch, totalShrink, best.getAdjust(fitness),
+                          best.getAvailableShrink(fitness), best.getAvailableStretch(fitness),
+                          best.getDifference(fitness), best.getDemerits(fitness),
+                          best.getNode(fitness));
+    }
+
+    /**
+     * Returns a node allocated by a previous run of the algorithm, to be reinitialized by
+     * {@link KnuthNode#reset}. The nodes are always created by the same implementation of
+     * {@link #createNode}, so they are of the class it instantiates.
+     * @return a node no longer in use, or null if a new node must be allocated and passed to
+     * {@link #registerNode(KnuthNode)}
+     */
+    protected final KnuthNode recycleNode() {
+        if (usedNodeCount < nodePool.size()) {
+            return nodePool.get(usedNodeCount++);
+        }
+        return null;
+    }
+
+    /**
+     * Adds a newly allocated node to the nodes reused by the next runs of the algorithm.
+     * @param node the node
+     * @param <T> the class of the node
+     * @return the node
+     */
+    protected final <T extends KnuthNode> T registerNode(T node) {
+        nodePool.add(node);
+        usedNodeCount++;
+        createdNodeCount++;
+        return node;
     }
 
     /**
@@ -751,14 +961,18 @@ public abstract class BreakingAlgorithm {
     protected final KnuthElement handleElementAt(int position,
                                                  boolean previousIsBox,
                                                  int allowedBreaks) {
-        KnuthElement element = getElement(position);
-        if (element.isBox()) {
+        KnuthElement element = (KnuthElement) store.getElement(position);
+        switch (store.getType(position)) {
+        case KnuthElementStore.BOX:
             handleBox((KnuthBox) element);
-        } else if (element.isGlue()) {
+            break;
+        case KnuthElementStore.GLUE:
             handleGlueAt((KnuthGlue) element, position, previousIsBox, allowedBreaks);
-        } else if (element.isPenalty()) {
+            break;
+        case KnuthElementStore.PENALTY:
             handlePenaltyAt((KnuthPenalty) element, position, allowedBreaks);
-        } else {
+            break;
+        default:
             throw new IllegalArgumentException(
                     "Unknown KnuthElement type: expecting KnuthBox, KnuthGlue or KnuthPenalty");
         }
@@ -904,8 +1118,8 @@ public abstract class BreakingAlgorithm {
         // advance in the sequence in order to avoid taking into account
         // these elements twice
         int restartingIndex = restartingNode.position;
-        while (restartingIndex + 1 < par.size()
-               && !(getElement(restartingIndex + 1).isBox())) {
+        while (restartingIndex + 1 < store.size()
+               && !store.isBox(restartingIndex + 1)) {
             restartingIndex++;
         }
         return restartingIndex;
@@ -1021,15 +1235,14 @@ public abstract class BreakingAlgorithm {
         // the values stored in the node; these would be as if the break
         // was just before the next box element, thus ignoring glues and
         // penalties between the "real" break and the following box
-        for (int i = elementIdx; i < par.size(); i++) {
-            KnuthElement tempElement = getElement(i);
-            if (tempElement.isBox()) {
+        for (int i = elementIdx; i < store.size(); i++) {
+            if (store.isBox(i)) {
                 break;
-            } else if (tempElement.isGlue()) {
-                newWidth += tempElement.getWidth();
-                newStretch += tempElement.getStretch();
-                newShrink += tempElement.getShrink();
-            } else if (tempElement.isForcedBreak() && i != elementIdx) {
+            } else if (store.isGlue(i)) {
+                newWidth += store.getWidth(i);
+                newStretch += store.getStretch(i);
+                newShrink += store.getShrink(i);
+            } else if (store.isForcedBreak(i) && i != elementIdx) {
                 break;
             }
         }
@@ -1140,15 +1353,14 @@ public abstract class BreakingAlgorithm {
         // the values stored in the node; these would be as if the break
         // was just before the next box element, thus ignoring glues and
         // penalties between the "real" break and the following box
-        for (int i = elementIdx; i < par.size(); i++) {
-            KnuthElement tempElement = getElement(i);
-            if (tempElement.isBox()) {
+        for (int i = elementIdx; i < store.size(); i++) {
+            if (store.isBox(i)) {
                 break;
-            } else if (tempElement.isGlue()) {
-                newWidth += tempElement.getWidth();
-                newStretch += tempElement.getStretch();
-                newShrink += tempElement.getShrink();
-            } else if (tempElement.isForcedBreak() && i != elementIdx) {
+            } else if (store.isGlue(i)) {
+                newWidth += store.getWidth(i);
+                newStretch += store.getStretch(i);
+                newShrink += store.getShrink(i);
+            } else if (store.isForcedBreak(i) && i != elementIdx) {
                 break;
             }
         }
@@ -1258,8 +1470,7 @@ public abstract class BreakingAlgorithm {
         }
 
         if (element.isPenalty() && ((KnuthPenalty) element).isPenaltyFlagged()
-            && getElement(activeNode.position).isPenalty()
-            && ((KnuthPenalty) getElement(activeNode.position)).isPenaltyFlagged()) {
+            && store.isFlaggedPenalty(activeNode.position)) {
             // add demerit for consecutive breaks at flagged penalties
             demerits += repeatedFlaggedDemerit;
             // there are at least two consecutive lines ending with a flagged penalty;
@@ -1269,9 +1480,7 @@ public abstract class BreakingAlgorithm {
             for (KnuthNode prevNode = activeNode.previous;
                  prevNode != null && flaggedPenaltiesCount <= maxFlaggedPenaltiesCount;
                  prevNode = prevNode.previous) {
-                KnuthElement prevElement = getElement(prevNode.position);
-                if (prevElement.isPenalty()
-                    && ((KnuthPenalty) prevElement).isPenaltyFlagged()) {
+                if (store.isFlaggedPenalty(prevNode.position)) {
                     // the previous line ends with a flagged penalty too
                     flaggedPenaltiesCount++;
                 } else {
@@ -1346,6 +1555,7 @@ public abstract class BreakingAlgorithm {
             KnuthNode[] oldList = activeLines;
             activeLines = new KnuthNode[headIdx + headIdx];
             System.arraycopy(oldList, 0, activeLines, 0, oldList.length);
+            activeLinesBuffer = activeLines;
         }
         node.next = null;
         if (activeLines[headIdx + 1] != null) {
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.List;
+
+/**
+ * Compact copy of a Knuth sequence for the breaking algorithms. The type, width, stretch,
+ * shrink, penalty value and flags of the elements are held in parallel arrays, so that the
+ * loops of the algorithms that scan the sequence or look at the elements of the active
+ * nodes read a few primitive arrays instead of following a reference to every element.
+ * The elements themselves, and thereby their {@link Position}s, are kept in a side table
+ * for the handlers and for the creation of the areas.
+ * <p>
+ * A store is meant to be reused for the sequences broken by an algorithm: loading a
+ * sequence keeps the capacity of the arrays. The store is a snapshot: it must be updated
+ * by the algorithm if the sequence is modified while it is being broken.
+ * <p>
+ * A sequence may also be loaded lazily, for runs of an algorithm that may stop long before
+ * the end of the sequence: the elements are then copied as the algorithm reaches them, and
+ * the arrays only hold the elements from the start of the run on, so that their size depends
+ * on the part of the sequence that is read rather than on its length.
+ */
+final class KnuthElementStore {
+
+    /** Type of an element that is not a box, glue or penalty */
+    static final byte OTHER = 0;
+
+    /** Type of a box */
+    static final byte BOX = 1;
+
+    /** Type of a glue */
+    static final byte GLUE = 2;
+
+    /** Type of a penalty */
+    static final byte PENALTY = 3;
+
+    private static final byte FLAGGED = 1;
+
+    private static final byte FORCED_BREAK = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The number of elements copied at once from a sequence loaded lazily */
+    private static final int LOAD_CHUNK_SIZE = 256;
+
+    private int size;
+
+    /** The index in the sequence of the first element of the arrays */
+    private int offset;
+
+    /** The sequence loaded lazily, null once all its elements are copied */
+    private List<?> sequence;
+
+    /** The index of the first element copied */
+    private int firstLoaded;
+
+    /** The index after the last element copied */
+    private int loaded;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+
+    private int[] widths = new int[INITIAL_CAPACITY];
+
+    private int[] stretches = new int[INITIAL_CAPACITY];
+
+    private int[] shrinks = new int[INITIAL_CAPACITY];
+
+    private int[] penalties = new int[INITIAL_CAPACITY];
+
+    private ListElement[] elements = new ListElement[INITIAL_CAPACITY];
+
+    /**
+     * Replaces the content of the store with the given sequence.
+     * @param sequence the elements
+     */
+    void load(List<?> sequence) {
+        clear();
+        int count = sequence.size();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            set(i, (ListElement) sequence.get(i));
+        }
+        size = count;
+        loaded = count;
+    }
+
+    /**
+     * Replaces the content of the store with the given sequence, of which only the elements
+     * from the given index on are used. The elements are copied as they are needed: see
+     * {@link #ensureLoaded(int)}.
+     * @param sequence the elements
+     * @param from the index of the first element used, the element before it may be read
+     * too
+     */
+    void loadLazily(List<?> sequence, int from) {
+        clear();
+        this.sequence = sequence;
+        size = sequence.size();
+        firstLoaded = Math.max(from - 1, 0);
+        offset = firstLoaded;
+        loaded = firstLoaded;
+        ensureLoaded(from);
+    }
+
+    /**
+     * Makes sure the elements up to the given index are copied, together with the elements
+     * up to the first box after it. The scans forward from an element already reached, which
+     * stop at the next box, therefore only read copied elements.
+     * @param index the index of the element reached
+     */
+    void ensureLoaded(int index) {
+        if (index < loaded || sequence == null) {
+            return;
+        }
+        int end = Math.min(Math.max(index + 1, loaded + LOAD_CHUNK_SIZE), size);
+        ensureCapacity(end - offset);
+        while (loaded < end || (loaded < size && types[loaded - 1 - offset] != BOX)) {
+            ensureCapacity(loaded + 1 - offset);
+            set(loaded, (ListElement) sequence.get(loaded));
+            loaded++;
+        }
+        if (loaded == size) {
+            sequence = null;
+        }
+    }
+
+    /**
+     * Inserts an element into the store, as it was inserted into the sequence. An element
+     * inserted out of the elements copied from a sequence loaded lazily is read from the
+     * sequence if it is reached, or only shifts the indexes of the elements copied if it is
+     * inserted before them.
+     * @param index the index of the element
+     * @param element the element
+     */
+    void insert(int index, ListElement element) {
+        size++;
+        if (index > loaded || (index == loaded && sequence != null)) {
+            return;
+        } else if (index < offset) {
+            offset++;
+            firstLoaded++;
+            loaded++;
+            return;
+        }
+        ensureCapacity(loaded + 1 - offset);
+        int i = index - offset;
+        int moved = loaded - index;
+        System.arraycopy(types, i, types, i + 1, moved);
+        System.arraycopy(flags, i, flags, i + 1, moved);
+        System.arraycopy(widths, i, widths, i + 1, moved);
+        System.arraycopy(stretches, i, stretches, i + 1, moved);
+        System.arraycopy(shrinks, i, shrinks, i + 1, moved);
+        System.arraycopy(penalties, i, penalties, i + 1, moved);
+        System.arraycopy(elements, i, elements, i + 1, moved);
+        set(index, element);
+        loaded++;
+        firstLoaded = Math.min(firstLoaded, index);
+    }
+
+    /**
+     * Empties the store. The references to the elements are dropped, the capacity is kept.
+     */
+    void clear() {
+        for (int i = firstLoaded; i < loaded; i++) {
+            elements[i - offset] = null;
+        }
+        size = 0;
+        sequence = null;
+        offset = 0;
+        firstLoaded = 0;
+        loaded = 0;
+    }
+
+    private void set(int index, ListElement element) {
+        int i = index - offset;
+        elements[i] = element;
+        byte type = OTHER;
+        byte flag = 0;
+        int width = 0;
+        int stretch = 0;
+        int shrink = 0;
+        int penalty = 0;
+        if (element instanceof KnuthElement) {
+            KnuthElement knuthElement = (KnuthElement) element;
+            width = knuthElement.getWidth();
+            if (knuthElement.isBox()) {
+                type = BOX;
+            } else if (knuthElement.isGlue()) {
+                type = GLUE;
+                stretch = knuthElement.getStretch();
+                shrink = knuthElement.getShrink();
+            } else if (knuthElement.isPenalty()) {
+                type = PENALTY;
+                penalty = knuthElement.getPenalty();
+                if (((KnuthPenalty) knuthElement).isPenaltyFlagged()) {
+                    flag |= FLAGGED;
+                }
+            }
+        }
+        if (element.isForcedBreak()) {
+            flag |= FORCED_BREAK;
+        }
+        types[i] = type;
+        flags[i] = flag;
+        widths[i] = width;
+        stretches[i] = stretch;
+        shrinks[i] = shrink;
+        penalties[i] = penalty;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > types.length) {
+            int newCapacity = Math.max(capacity, types.length * 2);
+            byte[] newTypes = new byte[newCapacity];
+            int length = loaded - offset;
+            System.arraycopy(types, 0, newTypes, 0, length);
+            types = newTypes;
+            byte[] newFlags = new byte[newCapacity];
+            System.arraycopy(flags, 0, newFlags, 0, length);
+            flags = newFlags;
+            widths = grow(widths, newCapacity, length);
+            stretches = grow(stretches, newCapacity, length);
+            shrinks = grow(shrinks, newCapacity, length);
+            penalties = grow(penalties, newCapacity, length);
+            ListElement[] newElements = new ListElement[newCapacity];
+            System.arraycopy(elements, 0, newElements, 0, length);
+            elements = newElements;
+        }
+    }
+
+    private static int[] grow(int[] array, int newCapacity, int length) {
+        int[] newArray = new int[newCapacity];
+        System.arraycopy(array, 0, newArray, 0, length);
+        return newArray;
+    }
+
+    /** @return the number of elements */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param i the index of an element
+     * @return the type of the element: {@link #BOX}, {@link #GLUE}, {@link #PENALTY} or
+     * {@link #OTHER}
+     */
+    byte getType(int i) {
+        return types[i - offset];
+    }
+
+    /**
+     * @param i the index of an element
+     * @return true if the element is a box
+     */
+    boolean isBox(int i) {
+        return types[i - offset] == BOX;
+    }
+
+    /**
+     * @param i the index of an element
+     * @return true if the element is a glue
+     */
+    boolean isGlue(int i) {
+        return types[i - offset] == GLUE;
+    }
+
+    /**
+     * @param i the index of an element
+     * @return true if the element is a penalty
+     */
+    boolean isPenalty(int i) {
+        return types[i - offset] == PENALTY;
+    }
+
+    /**
+     * @param i the index of an element
+     * @return true if the element is a flagged penalty
+     */
+    boolean isFlaggedPenalty(int i) {
+        return (flags[i - offset] & FLAGGED) != 0;
+    }
+
+    /**
+     * @param i the index of an element
+     * @return true if the element is a forced break
+     */
+    boolean isForcedBreak(int i) {
+        return (flags[i - offset] & FORCED_BREAK) != 0;
+    }
+
+    /**
+     * @param i the index of an element
+     * @return the width of the element
+     */
+    int getWidth(int i) {
+        return widths[i - offset];
+    }
+
+    /**
+     * @param i the index of an element
+     * @return the stretch of the element, 0 if it is not a glue
+     */
+    int getStretch(int i) {
+        return stretches[i - offset];
+    }
+
+    /**
+     * @param i the index of an element
+     * @return the shrink of the element, 0 if it is not a glue
+     */
+    int getShrink(int i) {
+        return shrinks[i - offset];
+    }
+
+    /**
+     * @param i the index of an element
+     * @return the penalty value of the element, 0 if it is not a penalty
+     */
+    int getPenalty(int i) {
+        return penalties[i - offset];
+    }
+
+    /**
+     * @param i the index of an element
+     * @return the element
+     */
+    ListElement getElement(int i) {
+        return elements[i - offset];
+    }
+
+    /**
+     * Returns the index of the first box at or after the given index.
+     * @param startIndex the index to start from
+     * @return the index of the box, or the size of the store if there is none
+     */
+    int getFirstBoxIndex(int startIndex) {
+        int i = startIndex;
+        while (i < size && types[i - offset] != BOX) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class is used to observe metrics of the breaking algorithms, like the number of break
+ * nodes they allocate. This is mainly used for the purpose of testing and profiling. When no
+ * observer is registered, nothing is collected.
+ */
+public final class LayoutMetricsObserver {
+
+    private LayoutMetricsObserver() {
+    }
+
+    private static final List<Observer> ACTIVE_OBSERVERS = new CopyOnWriteArrayList<Observer>();
+
+    /**
+     * Adds a new Observer to the list.
+     * @param observer the observer implementation
+     */
+    public static void addObserver(Observer observer) {
+        ACTIVE_OBSERVERS.add(observer);
+    }
+
+    /**
+     * Removes an Observer from the list. This call simply returns if the observer was not on
+     * the list and does nothing.
+     * @param observer the observer to remove
+     */
+    public static void removeObserver(Observer observer) {
+        ACTIVE_OBSERVERS.remove(observer);
+    }
+
+    /**
+     * Notifies all registered observers about a run of a breaking algorithm.
+     * @param algorithm the breaking algorithm
+     * @param elementCount the number of elements of the broken sequence
+     * @param createdNodeCount the number of nodes allocated by the run
+     * @param recycledNodeCount the number of nodes of previous runs reused by the run
+     */
+    public static void observeBreaking(BreakingAlgorithm algorithm, int elementCount,
+            int createdNodeCount, int recycledNodeCount) {
+        for (Observer observer : ACTIVE_OBSERVERS) {
+            observer.observeBreaking(algorithm, elementCount, createdNodeCount, recycledNodeCount);
+        }
+    }
+
+    /** @return true if observation is active, i.e. Observers are registered. */
+    public static boolean isObservationActive() {
+        return !ACTIVE_OBSERVERS.isEmpty();
+    }
+
+    /**
+     * Implement this interface to receive notifications on layout metrics.
+     */
+    public interface Observer {
+
+        /**
+         * Notifies the observer about a run of a breaking algorithm.
+         * @param algorithm the breaking algorithm
+         * @param elementCount the number of elements of the broken sequence
+         * @param createdNodeCount the number of nodes allocated by the run
+         * @param recycledNodeCount the number of nodes of previous runs reused by the run
+         */
+        void observeBreaking(BreakingAlgorithm algorithm, int elementCount,
+                int createdNodeCount, int recycledNodeCount);
+
+    }
+
+}
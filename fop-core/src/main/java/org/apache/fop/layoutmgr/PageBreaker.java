@@ -105,6 +105,12 @@ public class PageBreaker extends AbstractBreaker {
         return pslm.getPageProvider();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected int getMaxLookahead() {
+        return pslm.getPageSequence().getUserAgent().getPageBreakingLookahead();
+    }
+
     /**
      * Starts the page breaking process.
      * @param flowBPD the constant available block-progression-dimension (used for every part)
@@ -342,7 +348,7 @@ public class PageBreaker extends AbstractBreaker {
     protected void prepareToRedoLayout(PageBreakingAlgorithm alg, int partCount,
             BlockSequence originalList,
             BlockSequence effectiveList) {
-        int newStartPos = 0;
+        int newStartPos = effectiveList.ignoreAtStart;
         int restartPoint = pageProvider.getStartingPartIndexForLastPage(partCount);
         if (restartPoint > 0 && !layoutRedone) {
             // Add definitive areas for the parts before the
@@ -387,7 +393,7 @@ public class PageBreaker extends AbstractBreaker {
     private void redoLayout(PageBreakingAlgorithm alg, int partCount,
             BlockSequence originalList, BlockSequence effectiveList) {
 
-        int newStartPos = 0;
+        int newStartPos = effectiveList.ignoreAtStart;
         int restartPoint = pageProvider.getStartingPartIndexForLastPage(partCount);
         if (restartPoint > 0) {
             //Add definitive areas for the parts before the
@@ -488,6 +494,19 @@ public class PageBreaker extends AbstractBreaker {
         addAreas(algRestart, optimalPageCount, originalList, effectiveList);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void prepareToContinueLayout(PageBreakingAlgorithm alg, int partCount,
+            BlockSequence blockList) {
+        super.prepareToContinueLayout(alg, partCount, blockList);
+        //Handle page break right here, as the algorithm only committed breaks ending a page
+        handleBreakTrait(Constants.EN_COLUMN);
+        pageBreakHandled = true;
+        //Update so the available BPD is reported correctly
+        pageProvider.setStartOfNextElementList(pslm.getCurrentPageNum(),
+                pslm.getCurrentPV().getCurrentSpan().getCurrentFlowIndex(), this.spanAllActive);
+    }
+
     private void setLastPageIndex(int currentPageNum) {
         int lastPageIndex = pslm.getForcedLastPageNum(currentPageNum);
         pageProvider.setLastPageIndex(lastPageIndex);
@@ -190,6 +190,29 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             this.footnoteElementIndex = footnoteElementIndex;
         }
 
+        /**
+         * Reinitializes a node of a previous run of the algorithm.
+         * @see BreakingAlgorithm.KnuthNode#reset
+         */
+        void reset(int position,
+                   int line, int fitness,
+                   int totalWidth, int totalStretch, int totalShrink,
+                   int insertedFootnotes, int totalFootnotes,
+                   int footnoteListIndex, int footnoteElementIndex,
+                   double adjustRatio, int availableShrink, int availableStretch,
+                   int difference, double totalDemerits, KnuthNode previous) {
+            reset(position, line, fitness,
+                  totalWidth, totalStretch, totalShrink,
+                  adjustRatio, availableShrink, availableStretch,
+                  difference, totalDemerits, previous);
+            this.totalFootnotes = totalFootnotes;
+            this.insertedFootnotes = insertedFootnotes;
+            this.footnoteListIndex = footnoteListIndex;
+            this.footnoteElementIndex = footnoteElementIndex;
+            pendingVariants.clear();
+            totalVariantsWidth = 0;
+        }
+
         public void addVariant(Variant variant) {
             pendingVariants.add(variant);
             totalVariantsWidth += variant.width;
@@ -337,27 +360,53 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
                                    int totalWidth, int totalStretch, int totalShrink,
                                    double adjustRatio, int availableShrink, int availableStretch,
                                    int difference, double totalDemerits, KnuthNode previous) {
-        return new KnuthPageNode(position, line, fitness,
-                                 totalWidth, totalStretch, totalShrink,
-                                 insertedFootnotesLength, totalFootnotesLength,
-                                 footnoteListIndex, footnoteElementIndex,
-                                 adjustRatio, availableShrink, availableStretch,
-                                 difference, totalDemerits, previous);
+        return createPageNode(position, line, fitness,
+                              totalWidth, totalStretch, totalShrink,
+                              insertedFootnotesLength, totalFootnotesLength,
+                              footnoteListIndex, footnoteElementIndex,
+                              adjustRatio, availableShrink, availableStretch,
+                              difference, totalDemerits, previous);
     }
 
     /** {@inheritDoc} */
     @Override
     protected KnuthNode createNode(int position, int line, int fitness,
                                    int totalWidth, int totalStretch, int totalShrink) {
-        return new KnuthPageNode(position, line, fitness,
-                                 totalWidth, totalStretch, totalShrink,
-                                 ((BestPageRecords) best).getInsertedFootnotesLength(fitness),
-                                 ((BestPageRecords) best).getTotalFootnotesLength(fitness),
-                                 ((BestPageRecords) best).getFootnoteListIndex(fitness),
-                                 ((BestPageRecords) best).getFootnoteElementIndex(fitness),
-                                 best.getAdjust(fitness), best.getAvailableShrink(fitness),
-                                 best.getAvailableStretch(fitness), best.getDifference(fitness),
-                                 best.getDemerits(fitness), best.getNode(fitness));
+        return createPageNode(position, line, fitness,
+                              totalWidth, totalStretch, totalShrink,
+                              ((BestPageRecords) best).getInsertedFootnotesLength(fitness),
+                              ((BestPageRecords) best).getTotalFootnotesLength(fitness),
+                              ((BestPageRecords) best).getFootnoteListIndex(fitness),
+                              ((BestPageRecords) best).getFootnoteElementIndex(fitness),
+                              best.getAdjust(fitness), best.getAvailableShrink(fitness),
+                              best.getAvailableStretch(fitness), best.getDifference(fitness),
+                              best.getDemerits(fitness), best.getNode(fitness));
+    }
+
+    private KnuthPageNode createPageNode(int position,
+                                         int line, int fitness,
+                                         int totalWidth, int totalStretch, int totalShrink,
+                                         int insertedFootnotes, int totalFootnotes,
+                                         int footnoteListIndex, int footnoteElementIndex,
+                                         double adjustRatio, int availableShrink,
+                                         int availableStretch, int difference,
+                                         double totalDemerits, KnuthNode previous) {
+        KnuthPageNode node = (KnuthPageNode) recycleNode();
+        if (node == null) {
+            return registerNode(new KnuthPageNode(position, line, fitness,
+                    totalWidth, totalStretch, totalShrink,
+                    insertedFootnotes, totalFootnotes,
+                    footnoteListIndex, footnoteElementIndex,
+                    adjustRatio, availableShrink, availableStretch,
+                    difference, totalDemerits, previous));
+        }
+        node.reset(position, line, fitness,
+                   totalWidth, totalStretch, totalShrink,
+                   insertedFootnotes, totalFootnotes,
+                   footnoteListIndex, footnoteElementIndex,
+                   adjustRatio, availableShrink, availableStretch,
+                   difference, totalDemerits, previous);
+        return node;
     }
 
     /**
@@ -676,7 +725,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             int index;
             // ignore suppressed elements
             for (index = prevBreakIndex + 1;
-                    !par.getElement(index).isBox();
+                    !store.isBox(index);
                     index++) {
                 //nop
             }
@@ -684,10 +733,9 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             for (;
                  index < breakIndex;
                  index++) {
-                if (par.getElement(index).isGlue() && par.getElement(index - 1).isBox()
-                    || par.getElement(index).isPenalty()
-                       && ((KnuthElement) par
-                           .getElement(index)).getPenalty() < KnuthElement.INFINITE) {
+                if (store.isGlue(index) && store.isBox(index - 1)
+                    || store.isPenalty(index)
+                       && store.getPenalty(index) < KnuthElement.INFINITE) {
                     // break found
                     break;
                 }
@@ -907,8 +955,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         }
 
         if (element.isPenalty() && ((KnuthPenalty) element).isPenaltyFlagged()
-            && getElement(activeNode.position).isPenalty()
-            && ((KnuthPenalty) getElement(activeNode.position)).isPenaltyFlagged()) {
+            && store.isFlaggedPenalty(activeNode.position)) {
             // add demerit for consecutive breaks at flagged penalties
             demerits += repeatedFlaggedDemerit;
         }
@@ -1286,6 +1333,20 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         return (handlingStartOfFloat || handlingEndOfFloat);
     }
 
+    /**
+     * {@inheritDoc}
+     * Only the breaks that end a page and after which no footnote is deferred may be
+     * committed, since the next run of the algorithm starts on a new page and only knows
+     * about the footnotes cited after the break.
+     */
+    @Override
+    protected boolean isCommittable(KnuthNode node) {
+        KnuthPageNode pageNode = (KnuthPageNode) node;
+        return pageProvider != null && pageProvider.endPage(node.line - 1)
+                && pageNode.insertedFootnotes >= pageNode.totalFootnotes
+                && floatPosition == null;
+    }
+
     protected void createForcedNodes(KnuthNode node, int line, int elementIdx, int difference, double r,
             double demerits, int fitnessClass, int availableShrink, int availableStretch, int newWidth,
             int newStretch, int newShrink) {
@@ -41,6 +41,9 @@ public abstract class AbstractPDFStream extends PDFObject {
 
     private PDFNumber refLength = new PDFNumber();
 
+    /** The stream data if it has been encoded ahead of output */
+    private StreamCache preEncodedStream;
+
     protected AbstractPDFStream() {
         this(true);
     }
@@ -166,14 +169,22 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     protected StreamCache encodeStream() throws IOException {
         //Allocate a temporary buffer to find out the size of the encoded stream
-        final StreamCache encodedStream = StreamCacheFactory.getInstance()
-                .createStreamCache(getSizeHint());
+        final StreamCache encodedStream = getStreamCacheFactory().createStreamCache(getSizeHint());
+        encodeStream(encodedStream);
+        return encodedStream;
+    }
+
+    /**
+     * Encodes the raw data stream into the given stream cache.
+     * @param encodedStream the stream cache receiving the encoded data
+     * @throws IOException in case of an I/O problem
+     */
+    void encodeStream(StreamCache encodedStream) throws IOException {
         OutputStream filteredOutput
                 = getFilterList().applyFilters(encodedStream.getOutputStream());
         outputRawStreamData(filteredOutput);
         filteredOutput.flush();
         filteredOutput.close();
-        return encodedStream;
     }
 
     /**
@@ -217,14 +228,24 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     @Override
     public int output(OutputStream stream) throws IOException {
-        setupFilterList();
+        StreamCache encodedStream = preEncodedStream;
+        preEncodedStream = null;
+        if (encodedStream == null) {
+            setupFilterList();
+        }
 
         CountingOutputStream cout = new CountingOutputStream(stream);
         StringBuilder textBuffer = new StringBuilder(64);
 
-        StreamCache encodedStream = null;
         final Object lengthEntry;
-        if (encodeOnTheFly) {
+        if (encodedStream != null) {
+            if (encodeOnTheFly) {
+                refLength.setNumber(encodedStream.getSize());
+                lengthEntry = refLength;
+            } else {
+                lengthEntry = encodedStream.getSize();
+            }
+        } else if (encodeOnTheFly) {
             if (!refLength.hasObjectNumber()) {
                 registerChildren();
             }
@@ -250,6 +271,55 @@ public abstract class AbstractPDFStream extends PDFObject {
         return cout.getCount();
     }
 
+    /**
+     * Indicates whether the encoded data of this stream only depends on the raw data held
+     * by the stream, so that it can be encoded on another thread ahead of output. Streams
+     * that generate their data from other objects must return false.
+     * @return true if the stream may be encoded on another thread
+     */
+    protected boolean isParallelEncodingSupported() {
+        return false;
+    }
+
+    /**
+     * Sets up the filters of this stream so that {@link #encodeStream()} can then be called
+     * from another thread, if this stream supports it.
+     * @return true if the stream can be encoded on another thread
+     */
+    boolean prepareParallelEncoding() {
+        if (!isParallelEncodingSupported() || (encodeOnTheFly && !refLength.hasObjectNumber())) {
+            return false;
+        }
+        setupFilterList();
+        return true;
+    }
+
+    /**
+     * Returns the indirect object holding the length of this stream, if any.
+     * @return the length object, null if the length is written directly
+     */
+    PDFNumber getLengthReference() {
+        return encodeOnTheFly ? refLength : null;
+    }
+
+    /**
+     * Sets the data of this stream encoded by {@link #encodeStream()}, to be used by the
+     * next call to {@link #output(OutputStream)}.
+     * @param encodedStream the encoded data
+     */
+    void setEncodedStream(StreamCache encodedStream) {
+        this.preEncodedStream = encodedStream;
+    }
+
+    /**
+     * Returns the factory to create the stream caches of this stream with.
+     * @return the stream cache factory of the document, or the default one
+     */
+    protected StreamCacheFactory getStreamCacheFactory() {
+        PDFDocument doc = getDocument();
+        return doc != null ? doc.getStreamCacheFactory() : StreamCacheFactory.getInstance();
+    }
+
     @Override
     public void setDocument(PDFDocument doc) {
         dictionary.setDocument(doc);
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.fop.pdf.xref.CompressedObjectReference;
+
+/**
+ * Packs the non-stream indirect objects of a document into object streams, for the compact
+ * output mode. Objects are serialized as soon as they are added, and an object stream is
+ * written out as soon as it is full, so that neither the objects nor the streams need to be
+ * kept until the end of the document.
+ * <p>
+ * The capacity of an object stream adapts to the objects it holds: a stream is closed once
+ * the content of its objects reaches {@link #TARGET_STREAM_SIZE} bytes, or once it holds
+ * {@link #MAX_OBJECTS_PER_STREAM} objects. Streams of small objects like annotations or
+ * destinations therefore hold many objects, and streams of big dictionaries few.
+ */
+class CompactObjectWriter {
+
+    /** The uncompressed size of the objects after which an object stream is closed */
+    static final int TARGET_STREAM_SIZE = 64 * 1024;
+
+    /** The maximum number of objects in an object stream */
+    static final int MAX_OBJECTS_PER_STREAM = 1000;
+
+    /** The size of an entry in a cross-reference table */
+    private static final int XREF_ENTRY_SIZE = 20;
+
+    private final PDFDocument document;
+
+    private final List<CompressedObjectReference> compressedObjectReferences
+            = new ArrayList<CompressedObjectReference>();
+
+    private ObjectStream currentStream;
+
+    private int currentStreamSize;
+
+    private long currentUncompressedSize;
+
+    private int objectCount;
+
+    private int streamCount;
+
+    private long uncompressedSize;
+
+    private long compressedSize;
+
+    CompactObjectWriter(PDFDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Indicates whether the given object may be put into an object stream.
+     * @param object an indirect object
+     * @return true if the object is not a stream and has a generation number of 0
+     */
+    static boolean accepts(PDFObject object) {
+        return !(object instanceof AbstractPDFStream) && object.getGeneration() == 0;
+    }
+
+    /**
+     * Serializes an object into the current object stream. The object stream is written to
+     * the given output stream if this makes it full.
+     * @param object the object, must be {@link #accepts(PDFObject) accepted} by this writer
+     * @param out the stream the document is written to
+     * @throws IOException if an I/O error occurs
+     */
+    void add(PDFObject object, OutputStream out) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        int length = object.output(bout);
+        if (currentStream == null) {
+            currentStream = new ObjectStream();
+            document.assignObjectNumber(currentStream);
+        }
+        compressedObjectReferences.add(currentStream.addObject(
+                new SerializedObject(object.getObjectNumber(), bout.toByteArray())));
+        objectCount++;
+        currentUncompressedSize += object.getObjectID().length() + length + "\nendobj\n".length()
+                + XREF_ENTRY_SIZE;
+        currentStreamSize += length;
+        if (currentStreamSize >= TARGET_STREAM_SIZE
+                || currentStream.getObjectCount() >= MAX_OBJECTS_PER_STREAM) {
+            flush(out);
+        }
+    }
+
+    /**
+     * Writes the current object stream, if it holds any object.
+     * @param out the stream the document is written to
+     * @throws IOException if an I/O error occurs
+     */
+    void flush(OutputStream out) throws IOException {
+        if (currentStream != null) {
+            compressedSize += document.streamIndirectObject(currentStream, out) + XREF_ENTRY_SIZE;
+            uncompressedSize += currentUncompressedSize;
+            currentUncompressedSize = 0;
+            streamCount++;
+            currentStream = null;
+            currentStreamSize = 0;
+        }
+    }
+
+    /**
+     * Returns the references to the objects written by this writer, for the cross-reference
+     * stream.
+     * @return the references
+     */
+    List<CompressedObjectReference> getCompressedObjectReferences() {
+        return compressedObjectReferences;
+    }
+
+    /**
+     * Returns the number of objects put into object streams.
+     * @return the number of objects
+     */
+    int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Returns the number of object streams written.
+     * @return the number of object streams
+     */
+    int getStreamCount() {
+        return streamCount;
+    }
+
+    /**
+     * Returns the number of bytes saved by the object streams written so far: the size the
+     * objects and their cross-reference entries would have taken as plain indirect objects,
+     * minus the size of the object streams and their own entries. The difference between a
+     * cross-reference stream and a cross-reference table is not accounted for.
+     * @return the number of bytes saved
+     */
+    long getBytesSaved() {
+        return uncompressedSize - compressedSize;
+    }
+
+    /** An object, already serialized, to be put into an object stream. */
+    private static final class SerializedObject implements CompressedObject {
+
+        private final PDFObjectNumber objectNumber;
+
+        private final byte[] content;
+
+        SerializedObject(PDFObjectNumber objectNumber, byte[] content) {
+            this.objectNumber = objectNumber;
+            this.content = content;
+        }
+
+        public PDFObjectNumber getObjectNumber() {
+            return objectNumber;
+        }
+
+        public int output(OutputStream outputStream) throws IOException {
+            outputStream.write(content);
+            return content.length;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+/**
+ * Cache of encoded image XObject streams, shared by the documents produced with a same
+ * FopFactory. Once an image has been encoded for a document, later documents can write the
+ * encoded data as is instead of decoding and compressing the image again.
+ * <p>
+ * The cache holds the encoded data of the streams only, their dictionaries are still built
+ * for every document. Entries are keyed by the image key, usually its URI, together with the
+ * properties of the image and the filters that determine the encoded data, so an image
+ * processed differently by another document is not mixed up. The least recently used
+ * entries are evicted once the cache exceeds its size.
+ * <p>
+ * This class is thread-safe.
+ */
+public class EncodedImageCache extends SizeBoundedCache<byte[]> {
+
+    /** The default maximum size of the cache (32MB) */
+    public static final long DEFAULT_MAXIMUM_SIZE = 32L * 1024 * 1024;
+
+    /**
+     * Creates a new cache with the default maximum size.
+     */
+    public EncodedImageCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of bytes of encoded data to hold
+     */
+    public EncodedImageCache(long maximumSize) {
+        super(maximumSize);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected long sizeOf(byte[] data) {
+        return data.length;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.fop.fonts.EmbeddingMode;
+
+/**
+ * Cache of encoded font subset streams, shared by the documents produced with a same
+ * FopFactory. Documents that use the same glyphs of a font, like documents produced from a
+ * same template, can then embed the subset without reading the font file, subsetting it and
+ * compressing the subset again.
+ * <p>
+ * Entries are keyed by the URI of the font file, the name of the font in a collection, the
+ * embedding mode and a digest of the glyphs of the subset together with their index in the
+ * subset. The least recently used entries are evicted once the cache exceeds its size.
+ * <p>
+ * This class is thread-safe.
+ */
+public class FontSubsetCache extends SizeBoundedCache<FontSubsetCache.FontSubset> {
+
+    /** The default maximum size of the cache (16MB) */
+    public static final long DEFAULT_MAXIMUM_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Creates a new cache with the default maximum size.
+     */
+    public FontSubsetCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of bytes of encoded data to hold
+     */
+    public FontSubsetCache(long maximumSize) {
+        super(maximumSize);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected long sizeOf(FontSubset subset) {
+        return subset.encodedData.length;
+    }
+
+    /**
+     * Creates the cache key of a font subset.
+     * @param fontURI the URI of the font file
+     * @param fontName the name of the font in a font collection, may be null
+     * @param embeddingMode the embedding mode of the font
+     * @param glyphs the glyphs of the subset, mapped to their index in the subset
+     * @return the cache key
+     */
+    public static String createKey(URI fontURI, String fontName, EmbeddingMode embeddingMode,
+            Map<Integer, Integer> glyphs) {
+        StringBuilder key = new StringBuilder(fontURI.toString());
+        key.append('\n').append(fontName).append('\n').append(embeddingMode.getName())
+                .append('\n').append(glyphs.size()).append(' ');
+        byte[] digest = digestGlyphs(glyphs);
+        for (byte b : digest) {
+            key.append(Character.forDigit((b >> 4) & 0x0F, 16))
+                    .append(Character.forDigit(b & 0x0F, 16));
+        }
+        return key.toString();
+    }
+
+    private static byte[] digestGlyphs(Map<Integer, Integer> glyphs) {
+        int[] glyphIndices = new int[glyphs.size()];
+        int i = 0;
+        for (Integer glyphIndex : glyphs.keySet()) {
+            glyphIndices[i++] = glyphIndex;
+        }
+        Arrays.sort(glyphIndices);
+        byte[] buffer = new byte[glyphIndices.length * 8];
+        int pos = 0;
+        for (int glyphIndex : glyphIndices) {
+            pos = putInt(buffer, pos, glyphIndex);
+            pos = putInt(buffer, pos, glyphs.get(glyphIndex));
+        }
+        try {
+            return MessageDigest.getInstance("MD5").digest(buffer);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static int putInt(byte[] buffer, int pos, int value) {
+        buffer[pos++] = (byte) (value >>> 24);
+        buffer[pos++] = (byte) (value >>> 16);
+        buffer[pos++] = (byte) (value >>> 8);
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    /** An encoded font subset. */
+    public static final class FontSubset {
+
+        private final int length;
+
+        private final String filters;
+
+        private final byte[] encodedData;
+
+        /**
+         * Creates a new font subset.
+         * @param length the length of the subset before it is encoded
+         * @param filters the filter entries of the stream dictionary, as built by
+         * {@link PDFFilterList#buildFilterDictEntries()}
+         * @param encodedData the encoded data, must not be modified once in the cache
+         */
+        public FontSubset(int length, String filters, byte[] encodedData) {
+            this.length = length;
+            this.filters = filters;
+            this.encodedData = encodedData;
+        }
+
+        /**
+         * Returns the length of the subset before it was encoded.
+         * @return the length of the subset
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the filter entries of the stream dictionary the data was encoded with.
+         * @return the filter entries
+         */
+        public String getFilters() {
+            return filters;
+        }
+
+        /**
+         * Returns the encoded data.
+         * @return the encoded data, must not be modified
+         */
+        public byte[] getEncodedData() {
+            return encodedData;
+        }
+    }
+}
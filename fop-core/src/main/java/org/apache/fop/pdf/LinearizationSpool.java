@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Temporary store used to linearize a document without holding it in memory. Data is
+ * appended to a scratch file as a sequence of entries, each of which is a
+ * {@link StreamCache} that can be copied back out through a small buffer. Entries are
+ * written one after the other: an entry must not be written to once a newer one has been
+ * created. The space of an entry is not reused, the scratch file is deleted when the spool
+ * is closed.
+ */
+final class LinearizationSpool {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Log LOG = LogFactory.getLog(LinearizationSpool.class);
+
+    private File scratchFile;
+
+    private RandomAccessFile scratch;
+
+    private FileChannel channel;
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private long length;
+
+    private Entry currentEntry;
+
+    /**
+     * Creates a new entry at the end of the spool.
+     * @return the entry
+     * @throws IOException if the scratch file cannot be created
+     */
+    Entry createEntry() throws IOException {
+        if (scratch == null) {
+            scratchFile = File.createTempFile("org.apache.fop.pdf.LinearizationSpool-", ".temp");
+            scratchFile.deleteOnExit();
+            scratch = new RandomAccessFile(scratchFile, "rw");
+            channel = scratch.getChannel();
+        }
+        currentEntry = new Entry(length + writeBuffer.position());
+        return currentEntry;
+    }
+
+    /**
+     * Returns the number of bytes written to the spool.
+     * @return the size of the spool
+     */
+    long getSize() {
+        return length + writeBuffer.position();
+    }
+
+    private void write(Entry entry, byte[] data, int off, int len) throws IOException {
+        if (entry != currentEntry) {
+            throw new IllegalStateException("Only the last entry of the spool may be written to");
+        }
+        while (len > 0) {
+            if (!writeBuffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int count = Math.min(len, writeBuffer.remaining());
+            writeBuffer.put(data, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            length += channel.write(writeBuffer, length);
+        }
+        writeBuffer.clear();
+    }
+
+    private void copy(long offset, long size, OutputStream out) throws IOException {
+        if (offset + size > length) {
+            flushBuffer();
+        }
+        ByteBuffer transfer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(size, 1)));
+        long position = offset;
+        long end = offset + size;
+        while (position < end) {
+            transfer.clear();
+            transfer.limit((int) Math.min(transfer.capacity(), end - position));
+            int count = channel.read(transfer, position);
+            if (count < 0) {
+                throw new IOException("Unexpected end of linearization spool");
+            }
+            out.write(transfer.array(), 0, count);
+            position += count;
+        }
+    }
+
+    /**
+     * Deletes the scratch file. The entries of the spool must no longer be used.
+     */
+    void close() {
+        if (scratch != null) {
+            try {
+                scratch.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close linearization spool: " + e.getMessage());
+            }
+            scratchFile.delete();
+            scratch = null;
+            channel = null;
+        }
+        currentEntry = null;
+    }
+
+    /** A region of the spool, holding the data of a stream or part of the document. */
+    final class Entry implements StreamCache {
+
+        private final long offset;
+
+        private long size;
+
+        private final OutputStream output = new EntryOutputStream();
+
+        private Entry(long offset) {
+            this.offset = offset;
+        }
+
+        /** {@inheritDoc} */
+        public OutputStream getOutputStream() throws IOException {
+            return output;
+        }
+
+        /** {@inheritDoc} */
+        public void write(byte[] data) throws IOException {
+            output.write(data, 0, data.length);
+        }
+
+        /** {@inheritDoc} */
+        public int outputContents(OutputStream out) throws IOException {
+            copy(offset, size, out);
+            return (int) size;
+        }
+
+        /** {@inheritDoc} */
+        public int getSize() throws IOException {
+            return (int) size;
+        }
+
+        /**
+         * Empties the entry. The space it took in the spool is not reclaimed.
+         */
+        public void clear() throws IOException {
+            size = 0;
+        }
+
+        private class EntryOutputStream extends OutputStream {
+
+            private final byte[] single = new byte[1];
+
+            @Override
+            public void write(int b) throws IOException {
+                single[0] = (byte) b;
+                write(single, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                LinearizationSpool.this.write(Entry.this, b, off, len);
+                size += len;
+            }
+        }
+    }
+}
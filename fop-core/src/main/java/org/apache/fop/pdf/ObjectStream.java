@@ -57,6 +57,10 @@ public class ObjectStream extends PDFStream {
         return reference;
     }
 
+    int getObjectCount() {
+        return objects.size();
+    }
+
     @Override
     protected void outputRawStreamData(OutputStream out) throws IOException {
         int currentOffset = 0;
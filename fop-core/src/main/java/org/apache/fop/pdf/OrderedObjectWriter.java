@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the indirect objects of a {@link PDFDocument} in object order while the data of
+ * content streams is encoded on a pool of worker threads.
+ * <p>
+ * A stream that can be encoded in parallel is handed to the pool as soon as it is queued.
+ * Objects that follow a stream whose encoding has not finished are serialized right away
+ * and kept until they can be written, so that they are output in the state they had when
+ * they were queued, as with sequential output. Object offsets are recorded when the
+ * objects are actually written, so the cross-reference data stays correct.
+ */
+class OrderedObjectWriter {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final PDFDocument document;
+
+    private final ExecutorService executor;
+
+    private final int maxPendingStreams;
+
+    private final LinkedList<Entry> queue = new LinkedList<Entry>();
+
+    /** The length objects of the queued streams, which can only be written after them */
+    private final Map<PDFObject, Boolean> pendingLengths = new IdentityHashMap<PDFObject, Boolean>();
+
+    private int pendingStreams;
+
+    /**
+     * Creates a new writer.
+     * @param document the document whose objects are written
+     * @param threads the number of threads to encode streams with
+     */
+    OrderedObjectWriter(PDFDocument document, int threads) {
+        this.document = document;
+        this.maxPendingStreams = threads * 4;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new EncoderThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Queues an object for output. The object is written immediately if nothing is waiting
+     * to be written before it.
+     * @param object the indirect object
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    void add(PDFObject object, OutputStream out) throws IOException {
+        if (object instanceof AbstractPDFStream) {
+            final AbstractPDFStream stream = (AbstractPDFStream) object;
+            if (stream.prepareParallelEncoding()) {
+                Future<StreamCache> encoded = executor.submit(new Callable<StreamCache>() {
+                    public StreamCache call() throws IOException {
+                        return stream.encodeStream();
+                    }
+                });
+                queue.add(new Entry(stream, encoded));
+                PDFNumber length = stream.getLengthReference();
+                if (length != null) {
+                    pendingLengths.put(length, Boolean.TRUE);
+                }
+                pendingStreams++;
+                while (pendingStreams > maxPendingStreams) {
+                    writeHead(out);
+                }
+                return;
+            }
+            //Other streams may carry large amounts of data, so they are not buffered
+            flush(out, true);
+            document.streamIndirectObject(object, out);
+        } else {
+            boolean isLength = pendingLengths.remove(object) != null;
+            if (isLength && !queue.isEmpty()) {
+                //Only known once the stream has been encoded
+                queue.add(new Entry(object));
+            } else if (queue.isEmpty() || document.isCompressed(object)) {
+                //Objects in object streams do not depend on the position in the file
+                document.writeIndirectObject(object, out);
+            } else {
+                ByteArrayOutputStream bout = new ByteArrayOutputStream();
+                PDFDocument.outputIndirectObject(object, bout);
+                queue.add(new Entry(object, bout.toByteArray()));
+            }
+        }
+    }
+
+    /**
+     * Writes the queued objects that are ready to be written.
+     * @param out the stream to write to
+     * @param wait true to wait for all pending streams to be encoded and write all objects
+     * @throws IOException if an I/O error occurs
+     */
+    void flush(OutputStream out, boolean wait) throws IOException {
+        while (!queue.isEmpty() && (wait || queue.getFirst().isReady())) {
+            writeHead(out);
+        }
+    }
+
+    /**
+     * Writes all queued objects and stops the worker threads.
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    void close(OutputStream out) throws IOException {
+        try {
+            flush(out, true);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void writeHead(OutputStream out) throws IOException {
+        Entry entry = queue.removeFirst();
+        if (entry.encoded != null) {
+            AbstractPDFStream stream = (AbstractPDFStream) entry.object;
+            stream.setEncodedStream(getEncodedStream(entry.encoded));
+            pendingStreams--;
+            document.streamIndirectObject(stream, out);
+        } else if (entry.serialized != null) {
+            document.recordObjectOffset(entry.object);
+            out.write(entry.serialized);
+            document.position += entry.serialized.length;
+        } else {
+            document.writeIndirectObject(entry.object, out);
+        }
+    }
+
+    private StreamCache getEncodedStream(Future<StreamCache> encoded) throws IOException {
+        try {
+            return encoded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a stream to be encoded", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final PDFObject object;
+
+        private final Future<StreamCache> encoded;
+
+        private final byte[] serialized;
+
+        Entry(PDFObject object) {
+            this(object, null, null);
+        }
+
+        Entry(AbstractPDFStream stream, Future<StreamCache> encoded) {
+            this(stream, encoded, null);
+        }
+
+        Entry(PDFObject object, byte[] serialized) {
+            this(object, null, serialized);
+        }
+
+        private Entry(PDFObject object, Future<StreamCache> encoded, byte[] serialized) {
+            this.object = object;
+            this.encoded = encoded;
+            this.serialized = serialized;
+        }
+
+        boolean isReady() {
+            return encoded == null || encoded.isDone();
+        }
+    }
+
+    private static final class EncoderThreadFactory implements ThreadFactory {
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "FOP PDF stream encoder " + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
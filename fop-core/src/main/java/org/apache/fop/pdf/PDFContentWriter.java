@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.apache.xmlgraphics.util.DoubleFormatUtil;
+
+/**
+ * Growable byte buffer for building PDF content. Operators and operands are encoded straight
+ * into the buffer in the PDF document encoding, and numbers are formatted without creating
+ * intermediate strings. The buffer is meant to be reused: {@link #reset()} empties it but
+ * keeps its capacity.
+ * <p>
+ * Numbers are formatted like {@link PDFNumber#doubleOut(double, int)}, that is rounded half
+ * up to the given number of decimal places, without trailing zeros.
+ */
+public class PDFContentWriter {
+
+    private static final byte[] DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    private static final long[] POWERS_OF_TEN = new long[17];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Above this, the rounding error of scaling a value may be too large to decide how to
+     * round it, so the value is formatted with {@link DoubleFormatUtil}.
+     */
+    private static final double FAST_LIMIT = 1e12;
+
+    /** Values closer than this to a rounding tie are formatted with {@link DoubleFormatUtil} */
+    private static final double TIE_MARGIN = 1e-3;
+
+    private byte[] buf;
+
+    private int count;
+
+    private StringBuffer fallback;
+
+    /**
+     * Creates a new buffer.
+     */
+    public PDFContentWriter() {
+        this(256);
+    }
+
+    /**
+     * Creates a new buffer.
+     * @param capacity the initial capacity in bytes
+     */
+    public PDFContentWriter(int capacity) {
+        buf = new byte[capacity];
+    }
+
+    /**
+     * Appends a string. Characters that cannot be represented in the PDF document encoding
+     * are replaced with '?'.
+     * @param s the string
+     * @return this buffer
+     */
+    public PDFContentWriter append(String s) {
+        return append((CharSequence) s);
+    }
+
+    /**
+     * Appends a character sequence. Characters that cannot be represented in the PDF
+     * document encoding are replaced with '?'.
+     * @param s the character sequence
+     * @return this buffer
+     */
+    public PDFContentWriter append(CharSequence s) {
+        int len = s.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c > 0xFF && Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                i++;
+            }
+            buf[count++] = encode(c);
+        }
+        return this;
+    }
+
+    /**
+     * Appends characters from an array. Characters that cannot be represented in the PDF
+     * document encoding are replaced with '?'.
+     * @param chars the characters
+     * @param off the offset of the first character to append
+     * @param len the number of characters to append
+     * @return this buffer
+     */
+    public PDFContentWriter append(char[] chars, int off, int len) {
+        ensureCapacity(len);
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = chars[i];
+            if (c > 0xFF && Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(chars[i + 1])) {
+                i++;
+            }
+            buf[count++] = encode(c);
+        }
+        return this;
+    }
+
+    private static byte encode(char c) {
+        return c <= 0xFF ? (byte) c : (byte) '?';
+    }
+
+    /**
+     * Appends a character. A character that cannot be represented in the PDF document
+     * encoding is replaced with '?'.
+     * @param c the character
+     * @return this buffer
+     */
+    public PDFContentWriter append(char c) {
+        ensureCapacity(1);
+        buf[count++] = encode(c);
+        return this;
+    }
+
+    /**
+     * Appends the content of another buffer.
+     * @param content the buffer to append
+     * @return this buffer
+     */
+    public PDFContentWriter append(PDFContentWriter content) {
+        ensureCapacity(content.count);
+        System.arraycopy(content.buf, 0, buf, count, content.count);
+        count += content.count;
+        return this;
+    }
+
+    /**
+     * Appends an integer value.
+     * @param value the value
+     * @return this buffer
+     */
+    public PDFContentWriter append(int value) {
+        return appendLong(value);
+    }
+
+    /**
+     * Appends a value with 6 decimal places at most, like {@link PDFNumber#doubleOut(double)}.
+     * @param value the value
+     * @return this buffer
+     */
+    public PDFContentWriter append(double value) {
+        return append(value, 6);
+    }
+
+    /**
+     * Appends a value with the given maximum number of decimal places, like
+     * {@link PDFNumber#doubleOut(double, int)}.
+     * @param value the value
+     * @param dec the maximum number of decimal places
+     * @return this buffer
+     */
+    public PDFContentWriter append(double value, int dec) {
+        if (dec < 0 || dec > 16) {
+            throw new IllegalArgumentException("Parameter dec must be between 1 and 16");
+        }
+        double scaled = Math.abs(value) * POWERS_OF_TEN[dec];
+        if (!(scaled < FAST_LIMIT)) {
+            //Large value, infinity or NaN
+            return appendFallback(value, dec);
+        }
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            return appendFallback(value, dec);
+        }
+        long rounded = (long) floor + (fraction > 0.5 ? 1 : 0);
+        if (rounded == 0) {
+            return append('0');
+        }
+        if (value < 0) {
+            append('-');
+        }
+        long unit = POWERS_OF_TEN[dec];
+        appendLong(rounded / unit);
+        long fractionDigits = rounded % unit;
+        if (fractionDigits != 0) {
+            int digits = dec;
+            while (fractionDigits % 10 == 0) {
+                fractionDigits /= 10;
+                digits--;
+            }
+            ensureCapacity(digits + 1);
+            buf[count++] = '.';
+            for (int i = count + digits - 1; i >= count; i--) {
+                buf[i] = DIGITS[(int) (fractionDigits % 10)];
+                fractionDigits /= 10;
+            }
+            count += digits;
+        }
+        return this;
+    }
+
+    private PDFContentWriter appendFallback(double value, int dec) {
+        if (fallback == null) {
+            fallback = new StringBuffer();
+        }
+        fallback.setLength(0);
+        DoubleFormatUtil.formatDouble(value, dec, dec, fallback);
+        return append(fallback);
+    }
+
+    private PDFContentWriter appendLong(long value) {
+        ensureCapacity(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append(Long.toString(value));
+            }
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buf[i] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    /**
+     * Appends a value as upper case hexadecimal digits.
+     * @param value the value
+     * @param digits the number of digits, the value is padded with zeros
+     * @return this buffer
+     */
+    public PDFContentWriter appendHex(int value, int digits) {
+        ensureCapacity(digits);
+        for (int i = count + digits - 1; i >= count; i--) {
+            buf[i] = DIGITS[value & 0x0F];
+            value >>>= 4;
+        }
+        count += digits;
+        return this;
+    }
+
+    /**
+     * Appends a value as octal digits, without padding.
+     * @param value the value, must not be negative
+     * @return this buffer
+     */
+    public PDFContentWriter appendOctal(int value) {
+        int digits = 1;
+        for (int v = value >>> 3; v != 0; v >>>= 3) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = count + digits - 1; i >= count; i--) {
+            buf[i] = DIGITS[value & 0x07];
+            value >>>= 3;
+        }
+        count += digits;
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buf.length) {
+            byte[] newBuf = new byte[Math.max(buf.length * 2, count + extra)];
+            System.arraycopy(buf, 0, newBuf, 0, count);
+            buf = newBuf;
+        }
+    }
+
+    /**
+     * Returns the number of bytes in the buffer.
+     * @return the length of the content
+     */
+    public int length() {
+        return count;
+    }
+
+    /**
+     * Empties the buffer.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Writes the content of the buffer to a stream.
+     * @param out the stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        try {
+            return new String(buf, 0, count, PDFDocument.ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -136,29 +136,38 @@ public class PDFDocument {
     private Map<String, PDFXObject> xObjectsMap = new HashMap<String, PDFXObject>();
     private SoftMapCache xObjectsMapFast = new SoftMapCache(false);
 
+    /** The last long XObject key hashed, and its hash */
+    private String lastHashedKey;
+
+    private String lastHash;
+
+    private EncodedImageCache encodedImageCache;
+
+    private FontSubsetCache fontSubsetCache;
+
     private Map<String, PDFFont> fontMap = new HashMap<String, PDFFont>();
 
     private Map<String, List<String>> filterMap = new HashMap<String, List<String>>();
 
     private List<PDFGState> gstates = new ArrayList<PDFGState>();
 
-    private List<PDFFunction> functions = new ArrayList<PDFFunction>();
+    private PDFObjectIndex<PDFFunction> functions = new PDFObjectIndex<PDFFunction>();
 
-    private List<PDFShading> shadings = new ArrayList<PDFShading>();
+    private PDFObjectIndex<PDFShading> shadings = new PDFObjectIndex<PDFShading>();
 
-    private List<PDFPattern> patterns = new ArrayList<PDFPattern>();
+    private PDFObjectIndex<PDFPattern> patterns = new PDFObjectIndex<PDFPattern>();
 
-    private List<PDFLink> links = new ArrayList<PDFLink>();
+    private PDFObjectIndex<PDFLink> links = new PDFObjectIndex<PDFLink>();
 
     private List<PDFDestination> destinations;
 
-    private List<PDFFileSpec> filespecs = new ArrayList<PDFFileSpec>();
+    private PDFObjectIndex<PDFFileSpec> filespecs = new PDFObjectIndex<PDFFileSpec>();
 
-    private List<PDFGoToRemote> gotoremotes = new ArrayList<PDFGoToRemote>();
+    private PDFObjectIndex<PDFGoToRemote> gotoremotes = new PDFObjectIndex<PDFGoToRemote>();
 
-    private List<PDFGoTo> gotos = new ArrayList<PDFGoTo>();
+    private PDFObjectIndex<PDFGoTo> gotos = new PDFObjectIndex<PDFGoTo>();
 
-    private List<PDFLaunch> launches = new ArrayList<PDFLaunch>();
+    private PDFObjectIndex<PDFLaunch> launches = new PDFObjectIndex<PDFLaunch>();
 
     protected List<PDFPage> pageObjs = new ArrayList<PDFPage>();
 
@@ -180,6 +189,24 @@ public class PDFDocument {
 
     private boolean formXObjectEnabled;
 
+    private boolean streamingEnabled;
+
+    private boolean compactEnabled;
+
+    private CompactObjectWriter compactObjectWriter;
+
+    private List<PDFStream> streamsToSpool = new ArrayList<PDFStream>();
+
+    private LinearizationSpool linearizationSpool;
+
+    private int streamEncodingThreads;
+
+    private OrderedObjectWriter orderedObjectWriter;
+
+    private long streamCacheMemoryBudget;
+
+    private StreamCacheFactory streamCacheFactory = StreamCacheFactory.getInstance();
+
     protected boolean outputStarted;
 
     /**
@@ -488,6 +515,9 @@ public class PDFDocument {
 
         //Add object to list
         this.objects.add(obj);
+        if (linearizationEnabled && obj instanceof PDFStream) {
+            streamsToSpool.add((PDFStream) obj);
+        }
 
         //Add object to special lists where necessary
         if (obj instanceof PDFFunction) {
@@ -512,7 +542,9 @@ public class PDFDocument {
         }
         if (obj instanceof PDFPage) {
             this.pages.notifyKidRegistered((PDFPage)obj);
-            pageObjs.add((PDFPage) obj);
+            if (!isStreamingEnabled()) {
+                pageObjs.add((PDFPage) obj);
+            }
         }
         if (obj instanceof PDFLaunch) {
             this.launches.add((PDFLaunch) obj);
@@ -619,15 +651,6 @@ public class PDFDocument {
         return this.encryption;
     }
 
-    private Object findPDFObject(List<? extends PDFObject> list, PDFObject compare) {
-        for (PDFObject obj : list) {
-            if (compare.contentEquals(obj)) {
-                return obj;
-            }
-        }
-        return null;
-    }
-
     /**
      * Looks through the registered functions to see if one that is equal to
      * a reference object exists
@@ -636,7 +659,7 @@ public class PDFDocument {
      * @return the function if it was found, null otherwise
      */
     protected PDFFunction findFunction(PDFFunction compare) {
-        return (PDFFunction)findPDFObject(this.functions, compare);
+        return this.functions.find(compare);
     }
 
     /**
@@ -647,7 +670,7 @@ public class PDFDocument {
      * @return the shading if it was found, null otherwise
      */
     protected PDFShading findShading(PDFShading compare) {
-        return (PDFShading)findPDFObject(this.shadings, compare);
+        return this.shadings.find(compare);
     }
 
     /**
@@ -660,7 +683,7 @@ public class PDFDocument {
      * @return the shading if it was found, null otherwise
      */
     protected PDFPattern findPattern(PDFPattern compare) {
-        return (PDFPattern)findPDFObject(this.patterns, compare);
+        return this.patterns.find(compare);
     }
 
     /**
@@ -695,7 +718,7 @@ public class PDFDocument {
      * @return the link if found, null otherwise
      */
     protected PDFLink findLink(PDFLink compare) {
-        return (PDFLink)findPDFObject(this.links, compare);
+        return this.links.find(compare);
     }
 
     /**
@@ -705,7 +728,7 @@ public class PDFDocument {
      * @return the file spec if found, null otherwise
      */
     protected PDFFileSpec findFileSpec(PDFFileSpec compare) {
-        return (PDFFileSpec)findPDFObject(this.filespecs, compare);
+        return this.filespecs.find(compare);
     }
 
     /**
@@ -715,7 +738,7 @@ public class PDFDocument {
      * @return the goto remote if found, null otherwise
      */
     protected PDFGoToRemote findGoToRemote(PDFGoToRemote compare) {
-        return (PDFGoToRemote)findPDFObject(this.gotoremotes, compare);
+        return this.gotoremotes.find(compare);
     }
 
     /**
@@ -725,7 +748,7 @@ public class PDFDocument {
      * @return the goto if found, null otherwise
      */
     protected PDFGoTo findGoTo(PDFGoTo compare) {
-        return (PDFGoTo)findPDFObject(this.gotos, compare);
+        return this.gotos.find(compare);
     }
 
     /**
@@ -735,7 +758,7 @@ public class PDFDocument {
      * @return the launch if found, null otherwise
      */
     protected PDFLaunch findLaunch(PDFLaunch compare) {
-        return (PDFLaunch) findPDFObject(this.launches, compare);
+        return this.launches.find(compare);
     }
 
     /**
@@ -746,12 +769,8 @@ public class PDFDocument {
      * @return the GState if found, null otherwise
      */
     protected PDFGState findGState(PDFGState wanted, PDFGState current) {
-        PDFGState poss;
         for (PDFGState avail : this.gstates) {
-            poss = new PDFGState();
-            poss.addValues(current);
-            poss.addValues(avail);
-            if (poss.equals(wanted)) {
+            if (wanted.isEquivalentTo(current, avail)) {
                 return avail;
             }
         }
@@ -828,17 +847,24 @@ public class PDFDocument {
     }
 
     private String toHashCode(String key) {
-        if (key.length() < 1024) {
+        if (key == null || key.length() < 1024) {
             return key;
         }
+        //A key is usually hashed twice in a row, to look the XObject up and then to add it
+        if (key.equals(lastHashedKey)) {
+            return lastHash;
+        }
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
             byte[] thedigest = md.digest(key.getBytes("UTF-8"));
-            StringBuilder hex = new StringBuilder();
-            for (byte b : thedigest) {
-                hex.append(String.format("%02x", b));
+            char[] hex = new char[thedigest.length * 2];
+            for (int i = 0; i < thedigest.length; i++) {
+                hex[2 * i] = Character.forDigit((thedigest[i] >> 4) & 0x0F, 16);
+                hex[2 * i + 1] = Character.forDigit(thedigest[i] & 0x0F, 16);
             }
-            return hex.toString();
+            lastHashedKey = key;
+            lastHash = new String(hex);
+            return lastHash;
         } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
@@ -1019,13 +1045,33 @@ public class PDFDocument {
      */
     public void output(OutputStream stream) throws IOException {
         outputStarted = true;
+        OrderedObjectWriter writer = getOrderedObjectWriter();
         //Write out objects until the list is empty. This approach (used with a
         //LinkedList) allows for output() methods to create and register objects
         //on the fly even during serialization.
         while (this.objects.size() > 0) {
             PDFObject object = this.objects.remove(0);
-            streamIndirectObject(object, stream);
+            if (writer == null) {
+                writeIndirectObject(object, stream);
+            } else {
+                writer.add(object, stream);
+            }
+        }
+        if (writer != null) {
+            writer.flush(stream, false);
+        }
+        if (isStreamingEnabled()) {
+            //Links are specific to the page they are on, no need to keep them for reuse
+            this.links.clear();
+        }
+    }
+
+    private OrderedObjectWriter getOrderedObjectWriter() {
+        if (orderedObjectWriter == null && streamEncodingThreads > 1
+                && !isEncryptionActive() && !isLinearizationEnabled()) {
+            orderedObjectWriter = new OrderedObjectWriter(this, streamEncodingThreads);
         }
+        return orderedObjectWriter;
     }
 
     protected void writeTrailer(OutputStream stream, int first, int last, int size, long mainOffset, long startxref)
@@ -1050,17 +1096,37 @@ public class PDFDocument {
         recordObjectOffset(o);
         int len = outputIndirectObject(o, stream);
         this.position += len;
+        if (isStreamingEnabled() && o instanceof PDFStream) {
+            ((PDFStream) o).releaseData();
+        }
         return len;
     }
 
     private void streamIndirectObjects(Collection<? extends PDFObject> objects, OutputStream stream)
             throws IOException {
         for (PDFObject o : objects) {
+            writeIndirectObject(o, stream);
+        }
+    }
+
+    /**
+     * Writes an indirect object, into an object stream if the document is written in compact
+     * mode and the object may be compressed.
+     */
+    void writeIndirectObject(PDFObject o, OutputStream stream) throws IOException {
+        if (isCompressed(o)) {
+            outputStarted = true;
+            compactObjectWriter.add(o, stream);
+        } else {
             streamIndirectObject(o, stream);
         }
     }
 
-    private void recordObjectOffset(PDFObject object) {
+    boolean isCompressed(PDFObject o) {
+        return compactObjectWriter != null && CompactObjectWriter.accepts(o);
+    }
+
+    void recordObjectOffset(PDFObject object) {
         int index = object.getObjectNumber().getNumber() - 1;
         while (indirectObjectOffsets.size() <= index) {
             indirectObjectOffsets.add(null);
@@ -1102,6 +1168,7 @@ public class PDFDocument {
         this.position = 0;
 
         getProfile().verifyPDFVersion();
+        setupCompactOutput();
 
         byte[] pdf = encode("%PDF-" + getPDFVersionString() + "\n");
         stream.write(pdf);
@@ -1119,6 +1186,24 @@ public class PDFDocument {
         this.position += bin.length;
     }
 
+    private void setupCompactOutput() {
+        if (!compactEnabled || compactObjectWriter != null || isEncryptionActive()
+                || isLinearizationEnabled() || getProfile().getPDFAMode().isPart1()
+                || getProfile().getPDFXMode() == PDFXMode.PDFX_3_2003) {
+            return;
+        }
+        if (versionController.getPDFVersion().compareTo(Version.V1_5) < 0) {
+            try {
+                versionController.setPDFVersion(Version.V1_5);
+            } catch (IllegalStateException e) {
+                log.warn("Compact output requires PDF 1.5, object streams are not used: "
+                        + e.getMessage());
+                return;
+            }
+        }
+        compactObjectWriter = new CompactObjectWriter(this);
+    }
+
     /**
      * Write the trailer
      *
@@ -1128,7 +1213,17 @@ public class PDFDocument {
     public void outputTrailer(OutputStream stream) throws IOException {
         createDestinations();
         output(stream);
+        if (orderedObjectWriter != null) {
+            orderedObjectWriter.close(stream);
+            orderedObjectWriter = null;
+        }
         outputTrailerObjectsAndXref(stream);
+        if (compactObjectWriter != null && log.isDebugEnabled()) {
+            log.debug(compactObjectWriter.getObjectCount() + " objects written to "
+                    + compactObjectWriter.getStreamCount() + " object streams, "
+                    + compactObjectWriter.getBytesSaved() + " bytes saved");
+        }
+        streamCacheFactory.close();
     }
 
     private void createDestinations() {
@@ -1143,9 +1238,14 @@ public class PDFDocument {
     }
 
     private void outputTrailerObjectsAndXref(OutputStream stream) throws IOException {
-        TrailerOutputHelper trailerOutputHelper = mayCompressStructureTreeElements()
-                ? new CompressedTrailerOutputHelper()
-                : new UncompressedTrailerOutputHelper();
+        TrailerOutputHelper trailerOutputHelper;
+        if (compactObjectWriter != null) {
+            trailerOutputHelper = new CompactTrailerOutputHelper();
+        } else if (mayCompressStructureTreeElements()) {
+            trailerOutputHelper = new CompressedTrailerOutputHelper();
+        } else {
+            trailerOutputHelper = new UncompressedTrailerOutputHelper();
+        }
         if (structureTreeElements != null) {
             trailerOutputHelper.outputStructureTreeElements(stream);
         }
@@ -1239,6 +1339,24 @@ public class PDFDocument {
         }
     }
 
+    private class CompactTrailerOutputHelper implements TrailerOutputHelper {
+
+        public void outputStructureTreeElements(OutputStream stream)
+                throws IOException {
+            streamIndirectObjects(structureTreeElements, stream);
+        }
+
+        public long outputCrossReferenceObject(OutputStream stream,
+                TrailerDictionary trailerDictionary, int first, int last, int size) throws IOException {
+            compactObjectWriter.flush(stream);
+            assert objects.isEmpty();
+            new CrossReferenceStream(PDFDocument.this, ++objectcount, trailerDictionary, position,
+                    indirectObjectOffsets, compactObjectWriter.getCompressedObjectReferences())
+                    .output(stream);
+            return position;
+        }
+    }
+
     long getCurrentFileSize() {
         return position;
     }
@@ -1262,6 +1380,115 @@ public class PDFDocument {
         linearizationEnabled = b;
     }
 
+    /**
+     * Indicates whether the document is to be written in compact mode.
+     * @return true if compact mode is enabled
+     */
+    public boolean isCompactEnabled() {
+        return compactEnabled;
+    }
+
+    /**
+     * Enables the compact mode, in which all the indirect objects that are not streams are
+     * written into object streams, and the cross-reference table is replaced with a
+     * cross-reference stream. The PDF version is raised to 1.5 if needed. Compact mode is
+     * ignored with encryption, linearization, PDF/A-1 and PDF/X-3, and if the PDF version is
+     * fixed to a version earlier than 1.5.
+     *
+     * @param b true to enable compact mode
+     */
+    public void setCompactEnabled(boolean b) {
+        if (outputStarted) {
+            throw new IllegalStateException("Can't change compact mode after start of output");
+        }
+        compactEnabled = b;
+    }
+
+    /**
+     * Returns the number of bytes saved by writing objects into object streams, in compact
+     * mode. The value is final once the trailer has been written.
+     * @return the number of bytes saved, 0 if the document is not written in compact mode
+     */
+    public long getCompactBytesSaved() {
+        return compactObjectWriter == null ? 0 : compactObjectWriter.getBytesSaved();
+    }
+
+    /**
+     * Encodes the streams added to a linearized document since the last call into a temporary
+     * file, so that their data is not held in memory until the document is written. To be
+     * called once the objects of a page are complete. Streams are kept in memory when the
+     * document is encrypted, as their encryption keys depend on the object numbers, which are
+     * only assigned once the objects are reordered.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void spoolPendingStreams() throws IOException {
+        if (isLinearizationEnabled() && !isEncryptionActive()) {
+            for (PDFStream stream : streamsToSpool) {
+                if (stream.prepareParallelEncoding()) {
+                    StreamCache encodedStream = getLinearizationSpool().createEntry();
+                    stream.encodeStream(encodedStream);
+                    stream.setEncodedStream(encodedStream);
+                    stream.releaseData();
+                }
+            }
+        }
+        streamsToSpool.clear();
+    }
+
+    LinearizationSpool getLinearizationSpool() {
+        if (linearizationSpool == null) {
+            linearizationSpool = new LinearizationSpool();
+        }
+        return linearizationSpool;
+    }
+
+    void closeLinearizationSpool() {
+        if (linearizationSpool != null) {
+            linearizationSpool.close();
+            linearizationSpool = null;
+        }
+    }
+
+    /**
+     * Returns the cache of encoded images shared with other documents.
+     * @return the cache, or null if images are encoded for every document
+     */
+    public EncodedImageCache getEncodedImageCache() {
+        return encodedImageCache;
+    }
+
+    /**
+     * Sets a cache of encoded images shared with other documents. The encoded data of the
+     * images marked as {@link PDFImageXObject#setCacheable(boolean) cacheable} is taken from
+     * the cache if available, and put into it otherwise. The cache is not used when the
+     * document is encrypted.
+     *
+     * @param encodedImageCache the cache, null to encode images for every document
+     */
+    public void setEncodedImageCache(EncodedImageCache encodedImageCache) {
+        this.encodedImageCache = encodedImageCache;
+    }
+
+    /**
+     * Returns the cache of encoded font subsets shared with other documents.
+     * @return the cache, or null if font subsets are created for every document
+     */
+    public FontSubsetCache getFontSubsetCache() {
+        return fontSubsetCache;
+    }
+
+    /**
+     * Sets a cache of encoded font subsets shared with other documents. TrueType subsets are
+     * taken from the cache if available, and put into it otherwise. The cache is not used
+     * when the document is encrypted.
+     *
+     * @param fontSubsetCache the cache, null to create font subsets for every document
+     */
+    public void setFontSubsetCache(FontSubsetCache fontSubsetCache) {
+        this.fontSubsetCache = fontSubsetCache;
+    }
+
     public boolean isFormXObjectEnabled() {
         return formXObjectEnabled;
     }
@@ -1269,4 +1496,75 @@ public class PDFDocument {
     public void setFormXObjectEnabled(boolean b) {
         formXObjectEnabled = b;
     }
+
+    /**
+     * Indicates whether the document is output in streaming mode. Streaming is not used
+     * with linearization, which needs all the pages at the end.
+     * @return true if streaming mode is active
+     */
+    public boolean isStreamingEnabled() {
+        return streamingEnabled && !linearizationEnabled;
+    }
+
+    /**
+     * Enables streaming mode, for large documents. The data of streams is discarded once
+     * they have been written, and the objects of the pages that have been written are no
+     * longer referenced by the document, so that the memory used stays roughly constant
+     * however many pages the document has. Only what the trailer objects need, like the
+     * page tree entries and named destinations, is kept until the end.
+     *
+     * @param b true to enable streaming mode
+     */
+    public void setStreamingEnabled(boolean b) {
+        streamingEnabled = b;
+    }
+
+    public int getStreamEncodingThreads() {
+        return streamEncodingThreads;
+    }
+
+    /**
+     * Sets the number of threads used to encode content streams while the document is
+     * output. With more than one thread, the streams are encoded in parallel and written
+     * in object order. Parallel encoding is not used with encryption or linearization.
+     *
+     * @param threads the number of threads, 0 or 1 to encode streams on the output thread
+     */
+    public void setStreamEncodingThreads(int threads) {
+        if (outputStarted) {
+            throw new IllegalStateException("Can't change stream encoding after start of output");
+        }
+        streamEncodingThreads = threads;
+    }
+
+    /**
+     * Returns the factory used to create the stream caches of this document.
+     * @return the stream cache factory
+     */
+    public StreamCacheFactory getStreamCacheFactory() {
+        return streamCacheFactory;
+    }
+
+    public long getStreamCacheMemoryBudget() {
+        return streamCacheMemoryBudget;
+    }
+
+    /**
+     * Sets the amount of memory outside the Java heap the streams of this document may use.
+     * With a positive budget, stream data that does not fit on the heap is held in direct
+     * buffers up to the budget and in a memory-mapped scratch file beyond it. Should be set
+     * before any stream is added to the document.
+     *
+     * @param memoryBudget the budget in bytes, 0 to keep all stream data on the heap
+     */
+    public void setStreamCacheMemoryBudget(long memoryBudget) {
+        if (outputStarted) {
+            throw new IllegalStateException("Can't change stream caching after start of output");
+        }
+        streamCacheMemoryBudget = memoryBudget;
+        streamCacheFactory.close();
+        streamCacheFactory = memoryBudget > 0
+                ? StreamCacheFactory.newTieredInstance(memoryBudget)
+                : StreamCacheFactory.getInstance();
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.apache.fop.pdf;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
@@ -28,22 +29,36 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
  * An implementation of the Standard Security Handler.
+ * <p>
+ * The ciphers used to encrypt the objects of the document are pooled and reused, so that
+ * objects can be encrypted concurrently, and streams are encrypted by blocks of
+ * {@link #BLOCK_SIZE} bytes rather than for every write.
  */
 public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
 
+    /** The size of the blocks the data of a stream is encrypted by */
+    static final int BLOCK_SIZE = 16 * 1024;
+
     private final MessageDigest digest;
 
+    /** The ciphers not in use, shared by the threads encrypting the objects of the document */
+    private final Queue<PooledCipher> ciphers = new ConcurrentLinkedQueue<PooledCipher>();
+
+    private SecretKeySpec aesKey;
+
     private SecureRandom random;
 
     private byte[] encryptionKey;
@@ -651,21 +666,208 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
         /** {@inheritDoc} */
         public OutputStream applyFilter(OutputStream out) throws IOException {
             if (useAlgorithm31a) {
-                byte[] iv = new byte[16];
-                random.nextBytes(iv);
-                Cipher cipher = initCipher(encryptionKey, false, iv);
+                byte[] iv = createIV();
                 out.write(iv);
                 out.flush();
-                return new CipherOutputStream(out, cipher);
+                return new EncryptingOutputStream(out, ciphers, acquire(0, 0, iv));
             } else {
-                byte[] key = createEncryptionKey(streamNumber.getNumber(), streamGeneration);
-                Cipher cipher = initCipher(key);
-                return new CipherOutputStream(out, cipher);
+                return new EncryptingOutputStream(out, ciphers,
+                        acquire(streamNumber.getNumber(), streamGeneration, null));
             }
         }
 
     }
 
+    /**
+     * A cipher, with the buffers to encrypt the data of a stream by blocks. The key of the
+     * last object encrypted is kept, since several strings of an object are usually encrypted
+     * in a row.
+     */
+    private static final class PooledCipher {
+
+        private final Cipher cipher;
+
+        private byte[] input;
+
+        private byte[] output;
+
+        private MessageDigest md5;
+
+        private byte[] md5Input;
+
+        private int keyObjectNumber = -1;
+
+        private int keyGeneration;
+
+        private SecretKeySpec objectKey;
+
+        PooledCipher(Cipher cipher) {
+            this.cipher = cipher;
+        }
+    }
+
+    /**
+     * Returns a cipher set up to encrypt the data of an object. A cipher is taken from the
+     * pool for the encryption of an object and returned once the object is encrypted, so that
+     * several streams may be encrypted at the same time.
+     * @param objectNumber the number of the object
+     * @param generation the generation of the object
+     * @param iv the initialization vector for AES encryption, null for RC4 encryption
+     * @return the cipher, to be released once the data is encrypted
+     */
+    private PooledCipher acquire(int objectNumber, int generation, byte[] iv) {
+        PooledCipher pooled = ciphers.poll();
+        if (pooled == null) {
+            pooled = new PooledCipher(createCipher());
+        }
+        try {
+            if (useAlgorithm31a) {
+                pooled.cipher.init(Cipher.ENCRYPT_MODE, aesKey, new IvParameterSpec(iv));
+            } else {
+                pooled.cipher.init(Cipher.ENCRYPT_MODE, getObjectKey(pooled, objectNumber, generation));
+            }
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new UnsupportedOperationException(e);
+        }
+        return pooled;
+    }
+
+    private Cipher createCipher() {
+        try {
+            return Cipher.getInstance(useAlgorithm31a ? "AES/CBC/PKCS5Padding" : "RC4");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException(e);
+        } catch (NoSuchPaddingException e) {
+            throw new UnsupportedOperationException(e);
+        }
+    }
+
+    /**
+     * Applies Algorithm 3.1 from the PDF 1.4 Reference.
+     */
+    private SecretKeySpec getObjectKey(PooledCipher pooled, int objectNumber, int generationNumber) {
+        if (objectNumber == pooled.keyObjectNumber && generationNumber == pooled.keyGeneration) {
+            return pooled.objectKey;
+        }
+        if (pooled.md5 == null) {
+            try {
+                pooled.md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new UnsupportedOperationException(e.getMessage());
+            }
+            pooled.md5Input = new byte[encryptionKey.length + 5];
+            System.arraycopy(encryptionKey, 0, pooled.md5Input, 0, encryptionKey.length);
+        }
+        byte[] md5Input = pooled.md5Input;
+        // Step 2
+        int i = encryptionKey.length;
+        md5Input[i++] = (byte) (objectNumber >>> 0);
+        md5Input[i++] = (byte) (objectNumber >>> 8);
+        md5Input[i++] = (byte) (objectNumber >>> 16);
+        md5Input[i++] = (byte) (generationNumber >>> 0);
+        md5Input[i++] = (byte) (generationNumber >>> 8);
+        // Step 3
+        byte[] hash = pooled.md5.digest(md5Input);
+        // Step 4
+        int keyLength = Math.min(16, md5Input.length);
+        pooled.objectKey = new SecretKeySpec(hash, 0, keyLength, "RC4");
+        pooled.keyObjectNumber = objectNumber;
+        pooled.keyGeneration = generationNumber;
+        return pooled.objectKey;
+    }
+
+    /**
+     * Encrypts the data of a stream. The data is collected into a buffer that is encrypted
+     * in a single call once full, and the data of a stream smaller than the buffer is
+     * encrypted in a single call when the stream is closed.
+     */
+    private static final class EncryptingOutputStream extends FilterOutputStream {
+
+        private final Queue<PooledCipher> ciphers;
+
+        private PooledCipher pooled;
+
+        private final byte[] input;
+
+        private final byte[] output;
+
+        private int count;
+
+        EncryptingOutputStream(OutputStream out, Queue<PooledCipher> ciphers, PooledCipher pooled) {
+            super(out);
+            this.ciphers = ciphers;
+            this.pooled = pooled;
+            if (pooled.input == null) {
+                pooled.input = new byte[BLOCK_SIZE];
+                //Room for the data held back by a block cipher and the padding
+                pooled.output = new byte[BLOCK_SIZE + 32];
+            }
+            this.input = pooled.input;
+            this.output = pooled.output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == input.length) {
+                encryptBlock();
+            }
+            input[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == input.length) {
+                    encryptBlock();
+                }
+                int n = Math.min(len, input.length - count);
+                System.arraycopy(b, off, input, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void encryptBlock() throws IOException {
+            try {
+                int n = pooled.cipher.update(input, 0, count, output);
+                out.write(output, 0, n);
+                count = 0;
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (pooled == null) {
+                return;
+            }
+            try {
+                int n = pooled.cipher.doFinal(input, 0, count, output);
+                out.write(output, 0, n);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            } catch (IllegalBlockSizeException e) {
+                throw new IllegalStateException(e);
+            } catch (BadPaddingException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                ciphers.offer(pooled);
+                pooled = null;
+            }
+            out.flush();
+            out.close();
+        }
+    }
+
     private PDFEncryptionJCE(PDFObjectNumber objectNumber, PDFEncryptionParams params, PDFDocument pdf) {
         setObjectNumber(objectNumber);
         try {
@@ -681,6 +883,9 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
         EncryptionInitializer encryptionInitializer = new EncryptionInitializer(params);
         encryptionInitializer.init();
         useAlgorithm31a = encryptionInitializer.isVersion5Revision5Algorithm();
+        if (useAlgorithm31a) {
+            aesKey = new SecretKeySpec(encryptionKey, "AES");
+        }
     }
 
     /**
@@ -705,18 +910,39 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
         if (o == null && !useAlgorithm31a) {
             throw new IllegalStateException("No object number could be obtained for a PDF object");
         }
+        PooledCipher pooled;
+        int offset;
+        byte[] iv = null;
         if (useAlgorithm31a) {
-            byte[] iv = new byte[16];
-            random.nextBytes(iv);
-            byte[] encryptedData = encryptWithKey(encryptionKey, data, false, iv);
-            byte[] storedData = new byte[encryptedData.length + 16];
-            System.arraycopy(iv, 0, storedData, 0, 16);
-            System.arraycopy(encryptedData, 0, storedData, 16, encryptedData.length);
-            return storedData;
+            iv = createIV();
+            pooled = acquire(0, 0, iv);
+            offset = iv.length;
         } else {
-            byte[] key = createEncryptionKey(o.getObjectNumber().getNumber(), o.getGeneration());
-            return encryptWithKey(key, data);
+            pooled = acquire(o.getObjectNumber().getNumber(), o.getGeneration(), null);
+            offset = 0;
         }
+        try {
+            byte[] storedData = new byte[offset + pooled.cipher.getOutputSize(data.length)];
+            int length = offset + pooled.cipher.doFinal(data, 0, data.length, storedData, offset);
+            if (iv != null) {
+                System.arraycopy(iv, 0, storedData, 0, offset);
+            }
+            return length == storedData.length ? storedData : Arrays.copyOf(storedData, length);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e.getMessage());
+        } catch (IllegalBlockSizeException e) {
+            throw new IllegalStateException(e.getMessage());
+        } catch (BadPaddingException e) {
+            throw new IllegalStateException(e.getMessage());
+        } finally {
+            ciphers.offer(pooled);
+        }
+    }
+
+    private byte[] createIV() {
+        byte[] iv = new byte[16];
+        random.nextBytes(iv);
+        return iv;
     }
 
     /** {@inheritDoc} */
@@ -799,39 +1025,6 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
         }
     }
 
-    /**
-     * Applies Algorithm 3.1 from the PDF 1.4 Reference.
-     *
-     * @param objectNumber the object number
-     * @param generationNumber the generation number
-     * @return the key to use for encryption
-     */
-    private byte[] createEncryptionKey(int objectNumber, int generationNumber) {
-        // Step 1 passed in
-        // Step 2
-        byte[] md5Input = prepareMD5Input(objectNumber, generationNumber);
-        // Step 3
-        digest.reset();
-        byte[] hash = digest.digest(md5Input);
-        // Step 4
-        int keyLength = Math.min(16, md5Input.length);
-        byte[] key = new byte[keyLength];
-        System.arraycopy(hash, 0, key, 0, keyLength);
-        return key;
-    }
-
-    private byte[] prepareMD5Input(int objectNumber, int generationNumber) {
-        byte[] md5Input = new byte[encryptionKey.length + 5];
-        System.arraycopy(encryptionKey, 0, md5Input, 0, encryptionKey.length);
-        int i = encryptionKey.length;
-        md5Input[i++] = (byte) (objectNumber >>> 0);
-        md5Input[i++] = (byte) (objectNumber >>> 8);
-        md5Input[i++] = (byte) (objectNumber >>> 16);
-        md5Input[i++] = (byte) (generationNumber >>> 0);
-        md5Input[i++] = (byte) (generationNumber >>> 8);
-        return md5Input;
-    }
-
     /** {@inheritDoc} */
     public Version getPDFVersion() {
         return pdfVersion;
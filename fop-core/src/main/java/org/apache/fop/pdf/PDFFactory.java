@@ -1378,16 +1378,36 @@ public class PDFFactory {
 
         CustomFont font = getCustomFont(desc);
 
+        FontSubsetCache subsetCache = getFontSubsetCache(desc, font);
+        String subsetKey = null;
         InputStream in = null;
         try {
-            in = font.getInputStream();
-            if (in == null) {
-                return null;
+            if (subsetCache != null) {
+                subsetKey = FontSubsetCache.createKey(font.getFontURI(),
+                        ((MultiByteFont) font).getTTCName(), font.getEmbeddingMode(),
+                        font.getUsedGlyphs());
+                AbstractPDFStream cachedFont = getCachedFontSubset(subsetCache, subsetKey);
+                if (cachedFont != null) {
+                    return cachedFont;
+                }
+            }
+            // Type 0 fonts and Type 1C subsets are read through a FontFileReader instead
+            boolean readThroughReader = desc.getFontType() == FontType.TYPE0
+                    || (desc.getFontType() == FontType.TYPE1C
+                            && font.getEmbeddingMode() == EmbeddingMode.SUBSET);
+            if (!readThroughReader) {
+                in = font.getInputStream();
+                if (in == null) {
+                    return null;
+                }
             }
             AbstractPDFStream embeddedFont = null;
             if (desc.getFontType() == FontType.TYPE0) {
                 MultiByteFont mbfont = (MultiByteFont) font;
-                FontFileReader reader = new FontFileReader(in);
+                FontFileReader reader = font.getFontFileReader();
+                if (reader == null) {
+                    return null;
+                }
                 byte[] fontBytes;
                 String header = OFFontLoader.readHeader(reader);
                 boolean isCFF = mbfont.isOTFFile();
@@ -1402,6 +1422,9 @@ public class PDFFactory {
                             isCFF);
                 }
                 embeddedFont = getFontStream(font, fontBytes, isCFF);
+                if (subsetKey != null) {
+                    putFontSubset(subsetCache, subsetKey, embeddedFont, fontBytes.length);
+                }
             } else if (desc.getFontType() == FontType.TYPE1) {
                 if (font.getEmbeddingMode() != EmbeddingMode.SUBSET) {
                     embeddedFont = fullyEmbedType1Font(in);
@@ -1418,7 +1441,10 @@ public class PDFFactory {
                 }
             } else if (desc.getFontType() == FontType.TYPE1C) {
                 if (font.getEmbeddingMode() == EmbeddingMode.SUBSET) {
-                    FontFileReader reader = new FontFileReader(in);
+                    FontFileReader reader = font.getFontFileReader();
+                    if (reader == null) {
+                        return null;
+                    }
                     String header = OFFontLoader.readHeader(reader);
                     byte[] fontBytes = getFontSubsetBytes(reader, (MultiByteFont) font, header, fontPrefix, desc, true);
                     embeddedFont = getFontStream(font, fontBytes, true);
@@ -1458,6 +1484,60 @@ public class PDFFactory {
         }
     }
 
+    /**
+     * Returns the cache to take the subset of a font from, if the subset may be shared with
+     * other documents. Only TrueType subsets are cached: subsetting a CFF font embeds the
+     * subset prefix into the font, and adds the glyphs of accented characters to the font.
+     */
+    private FontSubsetCache getFontSubsetCache(FontDescriptor desc, CustomFont font) {
+        FontSubsetCache cache = getDocument().getFontSubsetCache();
+        if (cache == null || getDocument().isEncryptionActive()
+                || desc.getFontType() != FontType.TYPE0
+                || font.getEmbeddingMode() == EmbeddingMode.FULL
+                || font.getFontURI() == null) {
+            return null;
+        }
+        if (!(font instanceof MultiByteFont) || ((MultiByteFont) font).isOTFFile()) {
+            return null;
+        }
+        return cache;
+    }
+
+    private AbstractPDFStream getCachedFontSubset(FontSubsetCache cache, String key)
+            throws IOException {
+        FontSubsetCache.FontSubset subset = cache.get(key);
+        if (subset == null) {
+            return null;
+        }
+        PDFTTFStream embeddedFont = new PDFTTFStream(subset.getLength());
+        embeddedFont.setDocument(getDocument());
+        embeddedFont.setupFilterList();
+        if (!subset.getFilters().equals(embeddedFont.getFilterList().buildFilterDictEntries())) {
+            //Encoded with other filters by another document
+            return null;
+        }
+        byte[] data = subset.getEncodedData();
+        StreamCache encodedStream = embeddedFont.getStreamCacheFactory().createStreamCache(
+                data.length);
+        encodedStream.write(data);
+        embeddedFont.setEncodedStream(encodedStream);
+        return embeddedFont;
+    }
+
+    private void putFontSubset(FontSubsetCache cache, String key, AbstractPDFStream embeddedFont,
+            int length) throws IOException {
+        embeddedFont.setDocument(getDocument());
+        embeddedFont.setupFilterList();
+        StreamCache encodedStream = embeddedFont.encodeStream();
+        embeddedFont.setEncodedStream(encodedStream);
+        if (cache.accepts(encodedStream.getSize())) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream(encodedStream.getSize());
+            encodedStream.outputContents(bout);
+            cache.put(key, new FontSubsetCache.FontSubset(length,
+                    embeddedFont.getFilterList().buildFilterDictEntries(), bout.toByteArray()));
+        }
+    }
+
     private AbstractPDFStream fullyEmbedType1Font(InputStream in) throws IOException {
         PFBParser parser = new PFBParser();
         PFBData pfb = parser.parsePFB(in);
@@ -96,4 +96,10 @@ public class PDFFileSpec extends PDFDictionary {
 
         return true;
     }
+
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        String filename = getFilename();
+        return filename == null ? 0 : filename.hashCode();
+    }
 }
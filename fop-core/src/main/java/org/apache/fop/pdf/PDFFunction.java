@@ -189,4 +189,24 @@ public class PDFFunction extends PDFObject {
         return true;
     }
 
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        int result = function.getFunctionType();
+        result = 31 * result + function.getBitsPerSample();
+        result = 31 * result + function.getOrder();
+        long exponent = Double.doubleToLongBits(function.getInterpolationExponentN() + 0.0);
+        result = 31 * result + (int) (exponent ^ (exponent >>> 32));
+        result = 31 * result + hashCodeOf(function.getDomain());
+        result = 31 * result + hashCodeOf(function.getRange());
+        result = 31 * result + hashCodeOf(function.getEncode());
+        result = 31 * result + Arrays.hashCode(function.getCZero());
+        result = 31 * result + Arrays.hashCode(function.getCOne());
+        result = 31 * result + pdfFunctions.hashCode();
+        return 31 * result + hashCodeOf(function.getBounds());
+    }
+
+    private static int hashCodeOf(Object obj) {
+        return obj == null ? 0 : obj.hashCode();
+    }
+
 }
@@ -148,6 +148,36 @@ public class PDFGState extends PDFObject {
         values.putAll(vals);
     }
 
+    /**
+     * Indicates whether adding the values of overlay to those of base results in the
+     * same values as this GState. This gives the same result as building the combined
+     * GState and comparing its content, but without creating it.
+     * @param base the GState whose values are overridden
+     * @param overlay the GState whose values are added to base
+     * @return true if the combined values are equal to the values of this GState
+     */
+    boolean isEquivalentTo(PDFGState base, PDFGState overlay) {
+        Map baseValues = base.values;
+        Map overlayValues = overlay.values;
+        int size = overlayValues.size();
+        for (Object key : baseValues.keySet()) {
+            if (!overlayValues.containsKey(key)) {
+                size++;
+            }
+        }
+        if (size != values.size()) {
+            return false;
+        }
+        for (Map.Entry<Object, Object> e : (Set<Map.Entry<Object, Object>>) values.entrySet()) {
+            Object key = e.getKey();
+            Object val = overlayValues.containsKey(key) ? overlayValues.get(key) : baseValues.get(key);
+            if (val == null || !val.equals(e.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -192,5 +192,17 @@ public class PDFGoTo extends PDFAction {
 
         return (isNamedDestination == gt.isNamedDestination);
     }
+
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        int result = pageReference == null ? 0 : pageReference.hashCode();
+        if (destination == null) {
+            result = 31 * result + Float.floatToIntBits(xPosition + 0.0f);
+            result = 31 * result + Float.floatToIntBits(yPosition + 0.0f);
+        } else {
+            result = 31 * result + destination.hashCode();
+        }
+        return 31 * result + (isNamedDestination ? 1 : 0);
+    }
 }
 
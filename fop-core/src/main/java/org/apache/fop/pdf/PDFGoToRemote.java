@@ -165,5 +165,11 @@ public class PDFGoToRemote extends PDFAction {
 
         return (this.newWindow == remote.newWindow);
     }
+
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        // destination and page are not compared symmetrically by contentEquals
+        return 31 * pdfFileSpec.toString().hashCode() + (newWindow ? 1 : 0);
+    }
 }
 
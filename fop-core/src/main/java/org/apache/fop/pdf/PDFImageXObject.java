@@ -43,6 +43,8 @@ public class PDFImageXObject extends PDFXObject {
 
     private PDFImage pdfimage;
 
+    private boolean cacheable;
+
     /**
      * create an XObject with the given number and name and load the
      * image in the object
@@ -70,6 +72,12 @@ public class PDFImageXObject extends PDFXObject {
             pdfimage.outputContents(baos);
             put("GTS_XID", "uuid:" + UUID.nameUUIDFromBytes(baos.toByteArray()));
         }
+        EncodedImageCache cache = getDocument().getEncodedImageCache();
+        //Images without a key, like the ones drawn from a DOM, can't be identified in the cache
+        if (cacheable && cache != null && pdfimage.getKey() != null
+                && !getDocument().isEncryptionActive()) {
+            prepareEncodedStream(cache);
+        }
         int length = super.output(stream);
 
         // let it gc
@@ -79,6 +87,56 @@ public class PDFImageXObject extends PDFXObject {
         return length;
     }
 
+    /**
+     * Indicates whether the image is identified by its key across documents, like images
+     * loaded from a URI, so that its encoded data may be shared with other documents through
+     * an {@link EncodedImageCache}.
+     * @param cacheable true if the encoded data may be shared
+     */
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Takes the encoded data of the image from the cache, or encodes the image and puts the
+     * data into the cache.
+     */
+    private void prepareEncodedStream(EncodedImageCache cache) throws IOException {
+        setupFilterList();
+        String cacheKey = getCacheKey();
+        byte[] data = cache.get(cacheKey);
+        StreamCache encodedStream;
+        if (data != null) {
+            encodedStream = getStreamCacheFactory().createStreamCache(data.length);
+            encodedStream.write(data);
+        } else {
+            encodedStream = encodeStream();
+            if (cache.accepts(encodedStream.getSize())) {
+                ByteArrayOutputStream bout = new ByteArrayOutputStream(encodedStream.getSize());
+                encodedStream.outputContents(bout);
+                cache.put(cacheKey, bout.toByteArray());
+            }
+        }
+        setEncodedStream(encodedStream);
+    }
+
+    private String getCacheKey() {
+        StringBuilder key = new StringBuilder(pdfimage.getKey());
+        key.append('\n').append(pdfimage.getClass().getName());
+        if (!pdfimage.isPS()) {
+            key.append(' ').append(pdfimage.getWidth()).append('x').append(pdfimage.getHeight())
+                    .append(' ').append(pdfimage.getBitsPerComponent());
+            PDFDeviceColorSpace cs = pdfimage.getColorSpace();
+            if (cs != null) {
+                key.append(' ').append(cs.getName());
+            }
+        }
+        if (!getFilterList().isDisableAllFilters()) {
+            key.append('\n').append(getFilterList().buildFilterDictEntries());
+        }
+        return key.toString();
+    }
+
     /** {@inheritDoc} */
     protected void populateStreamDict(Object lengthEntry) {
         super.populateStreamDict(lengthEntry);
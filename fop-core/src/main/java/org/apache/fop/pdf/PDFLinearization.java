@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,7 @@ public class PDFLinearization {
     private Map<PDFPage, Set<PDFObject>> pageObjsMap = new HashMap<PDFPage, Set<PDFObject>>();
     private PDFDictionary linearDict;
     private HintTable hintTable;
+    private Set<PDFObject> unwrittenObjects;
 
     public PDFLinearization(PDFDocument doc) {
         this.doc = doc;
@@ -254,10 +256,9 @@ public class PDFLinearization {
         }
         Set<PDFObject> page1Children = assignNumbers();
         doc.streamIndirectObject(linearDict, new ByteArrayOutputStream());
-        for (PDFObject o : page1Children) {
-            doc.objects.remove(o);
-        }
+        doc.objects.removeAll(page1Children);
         int sizeOfRest = doc.objects.size();
+        unwrittenObjects = new HashSet<PDFObject>(doc.objects);
 
         ByteArrayOutputStream fakeHeaderTrailerStream = new ByteArrayOutputStream();
         long topTrailer = doc.position;
@@ -265,8 +266,20 @@ public class PDFLinearization {
                 page1Children.size() + sizeOfRest + 1, Long.MAX_VALUE, 0);
         doc.position += fakeHeaderTrailerStream.size();
 
-        ByteArrayOutputStream pageStream = new ByteArrayOutputStream();
-        writeObjects(page1Children, pageStream, sizeOfRest + 1);
+        //The body is spooled to a temporary file rather than buffered in memory
+        LinearizationSpool spool = doc.getLinearizationSpool();
+        try {
+            LinearizationSpool.Entry body = spool.createEntry();
+            writeObjects(page1Children, body.getOutputStream(), sizeOfRest + 1);
+            outputLinearized(stream, page1Children, sizeOfRest, topTrailer,
+                    fakeHeaderTrailerStream.size(), body);
+        } finally {
+            doc.closeLinearizationSpool();
+        }
+    }
+
+    private void outputLinearized(OutputStream stream, Set<PDFObject> page1Children, int sizeOfRest,
+            long topTrailer, int headerTrailerSize, LinearizationSpool.Entry body) throws IOException {
         long trailerOffset = doc.position;
         ByteArrayOutputStream footerTrailerStream = new ByteArrayOutputStream();
         doc.writeTrailer(footerTrailerStream, 0, sizeOfRest, sizeOfRest, 0, topTrailer);
@@ -278,14 +291,14 @@ public class PDFLinearization {
         CountingOutputStream realTrailer = new CountingOutputStream(stream);
         doc.writeTrailer(realTrailer, sizeOfRest, page1Children.size() + 1,
                 page1Children.size() + sizeOfRest + 1, trailerOffset, 0);
-        writePadding(fakeHeaderTrailerStream.size() - realTrailer.getCount(), stream);
+        writePadding(headerTrailerSize - realTrailer.getCount(), stream);
         for (PDFObject o : page1Children) {
             PDFDocument.outputIndirectObject(o, stream);
             if (o instanceof HintTable) {
                 break;
             }
         }
-        stream.write(pageStream.toByteArray());
+        body.outputContents(stream);
         stream.write(footerTrailerStream.toByteArray());
     }
 
@@ -326,6 +339,10 @@ public class PDFLinearization {
         }
         while (!doc.objects.isEmpty()) {
             PDFObject o = doc.objects.remove(0);
+            if (!unwrittenObjects.remove(o)) {
+                //Already written with its page or group
+                continue;
+            }
             if (o instanceof PDFOutline) {
                 writeObjectGroup("/O", getChildren(o), pageStream);
             } else if (o instanceof PDFDests) {
@@ -354,7 +371,7 @@ public class PDFLinearization {
         values[2] = children.size();
         for (PDFObject o : children) {
             values[3] += doc.streamIndirectObject(o, pageStream);
-            doc.objects.remove(o);
+            unwrittenObjects.remove(o);
         }
     }
 
@@ -406,13 +423,12 @@ public class PDFLinearization {
         int pageLen = 0;
         int objCount = 0;
         for (PDFObject c : children) {
-            if (doc.objects.contains(c)) {
+            if (unwrittenObjects.remove(c)) {
                 int len = doc.streamIndirectObject(c, pageStream);
                 if (c instanceof PDFStream) {
                     hintTable.contentStreamLengths.set(page.pageIndex, len);
                 }
                 pageLen += len;
-                doc.objects.remove(c);
                 objCount++;
             }
         }
@@ -144,6 +144,19 @@ public class PDFLink extends PDFObject {
         return true;
     }
 
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        int result = Float.floatToIntBits(ulx + 0.0f);
+        result = 31 * result + Float.floatToIntBits(uly + 0.0f);
+        result = 31 * result + Float.floatToIntBits(brx + 0.0f);
+        result = 31 * result + Float.floatToIntBits(bry + 0.0f);
+        result = 31 * result + color.hashCode();
+        if (action != null) {
+            result = 31 * result + action.getAction().hashCode();
+        }
+        return result;
+    }
+
     @Override
     public void getChildren(Set<PDFObject> children) {
         super.getChildren(children);
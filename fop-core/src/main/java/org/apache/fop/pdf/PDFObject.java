@@ -356,6 +356,21 @@ public abstract class PDFObject implements PDFWritable {
         return this.equals(o);
     }
 
+    /**
+     * Returns a hash code for the content of this object. Two objects for which
+     * {@link #contentEquals(PDFObject)} returns true must return the same value, so
+     * subclasses that override contentEquals should override this method as well
+     * and only use the values compared there.
+     * <p>
+     * The default implementation returns a constant, which is always consistent with
+     * contentEquals but does not allow any lookup to be narrowed down.
+     *
+     * @return the content hash code
+     */
+    protected int contentHashCode() {
+        return 0;
+    }
+
     public void getChildren(Set<PDFObject> children) {
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of registered PDF objects of one type, used to find an already registered
+ * object with the same content as a given one.
+ * <p>
+ * Objects are bucketed by {@link PDFObject#contentHashCode()} so that a lookup only
+ * has to call {@link PDFObject#contentEquals(PDFObject)} on objects that are likely to
+ * match. Some objects are only completed after they have been registered (a link gets
+ * its action after registration, for instance), so newly added objects are only hashed
+ * when the next lookup is made.
+ *
+ * @param <T> the type of the indexed objects
+ */
+class PDFObjectIndex<T extends PDFObject> {
+
+    private final Map<Integer, List<T>> buckets = new HashMap<Integer, List<T>>();
+
+    private final List<T> pending = new ArrayList<T>();
+
+    /**
+     * Adds an object to the index.
+     *
+     * @param obj the object to add
+     */
+    void add(T obj) {
+        pending.add(obj);
+    }
+
+    /**
+     * Returns the first added object whose content is equal to the given one.
+     *
+     * @param compare the reference object
+     * @return the matching object, null if none was found
+     */
+    T find(T compare) {
+        indexPending();
+        List<T> bucket = buckets.get(compare.contentHashCode());
+        if (bucket != null) {
+            for (T obj : bucket) {
+                if (compare.contentEquals(obj)) {
+                    return obj;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all objects from the index.
+     */
+    void clear() {
+        buckets.clear();
+        pending.clear();
+    }
+
+    private void indexPending() {
+        for (T obj : pending) {
+            Integer hash = obj.contentHashCode();
+            List<T> bucket = buckets.get(hash);
+            if (bucket == null) {
+                bucket = new ArrayList<T>(1);
+                buckets.put(hash, bucket);
+            }
+            bucket.add(obj);
+        }
+        pending.clear();
+    }
+}
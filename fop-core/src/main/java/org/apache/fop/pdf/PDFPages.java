@@ -79,12 +79,22 @@ public class PDFPages extends PDFObject {
                 throw new IllegalStateException("A page already exists at index "
                         + idx + " (zero-based).");
             }
-            this.kids.set(idx, page.makeReference());
+            this.kids.set(idx, makeKidReference(page));
         } else {
-            this.kids.add(page.makeReference());
+            this.kids.add(makeKidReference(page));
         }
     }
 
+    /** Creates the reference to a child page held in the /Kids array. */
+    private PDFReference makeKidReference(PDFPage page) {
+        PDFReference ref = page.makeReference();
+        if (getDocument() != null && getDocument().isStreamingEnabled()) {
+            //Don't keep the pages that have been written alive
+            ref.releaseObject();
+        }
+        return ref;
+    }
+
     /**
      * get the count of /Page objects
      *
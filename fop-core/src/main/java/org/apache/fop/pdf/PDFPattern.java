@@ -420,4 +420,18 @@ public class PDFPattern extends PDFPathPaint {
         return true;
     }
 
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        int result = patternType;
+        result = 31 * result + paintType;
+        result = 31 * result + tilingType;
+        long step = Double.doubleToLongBits(xStep + 0.0);
+        result = 31 * result + (int) (step ^ (step >>> 32));
+        step = Double.doubleToLongBits(yStep + 0.0);
+        result = 31 * result + (int) (step ^ (step >>> 32));
+        result = 31 * result + (bBox == null ? 0 : bBox.hashCode());
+        result = 31 * result + (matrix == null ? 0 : matrix.hashCode());
+        return 31 * result + (shading == null ? 0 : shading.hashCode());
+    }
+
 }
@@ -77,6 +77,14 @@ public class PDFReference implements PDFWritable {
         }
     }
 
+    /**
+     * Releases the referenced object so that only the object number is kept. After this,
+     * {@link #getObject()} returns null.
+     */
+    public void releaseObject() {
+        this.objReference = null;
+    }
+
     /**
      * Returns the object number.
      * @return the object number
@@ -175,4 +175,22 @@ public class PDFShading extends PDFObject {
         return true;
     }
 
+    /** {@inheritDoc} */
+    protected int contentHashCode() {
+        int result = shading.getShadingType();
+        result = 31 * result + (shading.isAntiAlias() ? 1 : 0);
+        result = 31 * result + shading.getBitsPerCoordinate();
+        result = 31 * result + shading.getBitsPerFlag();
+        result = 31 * result + shading.getBitsPerComponent();
+        result = 31 * result + shading.getVerticesPerRow();
+        result = 31 * result + hashCodeOf(shading.getColorSpace());
+        result = 31 * result + hashCodeOf(shading.getCoords());
+        result = 31 * result + hashCodeOf(shading.getExtend());
+        return 31 * result + hashCodeOf(shading.getFunction());
+    }
+
+    private static int hashCodeOf(Object obj) {
+        return obj == null ? 0 : obj.hashCode();
+    }
+
 }
@@ -22,7 +22,6 @@ package org.apache.fop.pdf;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -42,8 +41,12 @@ public class PDFStream extends AbstractPDFStream {
      */
     protected StreamCache data;
 
+    /** Size above which the pending content is written to the stream cache */
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    /** Content added to the stream that has not been written to the stream cache yet */
+    private transient PDFContentWriter pending;
     private transient Writer streamWriter;
-    private transient char[] charBuffer;
 
     /**
      * Create an empty stream object
@@ -70,27 +73,40 @@ public class PDFStream extends AbstractPDFStream {
     private void setUp() {
         try {
             data = StreamCacheFactory.getInstance().createStreamCache();
-            this.streamWriter = new OutputStreamWriter(
-                    getBufferOutputStream(), PDFDocument.ENCODING);
-            //Buffer to minimize calls to the converter
-            this.streamWriter = new java.io.BufferedWriter(this.streamWriter);
+            pending = new PDFContentWriter(FLUSH_THRESHOLD + 1024);
+            this.streamWriter = new PendingContentWriter();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void setDocument(PDFDocument doc) {
+        super.setDocument(doc);
+        StreamCacheFactory factory = getStreamCacheFactory();
+        if (factory != StreamCacheFactory.getInstance() && !(data instanceof TieredStreamCache)) {
+            //Move the data into a cache of the document's factory
+            try {
+                flush();
+                StreamCache cache = factory.createStreamCache(data.getSize());
+                data.outputContents(cache.getOutputStream());
+                data.clear();
+                data = cache;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     /**
      * Append data to the stream
      *
      * @param s the string of PDF to add
      */
     public void add(String s) {
-        try {
-            this.streamWriter.write(s);
-        } catch (IOException ex) {
-            //TODO throw the exception and catch it elsewhere
-            ex.printStackTrace();
-        }
+        pending.append(s);
+        flushIfFull();
     }
 
     /**
@@ -99,30 +115,36 @@ public class PDFStream extends AbstractPDFStream {
      * @param sb the string buffer of PDF to add
      */
     public void add(StringBuffer sb) {
-        try {
-            int nHave = sb.length();
-            if (charBuffer == null) {
-                charBuffer = new char [ nHave * 2 ];
-            } else {
-                int nAvail = charBuffer.length;
-                if (nAvail < nHave) {
-                    int nAlloc = nAvail;
-                    while (nAlloc < nHave) {
-                        nAlloc *= 2;
-                    }
-                    charBuffer = new char [ nAlloc ];
-                }
+        pending.append(sb);
+        flushIfFull();
+    }
+
+    /**
+     * Append data to the stream
+     *
+     * @param content the PDF content to add
+     */
+    public void add(PDFContentWriter content) {
+        pending.append(content);
+        flushIfFull();
+    }
+
+    private void flushIfFull() {
+        if (pending.length() >= FLUSH_THRESHOLD) {
+            try {
+                flush();
+            } catch (IOException ex) {
+                //TODO throw the exception and catch it elsewhere
+                ex.printStackTrace();
             }
-            sb.getChars(0, nHave, charBuffer, 0);
-            this.streamWriter.write(charBuffer, 0, nHave);
-        } catch (IOException ex) {
-            //TODO throw the exception and catch it elsewhere
-            ex.printStackTrace();
         }
     }
 
     private void flush() throws IOException {
-        this.streamWriter.flush();
+        if (pending.length() > 0) {
+            pending.writeTo(data.getOutputStream());
+            pending.reset();
+        }
     }
 
     /**
@@ -140,7 +162,7 @@ public class PDFStream extends AbstractPDFStream {
      * @throws IOException In case of an I/O problem
      */
     public OutputStream getBufferOutputStream() throws IOException {
-        if (this.streamWriter != null) {
+        if (this.pending != null) {
             flush(); //Just to be sure
         }
         return this.data.getOutputStream();
@@ -171,6 +193,15 @@ public class PDFStream extends AbstractPDFStream {
         }
     }
 
+    /**
+     * Discards the data of this stream once it has been written.
+     * @throws IOException in case of an I/O problem
+     */
+    void releaseData() throws IOException {
+        flush();
+        data.clear();
+    }
+
     /** {@inheritDoc} */
     protected int getSizeHint() throws IOException {
         flush();
@@ -183,6 +214,13 @@ public class PDFStream extends AbstractPDFStream {
         data.outputContents(out);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isParallelEncodingSupported() {
+        //Subclasses may generate their data on output
+        return getClass() == PDFStream.class;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -209,4 +247,34 @@ public class PDFStream extends AbstractPDFStream {
             throw new IOException(e);
         }
     }
+
+    /** Writer encoding characters into the pending content of the stream */
+    private class PendingContentWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            pending.append(cbuf, off, len);
+            if (pending.length() >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            pending.append(str.subSequence(off, off + len));
+            if (pending.length() >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            PDFStream.this.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
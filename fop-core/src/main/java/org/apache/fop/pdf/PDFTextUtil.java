@@ -21,6 +21,8 @@ package org.apache.fop.pdf;
 
 import java.awt.geom.AffineTransform;
 
+import org.apache.fop.util.CharUtilities;
+
 /**
  * Utility class for generating PDF text objects. It needs to be subclassed to add writing
  * functionality (see {@link #write(String)}).
@@ -52,7 +54,8 @@ public abstract class PDFTextUtil {
     private String endText;
     private boolean useMultiByte;
     private boolean useCid;
-    private StringBuffer bufTJ;
+    private final PDFContentWriter bufTJ = new PDFContentWriter();
+    private final PDFContentWriter code = new PDFContentWriter();
     private int textRenderingMode = TR_FILL;
 
     private String currentFontName;
@@ -77,26 +80,29 @@ public abstract class PDFTextUtil {
      */
     protected abstract void write(StringBuffer code);
 
-    private void writeAffineTransform(AffineTransform at, StringBuffer sb) {
-        double[] lt = new double[6];
-        at.getMatrix(lt);
-        PDFNumber.doubleOut(lt[0], DEC, sb);
-        sb.append(' ');
-        PDFNumber.doubleOut(lt[1], DEC, sb);
-        sb.append(' ');
-        PDFNumber.doubleOut(lt[2], DEC, sb);
-        sb.append(' ');
-        PDFNumber.doubleOut(lt[3], DEC, sb);
-        sb.append(' ');
-        PDFNumber.doubleOut(lt[4], DEC, sb);
-        sb.append(' ');
-        PDFNumber.doubleOut(lt[5], DEC, sb);
+    /**
+     * Writes PDF code. The content is only valid during the call, as the buffer is reused.
+     * Override this method to copy the bytes directly, the default implementation converts
+     * them to a String and calls {@link #write(String)}.
+     * @param code the PDF code to write
+     */
+    protected void write(PDFContentWriter code) {
+        write(code.toString());
+    }
+
+    private void writeAffineTransform(AffineTransform at, PDFContentWriter sb) {
+        sb.append(at.getScaleX(), DEC).append(' ');
+        sb.append(at.getShearY(), DEC).append(' ');
+        sb.append(at.getShearX(), DEC).append(' ');
+        sb.append(at.getScaleY(), DEC).append(' ');
+        sb.append(at.getTranslateX(), DEC).append(' ');
+        sb.append(at.getTranslateY(), DEC);
     }
 
-    private static void writeChar(int codePoint, StringBuffer sb, boolean multibyte, boolean cid) {
+    private static void writeChar(int codePoint, PDFContentWriter sb, boolean multibyte, boolean cid) {
         if (!multibyte) {
             if (cid || codePoint < 32 || codePoint > 127) {
-                sb.append("\\").append(Integer.toOctalString(codePoint));
+                sb.append('\\').appendOctal(codePoint);
             } else {
                 switch (codePoint) {
                 case '(':
@@ -106,14 +112,14 @@ public abstract class PDFTextUtil {
                     break;
                 default:
                 }
-                sb.appendCodePoint(codePoint);
+                sb.append((char) codePoint);
             }
         } else {
-            PDFText.toUnicodeHex(codePoint, sb);
+            sb.appendHex(codePoint, CharUtilities.isBmpCodePoint(codePoint) ? 4 : 6);
         }
     }
 
-    private void writeChar(int codePoint, StringBuffer sb) {
+    private void writeChar(int codePoint, PDFContentWriter sb) {
         writeChar(codePoint, sb, useMultiByte, useCid);
     }
 
@@ -169,10 +175,10 @@ public abstract class PDFTextUtil {
     public void concatMatrix(AffineTransform at) {
         if (!at.isIdentity()) {
             writeTJ();
-            StringBuffer sb = new StringBuffer();
-            writeAffineTransform(at, sb);
-            sb.append(" cm\n");
-            write(sb);
+            code.reset();
+            writeAffineTransform(at, code);
+            code.append(" cm\n");
+            write(code);
         }
     }
 
@@ -183,13 +189,13 @@ public abstract class PDFTextUtil {
      */
     public void writeTf(String fontName, double fontSize) {
         checkInTextObject();
-        StringBuffer sb = new StringBuffer();
-        sb.append('/');
-        sb.append(fontName);
-        sb.append(' ');
-        PDFNumber.doubleOut(fontSize, 6, sb);
-        sb.append(" Tf\n");
-        write(sb);
+        code.reset();
+        code.append('/');
+        code.append(fontName);
+        code.append(' ');
+        code.append(fontSize, 6);
+        code.append(" Tf\n");
+        write(code);
         this.startText = useMultiByte ? "<" : "(";
         this.endText = useMultiByte ? ">" : ")";
     }
@@ -224,7 +230,9 @@ public abstract class PDFTextUtil {
         if (mode != this.textRenderingMode) {
             writeTJ();
             this.textRenderingMode = mode;
-            write(this.textRenderingMode + " Tr\n");
+            code.reset();
+            code.append(this.textRenderingMode).append(" Tr\n");
+            write(code);
         }
     }
 
@@ -252,10 +260,10 @@ public abstract class PDFTextUtil {
      * @param localTransform the new text transformation matrix
      */
     public void writeTextMatrix(AffineTransform localTransform) {
-        StringBuffer sb = new StringBuffer();
-        writeAffineTransform(localTransform, sb);
-        sb.append(" Tm ");
-        write(sb);
+        code.reset();
+        writeAffineTransform(localTransform, code);
+        code.append(" Tm ");
+        write(code);
     }
 
     /**
@@ -271,9 +279,6 @@ public abstract class PDFTextUtil {
      * @param codePoint the mapped character (code point/character code)
      */
     public void writeTJMappedCodePoint(int codePoint) {
-        if (bufTJ == null) {
-            bufTJ = new StringBuffer();
-        }
         if (bufTJ.length() == 0) {
             bufTJ.append('[');
             bufTJ.append(startText);
@@ -299,16 +304,13 @@ public abstract class PDFTextUtil {
      * @param adjust the glyph adjust value in thousands of text unit space.
      */
     public void adjustGlyphTJ(double adjust) {
-        if (bufTJ == null) {
-            bufTJ = new StringBuffer();
-        }
         if (bufTJ.length() == 0) {
             bufTJ.append('[');
         } else {
             bufTJ.append(endText);
             bufTJ.append(' ');
         }
-        PDFNumber.doubleOut(adjust, DEC - 4, bufTJ);
+        bufTJ.append(adjust, DEC - 4);
         bufTJ.append(' ');
         bufTJ.append(startText);
     }
@@ -322,12 +324,12 @@ public abstract class PDFTextUtil {
             bufTJ.append(endText);
             bufTJ.append("] TJ\n");
             write(bufTJ);
-            bufTJ.setLength(0);
+            bufTJ.reset();
         }
     }
 
     private boolean isInString() {
-        return bufTJ != null && bufTJ.length() > 0;
+        return bufTJ.length() > 0;
     }
 
     /**
@@ -336,12 +338,10 @@ public abstract class PDFTextUtil {
      * @param y coordinate
      */
     public void writeTd(double x, double y) {
-        StringBuffer sb = new StringBuffer();
-        PDFNumber.doubleOut(x, DEC, sb);
-        sb.append(' ');
-        PDFNumber.doubleOut(y, DEC, sb);
-        sb.append(" Td\n");
-        write(sb);
+        code.reset();
+        code.append(x, DEC).append(' ');
+        code.append(y, DEC).append(" Td\n");
+        write(code);
     }
 
     /**
@@ -349,12 +349,12 @@ public abstract class PDFTextUtil {
      * @param ch character code to write
      */
     public void writeTj(char ch, boolean multibyte, boolean cid) {
-        StringBuffer sb = new StringBuffer();
-        sb.append(startText);
-        writeChar(ch, sb, multibyte, cid);
-        sb.append(endText);
-        sb.append(" Tj\n");
-        write(sb);
+        code.reset();
+        code.append(startText);
+        writeChar(ch, code, multibyte, cid);
+        code.append(endText);
+        code.append(" Tj\n");
+        write(code);
     }
 
 }
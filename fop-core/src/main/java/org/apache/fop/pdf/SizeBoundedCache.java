@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base class for the caches that share data between the documents produced with a same
+ * FopFactory. The size of the cache is the sum of the sizes of its values, in bytes, and the
+ * least recently used entries are evicted once the cache exceeds its maximum size.
+ * <p>
+ * This class is thread-safe.
+ * @param <V> the type of the cached values
+ */
+public abstract class SizeBoundedCache<V> {
+
+    private final Map<String, V> entries = new LinkedHashMap<String, V>(16, 0.75f, true);
+
+    private long maximumSize;
+
+    private long size;
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     * @param maximumSize the maximum number of bytes to hold
+     */
+    protected SizeBoundedCache(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the size of a value, in bytes.
+     * @param value the value
+     * @return the size of the value
+     */
+    protected abstract long sizeOf(V value);
+
+    /**
+     * Returns a value from the cache.
+     * @param key the cache key
+     * @return the value, or null if the key is not in the cache. The value must not be
+     * modified.
+     */
+    public synchronized V get(String key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Indicates whether a value of the given size may be put into the cache. Values bigger
+     * than a quarter of the cache are not cached, so they cannot evict all others.
+     * @param dataSize the size of the value
+     * @return true if a value of this size is accepted
+     */
+    public synchronized boolean accepts(long dataSize) {
+        return dataSize <= maximumSize / 4;
+    }
+
+    /**
+     * Puts a value into the cache.
+     * @param key the cache key
+     * @param value the value, must not be modified once in the cache
+     */
+    public synchronized void put(String key, V value) {
+        long valueSize = sizeOf(value);
+        if (!accepts(valueSize)) {
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            size -= sizeOf(previous);
+        }
+        size += valueSize;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<V> iter = entries.values().iterator();
+        while (size > maximumSize && iter.hasNext()) {
+            size -= sizeOf(iter.next());
+            iter.remove();
+        }
+    }
+
+    /**
+     * Sets the maximum number of bytes the cache holds.
+     * @param maximumSize the maximum size, 0 to disable the cache
+     */
+    public synchronized void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        evict();
+    }
+
+    /**
+     * Returns the maximum number of bytes the cache holds.
+     * @return the maximum size
+     */
+    public synchronized long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of bytes held by the cache.
+     * @return the size of the cache
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found their key in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find their key in the cache.
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+}
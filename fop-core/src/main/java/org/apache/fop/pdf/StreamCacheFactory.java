@@ -26,7 +26,9 @@ import java.io.IOException;
  */
 public final class StreamCacheFactory {
 
-    private static StreamCacheFactory memoryInstance = new StreamCacheFactory();
+    private static StreamCacheFactory memoryInstance = new StreamCacheFactory(null);
+
+    private final StreamCacheStore store;
 
     /**
      * Returns an instance of a StreamCacheFactory with the requested features.
@@ -36,11 +38,24 @@ public final class StreamCacheFactory {
         return memoryInstance;
     }
 
+    /**
+     * Returns a new StreamCacheFactory creating {@link TieredStreamCache}s. Small streams are
+     * kept on the heap, bigger ones in direct buffers up to the given memory budget, and
+     * large ones in a memory-mapped scratch file shared by all the caches of the factory.
+     * The factory should be closed once its caches are no longer used.
+     * @param memoryBudget the maximum number of bytes to hold in direct buffers
+     * @return a new factory
+     */
+    public static StreamCacheFactory newTieredInstance(long memoryBudget) {
+        return new StreamCacheFactory(new StreamCacheStore(memoryBudget));
+    }
+
     /**
      * Creates a new StreamCacheFactory.
-     * @param cacheToFile True if file shall be cached using a temporary file
+     * @param store the store for tiered caches, null for in-memory caches
      */
-    private StreamCacheFactory() {
+    private StreamCacheFactory(StreamCacheStore store) {
+        this.store = store;
     }
 
     /**
@@ -50,7 +65,7 @@ public final class StreamCacheFactory {
      * @return a new StreamCache for caching streams
      */
     public StreamCache createStreamCache() throws IOException {
-        return new InMemoryStreamCache();
+        return createStreamCache(0);
     }
 
     /**
@@ -61,6 +76,19 @@ public final class StreamCacheFactory {
      * @return a new StreamCache for caching streams
      */
     public StreamCache createStreamCache(int hintSize) throws IOException {
-        return new InMemoryStreamCache(hintSize);
+        if (store == null) {
+            return hintSize > 0 ? new InMemoryStreamCache(hintSize) : new InMemoryStreamCache();
+        }
+        return new TieredStreamCache(store, hintSize);
+    }
+
+    /**
+     * Releases the resources shared by the caches created by this factory. Does nothing for
+     * the in-memory factory.
+     */
+    public void close() {
+        if (store != null) {
+            store.close();
+        }
     }
 }
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Storage shared by the {@link TieredStreamCache}s of a document. It hands out fixed-size
+ * blocks, either direct buffers taken from a pool limited by a memory budget, or regions of
+ * a single memory-mapped scratch file. Blocks are reused once they are released.
+ * <p>
+ * This class is thread-safe.
+ */
+final class StreamCacheStore {
+
+    /** The size of a block */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /** The number of blocks mapped at once from the scratch file (16MB) */
+    private static final int BLOCKS_PER_SEGMENT = 256;
+
+    private static final long SEGMENT_SIZE = (long) BLOCK_SIZE * BLOCKS_PER_SEGMENT;
+
+    private static final Log LOG = LogFactory.getLog(StreamCacheStore.class);
+
+    private final long memoryBudget;
+
+    private long directBytes;
+
+    private final List<Block> freeDirectBlocks = new ArrayList<Block>();
+
+    private final List<Block> freeFileBlocks = new ArrayList<Block>();
+
+    private int segmentCount;
+
+    private File scratchFile;
+
+    private RandomAccessFile scratch;
+
+    private boolean closed;
+
+    /**
+     * Creates a new store.
+     * @param memoryBudget the maximum number of bytes to allocate in direct buffers
+     */
+    StreamCacheStore(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns a block held in a direct buffer.
+     * @return the block, or null if the memory budget is exhausted
+     */
+    synchronized Block allocateDirectBlock() {
+        checkNotClosed();
+        if (!freeDirectBlocks.isEmpty()) {
+            return freeDirectBlocks.remove(freeDirectBlocks.size() - 1);
+        }
+        if (directBytes + BLOCK_SIZE > memoryBudget) {
+            return null;
+        }
+        directBytes += BLOCK_SIZE;
+        return new Block(ByteBuffer.allocateDirect(BLOCK_SIZE), false);
+    }
+
+    /**
+     * Returns a block held in the scratch file.
+     * @return the block
+     * @throws IOException if the scratch file cannot be created or extended
+     */
+    synchronized Block allocateFileBlock() throws IOException {
+        checkNotClosed();
+        if (!freeFileBlocks.isEmpty()) {
+            return freeFileBlocks.remove(freeFileBlocks.size() - 1);
+        }
+        if (scratch == null) {
+            scratchFile = File.createTempFile("org.apache.fop.pdf.StreamCache-", ".temp");
+            scratchFile.deleteOnExit();
+            scratch = new RandomAccessFile(scratchFile, "rw");
+        }
+        //Map a new segment and add all its blocks to the free list
+        MappedByteBuffer segment = scratch.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                segmentCount * SEGMENT_SIZE, SEGMENT_SIZE);
+        segmentCount++;
+        for (int i = BLOCKS_PER_SEGMENT - 1; i >= 0; i--) {
+            ByteBuffer buffer = segment.duplicate();
+            buffer.position(i * BLOCK_SIZE);
+            buffer.limit((i + 1) * BLOCK_SIZE);
+            freeFileBlocks.add(new Block(buffer.slice(), true));
+        }
+        return freeFileBlocks.remove(freeFileBlocks.size() - 1);
+    }
+
+    /**
+     * Returns a block to the store so it can be reused.
+     * @param block the block
+     */
+    synchronized void release(Block block) {
+        if (closed) {
+            return;
+        }
+        block.buffer.clear();
+        if (block.inFile) {
+            freeFileBlocks.add(block);
+        } else {
+            freeDirectBlocks.add(block);
+        }
+    }
+
+    /**
+     * Releases the resources held by this store. The blocks it has handed out must no
+     * longer be used.
+     */
+    synchronized void close() {
+        closed = true;
+        freeDirectBlocks.clear();
+        freeFileBlocks.clear();
+        if (scratch != null) {
+            try {
+                scratch.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close stream cache scratch file: " + e.getMessage());
+            }
+            //Fails on some platforms while the file is still mapped, deleteOnExit is the fallback
+            scratchFile.delete();
+            scratch = null;
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("Stream cache store has been closed");
+        }
+    }
+
+    /** A block of storage. Its buffer's position is the number of bytes used. */
+    static final class Block {
+
+        private final ByteBuffer buffer;
+
+        private final boolean inFile;
+
+        private Block(ByteBuffer buffer, boolean inFile) {
+            this.buffer = buffer;
+            this.inFile = inFile;
+        }
+
+        ByteBuffer getBuffer() {
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.fop.pdf.StreamCacheStore.Block;
+
+/**
+ * StreamCache implementation that keeps small streams on the heap and moves bigger ones
+ * into blocks taken from a {@link StreamCacheStore}: direct buffers as long as the memory
+ * budget of the store allows it, and the store's memory-mapped scratch file for large
+ * streams or once the budget is exhausted.
+ */
+public class TieredStreamCache implements StreamCache {
+
+    /** Streams up to this size are kept on the heap */
+    static final int HEAP_LIMIT = StreamCacheStore.BLOCK_SIZE;
+
+    /** Streams bigger than this are moved into the scratch file */
+    static final int FILE_THRESHOLD = 1024 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final StreamCacheStore store;
+
+    private byte[] heap;
+
+    private final List<Block> blocks = new ArrayList<Block>();
+
+    private int size;
+
+    private boolean useFile;
+
+    private final OutputStream output = new CacheOutputStream();
+
+    /**
+     * Creates a new TieredStreamCache.
+     * @param store the store providing the storage for bigger streams
+     * @param hintSize a hint about the approximate expected size of the buffer
+     */
+    TieredStreamCache(StreamCacheStore store, int hintSize) {
+        this.store = store;
+        if (hintSize > FILE_THRESHOLD) {
+            useFile = true;
+        }
+        if (hintSize <= HEAP_LIMIT) {
+            heap = new byte[hintSize <= 0 ? 512 : hintSize];
+        }
+    }
+
+    /** {@inheritDoc} */
+    public OutputStream getOutputStream() throws IOException {
+        return output;
+    }
+
+    /** {@inheritDoc} */
+    public void write(byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    private void write(byte[] data, int off, int len) throws IOException {
+        if (heap != null) {
+            if (size + len <= HEAP_LIMIT) {
+                if (size + len > heap.length) {
+                    byte[] newHeap = new byte[Math.min(HEAP_LIMIT, Math.max(size + len, heap.length * 2))];
+                    System.arraycopy(heap, 0, newHeap, 0, size);
+                    heap = newHeap;
+                }
+                System.arraycopy(data, off, heap, size, len);
+                size += len;
+                return;
+            }
+            //Too big for the heap, move the data written so far into the store
+            byte[] heapData = heap;
+            int heapSize = size;
+            heap = null;
+            size = 0;
+            appendToBlocks(heapData, 0, heapSize);
+        }
+        appendToBlocks(data, off, len);
+    }
+
+    private void appendToBlocks(byte[] data, int off, int len) throws IOException {
+        while (len > 0) {
+            ByteBuffer buffer = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1).getBuffer();
+            if (buffer == null || !buffer.hasRemaining()) {
+                buffer = allocateBlock().getBuffer();
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.put(data, off, count);
+            off += count;
+            len -= count;
+            size += count;
+        }
+    }
+
+    private Block allocateBlock() throws IOException {
+        if (!useFile && size >= FILE_THRESHOLD) {
+            useFile = true;
+        }
+        Block block = useFile ? null : store.allocateDirectBlock();
+        if (block == null) {
+            block = store.allocateFileBlock();
+        }
+        blocks.add(block);
+        return block;
+    }
+
+    /** {@inheritDoc} */
+    public int outputContents(OutputStream out) throws IOException {
+        if (heap != null) {
+            out.write(heap, 0, size);
+        } else if (!blocks.isEmpty()) {
+            byte[] transfer = new byte[8192];
+            for (Block block : blocks) {
+                ByteBuffer buffer = block.getBuffer().duplicate();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int count = Math.min(transfer.length, buffer.remaining());
+                    buffer.get(transfer, 0, count);
+                    out.write(transfer, 0, count);
+                }
+            }
+        }
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    public int getSize() throws IOException {
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    public void clear() throws IOException {
+        for (Block block : blocks) {
+            store.release(block);
+        }
+        blocks.clear();
+        heap = EMPTY;
+        size = 0;
+        useFile = false;
+    }
+
+    private class CacheOutputStream extends OutputStream {
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            TieredStreamCache.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            TieredStreamCache.this.write(b, off, len);
+        }
+    }
+}
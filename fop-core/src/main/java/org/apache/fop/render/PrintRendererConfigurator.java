@@ -159,7 +159,8 @@ public abstract class PrintRendererConfigurator extends AbstractRendererConfigur
     protected FontCollection createCollectionFromFontList(InternalResourceResolver resolver,
             List<EmbedFontInfo> fontList) {
         return new CustomFontCollection(resolver, fontList,
-                userAgent.isComplexScriptFeaturesEnabled());
+                userAgent.isComplexScriptFeaturesEnabled(),
+                userAgent.getFontManager().getLoadedFontCache());
     }
 
     private List<EmbedFontInfo> buildFontList(String mimeType) throws FOPException {
@@ -25,7 +25,9 @@ import java.io.IOException;
 import org.apache.xmlgraphics.image.loader.Image;
 
 import org.apache.fop.pdf.PDFImage;
-import org.apache.fop.pdf.PDFXObject;
+import org.apache.fop.pdf.PDFImageXObject;
+import org.apache.fop.pdf.PDFObject;
+import org.apache.fop.pdf.PDFReference;
 import org.apache.fop.render.ImageHandler;
 import org.apache.fop.render.RenderingContext;
 import org.apache.fop.render.pdf.PDFLogicalStructureHandler.MarkedContentInfo;
@@ -43,8 +45,17 @@ abstract class AbstractPDFImageHandler implements ImageHandler {
         PDFRenderingContext pdfContext = (PDFRenderingContext)context;
         PDFContentGenerator generator = pdfContext.getGenerator();
         PDFImage pdfimage = createPDFImage(image, image.getInfo().getOriginalURI());
-        PDFXObject xobj = generator.getDocument().addImage(
+        PDFImageXObject xobj = generator.getDocument().addImage(
                 generator.getResourceContext(), pdfimage);
+        //Images are identified by their URI, so their data may be shared with other documents
+        xobj.setCacheable(true);
+        PDFReference softMask = pdfimage.getSoftMaskReference();
+        if (softMask != null) {
+            PDFObject mask = softMask.getObject();
+            if (mask instanceof PDFImageXObject) {
+                ((PDFImageXObject) mask).setCacheable(true);
+            }
+        }
 
         float x = (float)pos.getX() / 1000f;
         float y = (float)pos.getY() / 1000f;
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.apache.fop.pdf.PDFColorHandler;
+import org.apache.fop.pdf.PDFContentWriter;
 import org.apache.fop.pdf.PDFDocument;
 import org.apache.fop.pdf.PDFFilterList;
 import org.apache.fop.pdf.PDFLinearization;
@@ -67,6 +68,9 @@ public class PDFContentGenerator {
     private AffineTransform transform;
     private IFContext context;
 
+    /** Reusable buffer for the operators written by this generator */
+    private final PDFContentWriter contentBuffer = new PDFContentWriter();
+
     /**
      * Main constructor. Creates a new PDF stream and additional helper classes for text painting
      * and state management.
@@ -93,6 +97,9 @@ public class PDFContentGenerator {
             protected void write(StringBuffer code) {
                 currentStream.add(code);
             }
+            protected void write(PDFContentWriter code) {
+                currentStream.add(code);
+            }
         };
 
         this.currentState = new PDFPaintingState();
@@ -368,7 +375,14 @@ public class PDFContentGenerator {
         this.transform = transform;
         if (!transform.isIdentity()) {
             getState().concatenate(transform);
-            getStream().add(CTMHelper.toPDFString(transform, false) + " cm\n");
+            PDFContentWriter code = startContent();
+            code.append(transform.getScaleX(), 8).append(' ');
+            code.append(transform.getShearY(), 8).append(' ');
+            code.append(transform.getShearX(), 8).append(' ');
+            code.append(transform.getScaleY(), 8).append(' ');
+            code.append(transform.getTranslateX(), 8).append(' ');
+            code.append(transform.getTranslateY(), 8).append(" cm\n");
+            add(code);
         }
     }
 
@@ -377,12 +391,12 @@ public class PDFContentGenerator {
      * @param rect the clip rectangle
      */
     public void clipRect(Rectangle rect) {
-        StringBuffer sb = new StringBuffer();
-        sb.append(format(rect.x / 1000f)).append(' ');
-        sb.append(format(rect.y / 1000f)).append(' ');
-        sb.append(format(rect.width / 1000f)).append(' ');
-        sb.append(format(rect.height / 1000f)).append(" re W n\n");
-        add(sb.toString());
+        PDFContentWriter code = startContent();
+        code.append(rect.x / 1000f).append(' ');
+        code.append(rect.y / 1000f).append(' ');
+        code.append(rect.width / 1000f).append(' ');
+        code.append(rect.height / 1000f).append(" re W n\n");
+        add(code);
     }
 
     /**
@@ -393,6 +407,19 @@ public class PDFContentGenerator {
         getStream().add(content);
     }
 
+    /**
+     * Adds content to the stream.
+     * @param content the PDF content
+     */
+    public void add(PDFContentWriter content) {
+        getStream().add(content);
+    }
+
+    private PDFContentWriter startContent() {
+        contentBuffer.reset();
+        return contentBuffer;
+    }
+
     /**
      * Formats a float value (normally coordinates in points) as Strings.
      * @param value the value
@@ -409,7 +436,7 @@ public class PDFContentGenerator {
     public void updateLineWidth(float width) {
         if (getState().setLineWidth(width)) {
             //Only write if value has changed WRT the current line width
-            getStream().add(format(width) + " w\n");
+            add(startContent().append(width).append(" w\n"));
         }
     }
 
@@ -419,7 +446,7 @@ public class PDFContentGenerator {
      */
     public void updateCharacterSpacing(float value) {
         if (getState().setCharacterSpacing(value)) {
-            getStream().add(format(value) + " Tc\n");
+            add(startContent().append(value).append(" Tc\n"));
         }
     }
 
@@ -494,14 +521,20 @@ public class PDFContentGenerator {
      */
     public void placeImage(float x, float y, float w, float h, PDFXObject xobj) {
         saveGraphicsState();
-        add(format(w) + " 0 0 "
-                          + format(-h) + " "
-                          + format(x) + " "
-                          + format(y + h)
-                          + " cm\n" + xobj.getName() + " Do\n");
+        addImagePlacement(x, y, w, h, xobj);
         restoreGraphicsState();
     }
 
+    private void addImagePlacement(float x, float y, float w, float h, PDFXObject xobj) {
+        PDFContentWriter code = startContent();
+        code.append(w).append(" 0 0 ");
+        code.append(-h).append(' ');
+        code.append(x).append(' ');
+        code.append(y + h).append(" cm\n");
+        code.append(xobj.getName().toString()).append(" Do\n");
+        add(code);
+    }
+
     public void placeImage(AffineTransform at, String stream) {
         saveGraphicsState();
         concatenate(at);
@@ -525,11 +558,7 @@ public class PDFContentGenerator {
     public void placeImage(float x, float y, float w, float h, PDFXObject xobj,
             String structElemType, int mcid) {
         saveGraphicsState(structElemType, mcid);
-        add(format(w) + " 0 0 "
-                          + format(-h) + " "
-                          + format(x) + " "
-                          + format(y + h)
-                          + " cm\n" + xobj.getName() + " Do\n");
+        addImagePlacement(x, y, w, h, xobj);
         restoreGraphicsStateAccess();
     }
 
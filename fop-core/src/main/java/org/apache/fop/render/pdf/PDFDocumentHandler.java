@@ -255,6 +255,10 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         pdfUtil.generatePageLabel(index, name);
 
         currentPageRef = new PageReference(currentPage, size);
+        if (pdfDoc.isStreamingEnabled()) {
+            //Only the reference is needed once the page has been written
+            currentPageRef.getPageRef().releaseObject();
+        }
         this.pageReferences.put(index, currentPageRef);
 
         this.generator = new PDFContentGenerator(this.pdfDoc, this.outputStream, this.currentPage, getContext());
@@ -298,6 +302,8 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             if (!pdfDoc.isLinearizationEnabled()) {
                 this.generator.flushPDFDoc();
                 this.generator = null;
+            } else {
+                pdfDoc.spoolPendingStreams();
             }
         } catch (IOException ioe) {
             throw new IFException("I/O error in endPage()", ioe);
@@ -310,6 +316,9 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         if (!contents.containsKey(hash)) {
             pdfDoc.registerObject(stream);
             PDFReference ref = new PDFReference(stream);
+            if (pdfDoc.isStreamingEnabled()) {
+                ref.releaseObject();
+            }
             contents.put(hash, ref);
         }
         currentPage.setContents(contents.get(hash));
@@ -47,6 +47,7 @@ import org.apache.fop.fonts.MultiByteFont;
 import org.apache.fop.fonts.SingleByteFont;
 import org.apache.fop.fonts.Typeface;
 import org.apache.fop.pdf.PDFArray;
+import org.apache.fop.pdf.PDFContentWriter;
 import org.apache.fop.pdf.PDFDictionary;
 import org.apache.fop.pdf.PDFName;
 import org.apache.fop.pdf.PDFNumber;
@@ -87,6 +88,9 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
 
     private final LanguageAvailabilityChecker languageAvailabilityChecker;
 
+    /** Reusable buffer for the operators written by this painter */
+    private final PDFContentWriter content = new PDFContentWriter();
+
     private static class LanguageAvailabilityChecker {
 
         private final IFContext context;
@@ -258,11 +262,7 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
      */
     private void placeImage(Rectangle rect, PDFXObject xobj) {
         generator.saveGraphicsState();
-        generator.add(format(rect.width) + " 0 0 "
-                          + format(-rect.height) + " "
-                          + format(rect.x) + " "
-                          + format(rect.y + rect.height)
-                          + " cm " + xobj.getName() + " Do\n");
+        addImagePlacement(rect, xobj);
         generator.restoreGraphicsState();
     }
     /**
@@ -272,14 +272,20 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
      */
     private void placeImageAccess(Rectangle rect, PDFXObject xobj) {
         generator.saveGraphicsState(imageMCI.tag, imageMCI.mcid);
-        generator.add(format(rect.width) + " 0 0 "
-                          + format(-rect.height) + " "
-                          + format(rect.x) + " "
-                          + format(rect.y + rect.height)
-                          + " cm " + xobj.getName() + " Do\n");
+        addImagePlacement(rect, xobj);
         generator.restoreGraphicsStateAccess();
     }
 
+    private void addImagePlacement(Rectangle rect, PDFXObject xobj) {
+        content.reset();
+        appendCoordinate(rect.width).append(" 0 0 ");
+        appendCoordinate(-rect.height).append(' ');
+        appendCoordinate(rect.x).append(' ');
+        appendCoordinate(rect.y + rect.height).append(" cm ");
+        content.append(xobj.getName().toString()).append(" Do\n");
+        generator.add(content);
+    }
+
     /** {@inheritDoc} */
     public void drawImage(Document doc, Rectangle rect) throws IFException {
         if (accessEnabled) {
@@ -311,6 +317,15 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
         return PDFNumber.doubleOut(value / 1000f);
     }
 
+    /**
+     * Appends a coordinate to the content buffer, formatted like {@link #format(int)}.
+     * @param value the value (in millipoints)
+     * @return the content buffer
+     */
+    private PDFContentWriter appendCoordinate(int value) {
+        return content.append(value / 1000f);
+    }
+
     /** {@inheritDoc} */
     public void clipRect(Rectangle rect) throws IFException {
         generator.endTextObject();
@@ -348,20 +363,20 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
                     throw new UnsupportedOperationException("Non-Color paints NYI");
                 }
             }
-            StringBuffer sb = new StringBuffer();
-            sb.append(format(rect.x)).append(' ');
-            sb.append(format(rect.y)).append(' ');
-            sb.append(format(rect.width)).append(' ');
-            sb.append(format(rect.height)).append(" re");
+            content.reset();
+            appendCoordinate(rect.x).append(' ');
+            appendCoordinate(rect.y).append(' ');
+            appendCoordinate(rect.width).append(' ');
+            appendCoordinate(rect.height).append(" re");
             if (fill != null) {
-                sb.append(" f");
+                content.append(" f");
             }
             /* Removed from method signature as it is currently not used
             if (stroke != null) {
-                sb.append(" S");
+                content.append(" S");
             }*/
-            sb.append('\n');
-            generator.add(sb.toString());
+            content.append('\n');
+            generator.add(content);
             if (accessEnabled && getUserAgent().isPdfUAEnabled()) {
                 generator.endMarkedContentSequence();
             }
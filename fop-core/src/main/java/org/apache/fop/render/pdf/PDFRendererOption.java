@@ -99,6 +99,46 @@ public enum PDFRendererOption implements RendererConfigOption {
             return Boolean.valueOf(value);
         }
     },
+    /**
+     * Rendering Options key for compact output, which writes all objects but streams into
+     * object streams, default: false
+     */
+    COMPACT("compact", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for streaming output, which releases the pages once they have
+     * been written, default: false
+     */
+    STREAMING("streaming", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for the number of threads used to encode content streams,
+     * default: 0 (streams are encoded on the rendering thread)
+     */
+    STREAM_ENCODING_THREADS("stream-encoding-threads", 0) {
+        @Override
+        Integer deserialize(String value) {
+            return Integer.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for the number of bytes of stream data that may be held in
+     * memory outside the Java heap, default: 0 (all stream data is kept on the heap)
+     */
+    STREAM_CACHE_MEMORY_BUDGET("stream-cache-memory-budget", 0L) {
+        @Override
+        Long deserialize(String value) {
+            return Long.valueOf(value);
+        }
+    },
     /** Rendering Options key for the ICC profile for the output intent. */
     OUTPUT_PROFILE("output-profile") {
         @Override
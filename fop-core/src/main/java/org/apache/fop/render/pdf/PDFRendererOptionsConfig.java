@@ -31,6 +31,7 @@ import org.apache.fop.pdf.PDFVTMode;
 import org.apache.fop.pdf.PDFXMode;
 import org.apache.fop.pdf.Version;
 
+import static org.apache.fop.render.pdf.PDFRendererOption.COMPACT;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
@@ -41,6 +42,9 @@ import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_UA_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_VT_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAMING;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_CACHE_MEMORY_BUDGET;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_ENCODING_THREADS;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -147,4 +151,20 @@ public final class PDFRendererOptionsConfig {
     public Boolean getFormXObjectEnabled() {
         return (Boolean)properties.get(FORM_XOBJECT);
     }
+
+    public Boolean getCompactEnabled() {
+        return (Boolean)properties.get(COMPACT);
+    }
+
+    public Boolean getStreamingEnabled() {
+        return (Boolean)properties.get(STREAMING);
+    }
+
+    public Integer getStreamEncodingThreads() {
+        return (Integer)properties.get(STREAM_ENCODING_THREADS);
+    }
+
+    public Long getStreamCacheMemoryBudget() {
+        return (Long)properties.get(STREAM_CACHE_MEMORY_BUDGET);
+    }
 }
@@ -595,10 +595,14 @@ class PDFRenderingUtil {
         updateInfo();
         updatePDFProfiles();
         pdfDoc.setFilterMap(rendererConfig.getFilterMap());
-        pdfDoc.outputHeader(out);
+        pdfDoc.setStreamCacheMemoryBudget(rendererConfig.getStreamCacheMemoryBudget());
 
         //Setup encryption if necessary
         PDFEncryptionManager.setupPDFEncryption(rendererConfig.getEncryptionParameters(), pdfDoc);
+        //The header decides on the object streams, which depend on these settings
+        pdfDoc.setLinearizationEnabled(rendererConfig.getLinearizationEnabled());
+        pdfDoc.setCompactEnabled(rendererConfig.getCompactEnabled());
+        pdfDoc.outputHeader(out);
 
         addsRGBColorSpace();
         if (rendererConfig.getOutputProfileURI() != null) {
@@ -619,8 +623,11 @@ class PDFRenderingUtil {
 
         this.pdfDoc.enableAccessibility(userAgent.isAccessibilityEnabled());
         pdfDoc.setMergeFontsEnabled(rendererConfig.getMergeFontsEnabled());
-        pdfDoc.setLinearizationEnabled(rendererConfig.getLinearizationEnabled());
         pdfDoc.setFormXObjectEnabled(rendererConfig.getFormXObjectEnabled());
+        pdfDoc.setEncodedImageCache(userAgent.getEncodedImageCache());
+        pdfDoc.setFontSubsetCache(userAgent.getFontSubsetCache());
+        pdfDoc.setStreamingEnabled(rendererConfig.getStreamingEnabled());
+        pdfDoc.setStreamEncodingThreads(rendererConfig.getStreamEncodingThreads());
 
         return this.pdfDoc;
     }
@@ -28,13 +28,16 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.apache.commons.io.IOUtils;
 
 import org.apache.fop.apps.FopFactory;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.hyphenation.CompactHyphenationTree;
 import org.apache.fop.hyphenation.Hyphenation;
+import org.apache.fop.hyphenation.HyphenationCache;
 import org.apache.fop.hyphenation.HyphenationException;
 import org.apache.fop.hyphenation.HyphenationTree;
 import org.apache.fop.hyphenation.Hyphenator;
@@ -75,6 +78,32 @@ public class HyphenationTestCase {
         f.delete();
     }
 
+    @Test
+    public void testHyphenatorCompact() throws HyphenationException, IOException {
+        File f = File.createTempFile("hyp", "fop");
+        f.delete();
+        f.mkdir();
+        InternalResourceResolver resourceResolver = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                f.toURI());
+
+        HyphenationTree hTree = new HyphenationTree();
+        hTree.loadPatterns(new File("test/resources/fop/fr.xml").getAbsolutePath());
+        File hyp = new File(f, "fr.hyp");
+        FileOutputStream out = new FileOutputStream(hyp);
+        CompactHyphenationTree.write(hTree, out);
+        out.close();
+
+        Hyphenation hyph = Hyphenator.hyphenate("fr.hyp" + Hyphenator.HYPTYPE, null, resourceResolver, null,
+                "oello", 0, 0, fopFactory.newFOUserAgent());
+        assertEquals(hyph.toString(), "oel-lo");
+        CompactHyphenationTree mapped = CompactHyphenationTree.map(hyp);
+        assertEquals(hTree.hyphenate("hello", 0, 0).toString(), mapped.hyphenate("hello", 0, 0).toString());
+        assertEquals(hTree.findPattern("he"), mapped.findPattern("he"));
+
+        hyp.delete();
+        f.delete();
+    }
+
     @Test
     public void testHyphenatorCache() throws IOException {
         File f = File.createTempFile("hyp", "fop");
@@ -99,4 +128,22 @@ public class HyphenationTestCase {
         frxml.delete();
         f.delete();
     }
+
+    @Test
+    public void testHyphenationCache() throws HyphenationException {
+        HyphenationTree hTree = new HyphenationTree();
+        hTree.loadPatterns(new File("test/resources/fop/fr.xml").getAbsolutePath());
+        HyphenationCache cache = new HyphenationCache();
+        Hyphenation hyph = cache.hyphenate(hTree, "hello", 0, 0);
+        assertEquals("-hel-lo", hyph.toString());
+        assertSame(hyph, cache.hyphenate(hTree, "hello", 0, 0));
+        assertEquals("hel-lo", cache.hyphenate(hTree, "hello", 2, 2).toString());
+        assertNull(cache.hyphenate(hTree, "hole", 0, 0));
+        assertNull(cache.hyphenate(hTree, "hole", 0, 0));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
 }
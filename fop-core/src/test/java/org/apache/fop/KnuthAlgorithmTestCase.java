@@ -19,12 +19,16 @@
 
 package org.apache.fop;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.fop.layoutmgr.BlockKnuthSequence;
 import org.apache.fop.layoutmgr.BreakingAlgorithm;
@@ -33,6 +37,7 @@ import org.apache.fop.layoutmgr.KnuthBox;
 import org.apache.fop.layoutmgr.KnuthGlue;
 import org.apache.fop.layoutmgr.KnuthPenalty;
 import org.apache.fop.layoutmgr.KnuthSequence;
+import org.apache.fop.layoutmgr.LayoutMetricsObserver;
 
 /**
  * Tests the Knuth algorithm implementation.
@@ -64,6 +69,21 @@ public class KnuthAlgorithmTestCase {
         return seq;
     }
 
+    private KnuthSequence getKnuthSequence2(int boxCount) {
+        KnuthSequence seq = new BlockKnuthSequence();
+        for (int i = 0; i < boxCount; i++) {
+            seq.add(new KnuthBox(10000, null, false));
+            if (i < boxCount - 1) {
+                seq.add(new KnuthPenalty(0, 0, false, null, false));
+            }
+        }
+
+        seq.add(new KnuthPenalty(0, KnuthPenalty.INFINITE, false, null, false));
+        seq.add(new KnuthGlue(0, Integer.MAX_VALUE, 0, null, false));
+        seq.add(new KnuthPenalty(0, -KnuthPenalty.INFINITE, false, null, false));
+        return seq;
+    }
+
     /**
      * Tests a special condition where a negative-length glue occurs directly after a break
      * possibility.
@@ -81,6 +101,88 @@ public class KnuthAlgorithmTestCase {
         assertEquals(5000, parts[1].difference);
     }
 
+    /**
+     * Tests that a second run of the algorithm reuses the nodes of the first one and finds the
+     * same breaks.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testNodesRecycled() throws Exception {
+        final int[] counts = new int[2];
+        LayoutMetricsObserver.Observer observer = new LayoutMetricsObserver.Observer() {
+            public void observeBreaking(BreakingAlgorithm algorithm, int elementCount,
+                    int createdNodeCount, int recycledNodeCount) {
+                counts[0] = createdNodeCount;
+                counts[1] = recycledNodeCount;
+            }
+        };
+        LayoutMetricsObserver.addObserver(observer);
+        try {
+            MyBreakingAlgorithm algo = new MyBreakingAlgorithm(0, 0, true, true, 0);
+            algo.setConstantLineWidth(30000);
+            KnuthSequence seq = getKnuthSequence1();
+            algo.findBreakingPoints(seq, 1, true, BreakingAlgorithm.ALL_BREAKS);
+            int createdNodeCount = counts[0];
+            assertTrue(createdNodeCount > 0);
+            assertEquals(0, counts[1]);
+
+            algo.findBreakingPoints(seq, 1, true, BreakingAlgorithm.ALL_BREAKS);
+            assertTrue(counts[1] > 0);
+            assertTrue(counts[1] <= createdNodeCount);
+            Part[] parts = algo.getParts();
+            assertEquals(6, parts.length);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(parts[i + 3].position, parts[i].position);
+                assertEquals(parts[i + 3].difference, parts[i].difference);
+            }
+        } finally {
+            LayoutMetricsObserver.removeObserver(observer);
+        }
+    }
+
+    /**
+     * Tests that runs with a bounded lookahead commit the lines as they go, and find the same
+     * breaks as a single run when there is only one way to break the sequence.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBoundedLookahead() throws Exception {
+        KnuthSequence seq = getKnuthSequence2(300);
+        MyBreakingAlgorithm algo = new MyBreakingAlgorithm(0, 0, true, true, 0);
+        algo.setConstantLineWidth(30000);
+        algo.findBreakingPoints(seq, 1, true, BreakingAlgorithm.ALL_BREAKS);
+        assertFalse(algo.isLookaheadExceeded());
+        Part[] expectedParts = algo.getParts();
+        assertEquals(100, expectedParts.length);
+
+        List<Part> parts = new ArrayList<Part>();
+        int startIndex = 0;
+        int runCount = 0;
+        boolean lookaheadExceeded;
+        do {
+            algo = new MyBreakingAlgorithm(0, 0, true, true, 0);
+            algo.setConstantLineWidth(30000);
+            algo.setMaxLookahead(2);
+            int lineCount = algo.findBreakingPoints(seq, startIndex, 1, true,
+                    BreakingAlgorithm.ALL_BREAKS);
+            lookaheadExceeded = algo.isLookaheadExceeded();
+            Part[] runParts = algo.getParts();
+            if (lookaheadExceeded) {
+                assertTrue(lineCount >= 2);
+                assertEquals(lineCount, runParts.length);
+                startIndex = runParts[runParts.length - 1].position + 1;
+            }
+            parts.addAll(Arrays.asList(runParts));
+            runCount++;
+        } while (lookaheadExceeded);
+        assertTrue(runCount > 1);
+        assertEquals(expectedParts.length, parts.size());
+        for (int i = 0; i < expectedParts.length; i++) {
+            assertEquals(expectedParts[i].position, parts.get(i).position);
+            assertEquals(expectedParts[i].difference, parts.get(i).difference);
+        }
+    }
+
     private class Part {
         private int difference;
         private double ratio;
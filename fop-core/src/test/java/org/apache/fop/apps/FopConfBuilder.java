@@ -191,6 +191,16 @@ public class FopConfBuilder implements FontConfigurator<FopConfBuilder> {
         return createElement("prefer-renderer", String.valueOf(value));
     }
 
+    /**
+     * Set the &lt;font-subset-cache-size&gt; tag within the fop.xconf.
+     *
+     * @param size the maximum size of the font subset cache, in bytes
+     * @return <b>this</b>
+     */
+    public FopConfBuilder setFontSubsetCacheSize(long size) {
+        return createElement("font-subset-cache-size", String.valueOf(size));
+    }
+
     /**
      * Set the &lt;default-page-settings&gt; tag within the fop.xconf.
      *
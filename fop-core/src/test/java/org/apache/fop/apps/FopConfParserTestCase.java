@@ -135,6 +135,13 @@ public class FopConfParserTestCase {
         assertTrue(buildFactory().getRendererFactory().isRendererPreferred());
     }
 
+    @Test
+    public void testFontSubsetCacheSize() {
+        builder.setFontSubsetCacheSize(1024 * 1024);
+        FopFactory factory = buildFactory();
+        assertEquals(1024 * 1024, factory.getFontSubsetCache().getMaximumSize());
+    }
+
     @Test
     public void testRelativeURINoBaseNoFont() throws Exception {
         checkRelativeURIs("test/config/relative-uri/no-base_no-font.xconf",
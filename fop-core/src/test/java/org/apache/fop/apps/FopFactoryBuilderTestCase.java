@@ -94,6 +94,7 @@ public class FopFactoryBuilderTestCase {
         assertEquals(FopFactoryConfig.DEFAULT_PAGE_HEIGHT, factory.getPageHeight());
         assertEquals(FopFactoryConfig.DEFAULT_PAGE_WIDTH, factory.getPageWidth());
         assertFalse(factory.getRendererFactory().isRendererPreferred());
+        assertNull(factory.getFontSubsetCache());
     }
 
     @Test
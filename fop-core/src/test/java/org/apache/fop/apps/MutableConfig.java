@@ -137,6 +137,10 @@ public final class MutableConfig implements FopFactoryConfig {
         return delegate.isTableBorderOverpaint();
     }
 
+    public long getFontSubsetCacheSize() {
+        return delegate.getFontSubsetCacheSize();
+    }
+
     public Map<String, String> getHyphenationPatternNames() {
         return delegate.getHyphenationPatternNames();
     }
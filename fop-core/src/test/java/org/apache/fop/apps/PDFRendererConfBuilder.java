@@ -29,12 +29,16 @@ import static org.apache.fop.render.pdf.PDFEncryptionOption.ENCRYPTION_LENGTH;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.ENCRYPTION_PARAMS;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.OWNER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.USER_PASSWORD;
+import static org.apache.fop.render.pdf.PDFRendererOption.COMPACT;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAMING;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_CACHE_MEMORY_BUDGET;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_ENCODING_THREADS;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -99,6 +103,26 @@ public final class PDFRendererConfBuilder extends RendererConfBuilder {
         return this;
     }
 
+    public PDFRendererConfBuilder setCompactEnabled(boolean b) {
+        createTextElement(COMPACT, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setStreamingEnabled(boolean b) {
+        createTextElement(STREAMING, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setStreamEncodingThreads(int threads) {
+        createTextElement(STREAM_ENCODING_THREADS, String.valueOf(threads));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setStreamCacheMemoryBudget(long budget) {
+        createTextElement(STREAM_CACHE_MEMORY_BUDGET, String.valueOf(budget));
+        return this;
+    }
+
     public final class EncryptionParamsBuilder {
         private final Element el;
 
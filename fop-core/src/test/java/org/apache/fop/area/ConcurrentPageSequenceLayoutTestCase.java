@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.transform.TransformerException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.blocks;
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.count;
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.document;
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.pageSequence;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.layoutengine.AreaTreeTestUtils;
+
+/**
+ * Tests that the page-sequences laid out concurrently give the same area tree as the
+ * sequential layout.
+ */
+public class ConcurrentPageSequenceLayoutTestCase {
+
+    private static final Pattern PAGE_KEY = Pattern.compile("(key=\"|internal-link=\"\\()(P\\d+)");
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    @Test
+    public void testPageSequenceOrder() throws Exception {
+        StringBuilder pageSequences = new StringBuilder();
+        for (int i = 1; i <= 8; i++) {
+            pageSequences.append(pageSequence("initial-page-number=\"1\"",
+                    blocks("Sequence " + i + " block ", (9 - i) * 3, "")));
+        }
+        String areaTree = assertSameAreaTree(document("", pageSequences.toString()));
+        assertEquals(8, count(areaTree, "<pageSequence"));
+    }
+
+    @Test
+    public void testPageNumberCitations() throws Exception {
+        String pageSequences = pageSequence("initial-page-number=\"1\"",
+                "<fo:block id=\"first\">See pages <fo:page-number-citation ref-id=\"third\"/> and"
+                        + " <fo:page-number-citation ref-id=\"second-end\"/>.</fo:block>")
+                + pageSequence("id=\"second\" initial-page-number=\"10\"",
+                        blocks("Second block ", 20, "")
+                        + "<fo:block id=\"second-end\">Back to page"
+                        + " <fo:page-number-citation ref-id=\"first\"/>.</fo:block>")
+                + pageSequence("initial-page-number=\"20\"",
+                        "<fo:block id=\"third\">The second page-sequence ends on page"
+                        + " <fo:page-number-citation-last ref-id=\"second\"/>.</fo:block>");
+        assertResolved(assertSameAreaTree(document("", pageSequences)));
+    }
+
+    @Test
+    public void testForcePageCountAndInitialPageNumbers() throws Exception {
+        String pageSequences = pageSequence("initial-page-number=\"1\" force-page-count=\"end-on-even\"",
+                blocks("First block ", 3, ""))
+                + pageSequence("initial-page-number=\"auto\"", blocks("Second block ", 12, ""))
+                + pageSequence("initial-page-number=\"7\"", blocks("Third block ", 20, ""))
+                + pageSequence("initial-page-number=\"auto-odd\" force-page-count=\"even\"",
+                        blocks("Fourth block ", 3, ""))
+                + pageSequence("initial-page-number=\"3\" force-page-count=\"odd\"",
+                        blocks("Fifth block ", 12, ""))
+                + pageSequence("initial-page-number=\"2\"", blocks("Sixth block ", 3, ""));
+        assertSameAreaTree(document("", pageSequences));
+    }
+
+    @Test
+    public void testIDResolution() throws Exception {
+        String pageSequences = pageSequence("initial-page-number=\"1\"",
+                "<fo:block id=\"start\">"
+                        + "<fo:basic-link internal-destination=\"end\">To the end</fo:basic-link>"
+                        + " on page <fo:page-number-citation ref-id=\"end\"/> of"
+                        + " <fo:page-number-citation-last ref-id=\"document\"/>.</fo:block>")
+                + pageSequence("initial-page-number=\"5\"",
+                        "<fo:block id=\"long\">" + blocks("Long block ", 30, "") + "</fo:block>")
+                + pageSequence("initial-page-number=\"auto\"",
+                        "<fo:block id=\"sequential\">The long block ends on page"
+                        + " <fo:page-number-citation-last ref-id=\"long\"/>.</fo:block>")
+                + pageSequence("initial-page-number=\"40\"",
+                        "<fo:block id=\"end\"><fo:basic-link internal-destination=\"start\">To the start"
+                        + "</fo:basic-link>, see also page <fo:page-number-citation ref-id=\"sequential\"/>."
+                        + "</fo:block>");
+        assertResolved(assertSameAreaTree(document("id=\"document\"", pageSequences)));
+    }
+
+    @Test
+    public void testThreadsEndOnError() throws Exception {
+        StringBuilder pageSequences = new StringBuilder();
+        for (int i = 1; i <= 4; i++) {
+            pageSequences.append(pageSequence("initial-page-number=\"1\"",
+                    blocks("Sequence " + i + " block ", 20, "")));
+        }
+        pageSequences.append(pageSequence("initial-page-number=\"1\"",
+                "<fo:block><fo:region-body/></fo:block>"));
+        try {
+            renderAreaTree(document("", pageSequences.toString()), 4);
+            fail("The document is invalid");
+        } catch (TransformerException e) {
+            // expected
+        }
+        long timeout = System.currentTimeMillis() + 5000;
+        while (hasLayoutThreads() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertFalse(hasLayoutThreads());
+    }
+
+    private static boolean hasLayoutThreads() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("FOP page-sequence layout") && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String assertSameAreaTree(String fo) throws Exception {
+        String expected = renderAreaTree(fo, 0);
+        for (int threads : new int[] {1, 4}) {
+            assertEquals("Layout with " + threads + " threads", expected, renderAreaTree(fo, threads));
+        }
+        return expected;
+    }
+
+    private static void assertResolved(String areaTree) {
+        // the text of an unresolved citation, and the link to an unresolved ID
+        assertFalse(areaTree.contains(">?</word>"));
+        assertFalse(areaTree.contains("internal-link=\"(,"));
+    }
+
+    private String renderAreaTree(String fo, int threads) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setPageSequenceLayoutThreads(threads);
+        return normalizePageKeys(AreaTreeTestUtils.renderAreaTree(userAgent, fo));
+    }
+
+    /**
+     * Renames the keys of the pages in document order, since they are generated in the order
+     * in which the page-sequences are laid out.
+     */
+    private static String normalizePageKeys(String areaTree) {
+        Map<String, String> keys = new HashMap<String, String>();
+        Matcher matcher = PAGE_KEY.matcher(areaTree);
+        StringBuffer normalized = new StringBuffer();
+        while (matcher.find()) {
+            String key = keys.get(matcher.group(2));
+            if (key == null) {
+                key = "P" + (keys.size() + 1);
+                keys.put(matcher.group(2), key);
+            }
+            matcher.appendReplacement(normalized, matcher.group(1) + key);
+        }
+        matcher.appendTail(normalized);
+        return normalized.toString();
+    }
+}
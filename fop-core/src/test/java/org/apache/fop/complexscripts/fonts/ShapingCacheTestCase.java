@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.nio.IntBuffer;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.fop.complexscripts.util.GlyphSequence;
+
+public class ShapingCacheTestCase {
+
+    private final ShapingCache cache = new ShapingCache();
+
+    private static GlyphSequence createSequence(int[] characters, int[] glyphs) {
+        return new GlyphSequence(IntBuffer.wrap(characters), IntBuffer.wrap(glyphs), null);
+    }
+
+    @Test
+    public void testSubstitute() {
+        GlyphSubstitutionTable gsub = mock(GlyphSubstitutionTable.class);
+        GlyphSequence ligature = createSequence(new int[] {'f', 'i'}, new int[] {100});
+        when(gsub.substitute(any(GlyphSequence.class), anyString(), anyString())).thenReturn(ligature);
+
+        GlyphSequence first = cache.substitute(gsub, createSequence(new int[] {'f', 'i'},
+                new int[] {10, 11}), "latn", "dflt");
+        GlyphSequence second = cache.substitute(gsub, createSequence(new int[] {'f', 'i'},
+                new int[] {10, 11}), "latn", "dflt");
+
+        verify(gsub, times(1)).substitute(any(GlyphSequence.class), anyString(), anyString());
+        assertEquals(1, second.getGlyphCount());
+        assertEquals(100, second.getGlyph(0));
+        assertNotSame(first, second);
+        assertNotSame(first.getAssociation(0), second.getAssociation(0));
+        assertEquals(1, cache.getHitCount());
+
+        // another language is another entry
+        cache.substitute(gsub, createSequence(new int[] {'f', 'i'}, new int[] {10, 11}), "latn", "TRK");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testPosition() {
+        GlyphPositioningTable gpos = mock(GlyphPositioningTable.class);
+        when(gpos.position(any(GlyphSequence.class), anyString(), anyString(), anyInt(),
+                any(int[].class), any(int[][].class))).thenAnswer(new Answer<Boolean>() {
+                    public Boolean answer(InvocationOnMock invocation) {
+                        int[][] adjustments = (int[][]) invocation.getArguments()[5];
+                        adjustments[1][GlyphPositioningTable.Value.IDX_X_PLACEMENT] = -50;
+                        return true;
+                    }
+                });
+        int[] widths = new int[] {500, 500};
+
+        int[][] first = cache.position(gpos, createSequence(new int[] {'A', 'V'}, new int[] {1, 2}),
+                "latn", "dflt", 12000, widths);
+        first[1][GlyphPositioningTable.Value.IDX_X_PLACEMENT] = 0;
+        int[][] second = cache.position(gpos, createSequence(new int[] {'A', 'V'}, new int[] {1, 2}),
+                "latn", "dflt", 12000, widths);
+
+        verify(gpos, times(1)).position(any(GlyphSequence.class), anyString(), anyString(), anyInt(),
+                any(int[].class), any(int[][].class));
+        assertArrayEquals(new int[] {-50, 0, 0, 0}, second[1]);
+    }
+
+    @Test
+    public void testNoAdjustments() {
+        GlyphPositioningTable gpos = mock(GlyphPositioningTable.class);
+        int[] widths = new int[] {500};
+        assertNull(cache.position(gpos, createSequence(new int[] {'A'}, new int[] {1}), "latn",
+                "dflt", 12000, widths));
+        assertNull(cache.position(gpos, createSequence(new int[] {'A'}, new int[] {1}), "latn",
+                "dflt", 12000, widths));
+        verify(gpos, times(1)).position(any(GlyphSequence.class), anyString(), anyString(), anyInt(),
+                any(int[].class), any(int[][].class));
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -195,4 +196,43 @@ public class CIDSubsetTestCase {
             assertTrue(Arrays.binarySearch(widths, width) >= 0);
         }
     }
+
+    @Test
+    public void testConcurrentMapCodePoint() throws InterruptedException {
+        MultiByteFont mbFont = mock(MultiByteFont.class);
+        final CIDSubset subset = new CIDSubset(mbFont);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 97;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            int glyphIndex = 1 + (i + offset) % 1000;
+                            subset.mapCodePoint(glyphIndex, 0x4E00 + glyphIndex);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(null, failure.get());
+        // the selectors are dense and each glyph got a single one
+        assertEquals(1001, subset.getNumberOfGlyphs());
+        BitSet selectors = new BitSet();
+        for (Map.Entry<Integer, Integer> entry : subset.getGlyphs().entrySet()) {
+            int selector = entry.getValue();
+            assertEquals(entry.getKey().intValue(), subset.getOriginalGlyphIndex(selector));
+            selectors.set(selector);
+        }
+        assertEquals(1001, selectors.cardinality());
+        assertEquals(1001, subset.getGlyphIndices().cardinality());
+        assertEquals(0x4E00 + 500, subset.getUnicode(subset.getGlyphs().get(500)));
+    }
 }
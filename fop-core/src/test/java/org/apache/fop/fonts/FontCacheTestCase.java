@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+public class FontCacheTestCase {
+
+    private File fontFile;
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws IOException {
+        fontFile = File.createTempFile("fop", ".ttf");
+        writeFontFile(16);
+        cacheFile = File.createTempFile("fop", ".cache");
+    }
+
+    @After
+    public void tearDown() {
+        fontFile.delete();
+        cacheFile.delete();
+    }
+
+    private void writeFontFile(int length) throws IOException {
+        OutputStream out = new FileOutputStream(fontFile);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        URI fontURI = fontFile.toURI();
+        InternalResourceResolver resourceResolver = ResourceResolverFactory.createInternalResourceResolver(
+                fontURI, ResourceResolverFactory.createDefaultResourceResolver());
+        List<FontTriplet> triplets = Collections.singletonList(new FontTriplet("Test", "italic", 700, 2));
+        EmbedFontInfo fontInfo = new EmbedFontInfo(new FontUris(fontURI, null), true, false, triplets,
+                "Sub");
+        fontInfo.setPostScriptName("Test-BoldItalic");
+        FontCache fontCache = new FontCache();
+        fontCache.addFont(fontInfo, resourceResolver);
+        fontCache.registerFailedFont("file:/failed.ttf", 42);
+        fontCache.saveTo(cacheFile);
+
+        FontCache loaded = FontCache.loadFrom(cacheFile);
+        assertNotNull(loaded);
+        String key = fontURI.toASCIIString();
+        assertTrue(loaded.containsFont(key));
+        assertTrue(loaded.isFailedFont("file:/failed.ttf", 42));
+        EmbedFontInfo[] fontInfos = loaded.getFontInfos(key, FontCache.getLastModified(fontURI),
+                FontCache.getLength(fontURI));
+        assertEquals(1, fontInfos.length);
+        assertEquals(fontURI, fontInfos[0].getEmbedURI());
+        assertNull(fontInfos[0].getMetricsURI());
+        assertTrue(fontInfos[0].getKerning());
+        assertFalse(fontInfos[0].getAdvanced());
+        assertEquals("Sub", fontInfos[0].getSubFontName());
+        assertEquals("Test-BoldItalic", fontInfos[0].getPostScriptName());
+        assertEquals(EmbeddingMode.AUTO, fontInfos[0].getEmbeddingMode());
+        assertEquals(EncodingMode.AUTO, fontInfos[0].getEncodingMode());
+        FontTriplet triplet = fontInfos[0].getFontTriplets().get(0);
+        assertEquals(triplets.get(0), triplet);
+        assertEquals(2, triplet.getPriority());
+
+        // a font file whose size changed is parsed again
+        long lastModified = fontFile.lastModified();
+        writeFontFile(32);
+        fontFile.setLastModified(lastModified);
+        assertNull(loaded.getFontInfos(key, FontCache.getLastModified(fontURI)));
+        assertFalse(loaded.containsFont(key));
+    }
+}
@@ -20,12 +20,16 @@ package org.apache.fop.fonts;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
 
+import static org.junit.Assert.assertEquals;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -89,4 +93,21 @@ public class FontManagerTestCase {
         sut.deleteCache();
         verify(fontCacheManager).delete();
     }
+
+    @Test
+    public void testPreloadFonts() throws URISyntaxException {
+        InternalResourceResolver rr = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                new File("test/resources/fonts/ttf").toURI());
+        FontUris fontUris = new FontUris(new URI("DejaVuLGCSerif.ttf"), null);
+        LazyFont font = new LazyFont(new EmbedFontInfo(fontUris, true, false, null, null), rr, false);
+        FontInfo fontInfo = new FontInfo();
+        fontInfo.addMetrics("F1", font);
+        fontInfo.addFontProperties("F1", "DejaVu LGC Serif", Font.STYLE_NORMAL, Font.WEIGHT_NORMAL);
+        // both triplets resolve to the same font, which is loaded once
+        List<FontTriplet> triplets = Arrays.asList(
+                new FontTriplet("DejaVu LGC Serif", Font.STYLE_NORMAL, Font.WEIGHT_NORMAL),
+                new FontTriplet("DejaVu LGC Serif", Font.STYLE_NORMAL, Font.WEIGHT_BOLD));
+        assertEquals(1, sut.preloadFonts(fontInfo, triplets));
+        assertEquals("DejaVuLGCSerif", font.getFontName());
+    }
 }
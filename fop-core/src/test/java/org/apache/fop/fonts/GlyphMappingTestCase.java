@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.text.CharacterIterator;
+import java.text.StringCharacterIterator;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.fop.traits.MinOptMax;
+
+public class GlyphMappingTestCase {
+
+    @Test
+    public void testWordMetricsCache() {
+        FontMetrics metrics = mock(FontMetrics.class);
+        when(metrics.getWidth(anyInt(), anyInt())).thenReturn(500 * 10000);
+        Map<Integer, Map<Integer, Integer>> kerning = Collections.singletonMap((int) 'A',
+                Collections.singletonMap((int) 'V', -100));
+        when(metrics.hasKerningInfo()).thenReturn(true);
+        when(metrics.getKerningInfo()).thenReturn(kerning);
+        when(metrics.getKerningTable()).thenReturn(KerningTable.fromMap(kerning));
+        Font font = new Font("F1", null, metrics, 10000);
+        TextFragment text = new StringTextFragment("AVA AVA");
+        MinOptMax[] letterSpaceAdjust = new MinOptMax[text.getEndIndex() + 1];
+
+        GlyphMapping first = GlyphMapping.doGlyphMapping(text, 0, 3, font, MinOptMax.ZERO,
+                letterSpaceAdjust, (char) 0, ' ', false, 0, false, false, false);
+        GlyphMapping second = GlyphMapping.doGlyphMapping(text, 4, 7, font, MinOptMax.ZERO,
+                letterSpaceAdjust, (char) 0, (char) 0, false, 0, false, false, false);
+
+        assertEquals(MinOptMax.getInstance(3 * 5000 - 1000), first.areaIPD);
+        assertEquals(first.areaIPD, second.areaIPD);
+        assertNull(letterSpaceAdjust[0]);
+        assertEquals(MinOptMax.getInstance(-1000), letterSpaceAdjust[1]);
+        assertNull(letterSpaceAdjust[2]);
+        assertEquals(MinOptMax.getInstance(-1000), letterSpaceAdjust[5]);
+        assertEquals(1, font.getWordMetricsCache().getHitCount());
+        assertEquals(1, font.getWordMetricsCache().getMissCount());
+
+        // the kerning with the preceding character is part of the measurements
+        GlyphMapping third = GlyphMapping.doGlyphMapping(text, 5, 7, font, MinOptMax.ZERO,
+                letterSpaceAdjust, 'A', (char) 0, false, 0, false, false, false);
+        assertEquals(MinOptMax.getInstance(2 * 5000 - 1000), third.areaIPD);
+        assertEquals(2, font.getWordMetricsCache().getMissCount());
+    }
+
+    private static final class StringTextFragment implements TextFragment {
+
+        private final String text;
+
+        StringTextFragment(String text) {
+            this.text = text;
+        }
+
+        public CharacterIterator getIterator() {
+            return new StringCharacterIterator(text);
+        }
+
+        public int getBeginIndex() {
+            return 0;
+        }
+
+        public int getEndIndex() {
+            return text.length();
+        }
+
+        public String getScript() {
+            return "auto";
+        }
+
+        public String getLanguage() {
+            return "none";
+        }
+
+        public int getBidiLevel() {
+            return -1;
+        }
+
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        public CharSequence subSequence(int startIndex, int endIndex) {
+            return text.subSequence(startIndex, endIndex);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KerningTableTestCase {
+
+    @Test
+    public void testEmpty() {
+        assertTrue(KerningTable.fromMap(null).isEmpty());
+        assertTrue(KerningTable.fromMap(new HashMap<Integer, Map<Integer, Integer>>()).isEmpty());
+        assertEquals(0, KerningTable.EMPTY.getKernValue('A', 'V'));
+    }
+
+    @Test
+    public void testSameValuesAsMap() {
+        Map<Integer, Map<Integer, Integer>> kerning = new HashMap<Integer, Map<Integer, Integer>>();
+        Random random = new Random(42);
+        int count = 0;
+        for (int i = 0; i < 5000; i++) {
+            int first = random.nextInt(0x3000);
+            Map<Integer, Integer> pairs = kerning.get(first);
+            if (pairs == null) {
+                pairs = new HashMap<Integer, Integer>();
+                kerning.put(first, pairs);
+            }
+            if (pairs.put(random.nextInt(0x3000), random.nextInt(400) - 200) == null) {
+                count++;
+            }
+        }
+        KerningTable table = KerningTable.fromMap(kerning);
+        for (int first = 0; first < 0x3000; first += 7) {
+            for (int second = 0; second < 0x3000; second += 3) {
+                assertEquals(expected(kerning, first, second), table.getKernValue(first, second));
+            }
+        }
+        for (Map.Entry<Integer, Map<Integer, Integer>> first : kerning.entrySet()) {
+            for (Map.Entry<Integer, Integer> second : first.getValue().entrySet()) {
+                assertEquals(second.getValue().intValue(),
+                        table.getKernValue(first.getKey(), second.getKey()));
+            }
+        }
+        assertEquals(count - zeroCount(kerning), table.size());
+    }
+
+    private static int expected(Map<Integer, Map<Integer, Integer>> kerning, int first, int second) {
+        Map<Integer, Integer> pairs = kerning.get(first);
+        Integer value = pairs != null ? pairs.get(second) : null;
+        return value != null ? value : 0;
+    }
+
+    private static int zeroCount(Map<Integer, Map<Integer, Integer>> kerning) {
+        int zeros = 0;
+        for (Map<Integer, Integer> pairs : kerning.values()) {
+            for (Integer value : pairs.values()) {
+                if (value == 0) {
+                    zeros++;
+                }
+            }
+        }
+        return zeros;
+    }
+}
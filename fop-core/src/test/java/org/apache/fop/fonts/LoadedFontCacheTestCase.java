@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+public class LoadedFontCacheTestCase {
+
+    private final InternalResourceResolver resolver =
+            ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+
+    private final LoadedFontCache cache = new LoadedFontCache();
+
+    private MultiByteFont getFont() throws IOException {
+        File file = new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+        FontUris fontUris = new FontUris(file.toURI(), null);
+        return (MultiByteFont) cache.getFont(fontUris, "", true, EmbeddingMode.AUTO,
+                EncodingMode.AUTO, true, true, resolver, false, false, true);
+    }
+
+    @Test
+    public void testFontIsSharedByDocuments() throws IOException {
+        MultiByteFont first = getFont();
+        MultiByteFont second = getFont();
+        assertEquals(1, cache.size());
+        assertNotSame(first, second);
+        assertEquals("DejaVuLGCSerif", second.getFontName());
+        assertSame(first.getKerningInfo(), second.getKerningInfo());
+        assertSame(first.getGSUB(), second.getGSUB());
+
+        // the glyphs used by a document are recorded by its own copy only
+        char mapped = first.mapChar('A');
+        assertEquals(second.mapChar('B'), mapped);
+        assertTrue(first.getUsedGlyphs().containsKey(first.findGlyphIndex('A')));
+        assertFalse(second.getUsedGlyphs().containsKey(first.findGlyphIndex('A')));
+        assertNotSame(first.getCIDSet(), second.getCIDSet());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        FontUris fontUris = new FontUris(new File("test/resources/fonts/ttf/missing.ttf").toURI(), null);
+        try {
+            cache.getFont(fontUris, "", true, EmbeddingMode.AUTO, EncodingMode.AUTO, true, true,
+                    resolver, false, false, true);
+            fail("The font can't be loaded");
+        } catch (IOException e) {
+            // expected
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiByteFontTestCase {
+
+    @Test
+    public void testFindGlyphIndex() {
+        MultiByteFont font = new MultiByteFont(null, null);
+        font.setCMap(new CMapSegment[] {
+                new CMapSegment(0x20, 0x7E, 3),
+                // the first segment mapping a character to a glyph wins
+                new CMapSegment(0x41, 0x41, 200),
+                new CMapSegment(0xF0, 0x110, 100),
+                new CMapSegment(0x1F600, 0x1F601, 300)});
+        assertEquals(0, font.findGlyphIndex(0x1F));
+        assertEquals(3, font.findGlyphIndex(0x20));
+        assertEquals(36, font.findGlyphIndex(0x41));
+        assertEquals(97, font.findGlyphIndex(0x7E));
+        assertEquals(0, font.findGlyphIndex(0x7F));
+        // a segment across two pages
+        assertEquals(115, font.findGlyphIndex(0xFF));
+        assertEquals(116, font.findGlyphIndex(0x100));
+        assertEquals(132, font.findGlyphIndex(0x110));
+        assertEquals(301, font.findGlyphIndex(0x1F601));
+        assertEquals(0, font.findGlyphIndex(0xFFFF));
+
+        font.setCMap(new CMapSegment[] {new CMapSegment(0x41, 0x41, 200)});
+        assertEquals(0, font.findGlyphIndex(0x20));
+        assertEquals(200, font.findGlyphIndex(0x41));
+    }
+
+    @Test
+    public void testPrivateUseMappingsAddedDuringLookups() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            final MultiByteFont font = new MultiByteFont(null, null);
+            // many segments, so that building a page takes a while
+            CMapSegment[] cmap = new CMapSegment[2000];
+            for (int i = 0; i < cmap.length; i++) {
+                cmap[i] = new CMapSegment(0x100 + i, 0x100 + i, i + 1);
+            }
+            font.setCMap(cmap);
+            final AtomicBoolean done = new AtomicBoolean();
+            Thread[] readers = new Thread[4];
+            final CountDownLatch started = new CountDownLatch(readers.length);
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new Thread() {
+                    public void run() {
+                        started.countDown();
+                        while (!done.get()) {
+                            for (int pu = 0xE000; pu < 0xF900; pu += 0x100) {
+                                font.findGlyphIndex(pu);
+                            }
+                        }
+                    }
+                };
+                readers[i].start();
+            }
+            started.await();
+            // a mapping per page, so that a page built before a mapping is not reset by the next
+            for (int pu = 0xE000; pu < 0xF900; pu += 0x100) {
+                font.addPrivateUseMapping(pu, pu - 0xE000 + 1000);
+            }
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            // no page built from the map as it was before a mapping was added is left behind
+            for (int pu = 0xE000; pu < 0xF900; pu += 0x100) {
+                assertEquals(pu - 0xE000 + 1000, font.findGlyphIndex(pu));
+            }
+        }
+    }
+
+    @Test
+    public void testPrivateUseMappingAddedWhileBuildingPage() {
+        final MultiByteFont font = new MultiByteFont(null, null);
+        font.setCMap(new CMapSegment[] {new CMapSegment(0x20, 0x7E, 3)});
+        final AtomicBoolean addMapping = new AtomicBoolean(true);
+        font.cmap = new CopyOnWriteArrayList<CMapSegment>(font.cmap) {
+            public Iterator<CMapSegment> iterator() {
+                Iterator<CMapSegment> snapshot = super.iterator();
+                // another thread maps a character of the page being built
+                if (addMapping.getAndSet(false)) {
+                    font.addPrivateUseMapping(0xE000, 1000);
+                }
+                return snapshot;
+            }
+        };
+        assertEquals(0, font.findGlyphIndex(0xE001));
+        assertEquals(1000, font.findGlyphIndex(0xE000));
+    }
+}
@@ -21,16 +21,33 @@ package org.apache.fop.fonts.truetype;
 
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.xmlgraphics.io.Resource;
+import org.apache.xmlgraphics.io.ResourceResolver;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
 
 /**
  * A test class for org.apache.fop.truetype.FontFileReader
@@ -301,4 +318,89 @@ public class FontFileReaderTestCase {
         byte[] retrievedBytes = fontReader.getBytes(0, 256);
         assertTrue(Arrays.equals(byteArray, retrievedBytes));
     }
+
+    /**
+     * Test a reader on a font file mapped into memory.
+     * @throws IOException exception
+     */
+    @Test
+    public void testMappedFile() throws IOException {
+        File file = File.createTempFile("fop", ".ttf");
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(byteArray);
+            } finally {
+                out.close();
+            }
+            ByteBuffer buffer = FontFileReader.map(file);
+            fontReader = new FontFileReader(buffer);
+            assertEquals(256, fontReader.getFileSize());
+            fontReader.seekSet(0x10);
+            assertEquals(0x10111213, fontReader.readTTFLong());
+            assertTrue(Arrays.equals(Arrays.copyOfRange(byteArray, 0x20, 0x30),
+                    fontReader.getBytes(0x20, 0x10)));
+
+            // writing copies the font onto the heap, leaving the shared buffer unchanged
+            fontReader.writeTTFUShort(0, 0xABCD);
+            assertEquals(0xABCD, fontReader.readTTFUShort(0));
+            assertEquals(0, buffer.get(0));
+            assertEquals(0x11, new FontFileReader(buffer).readTTFUShort(0x11) >> 8);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that a font file is mapped with the default resolver only, a resolver supplied by
+     * the user reading the font itself.
+     * @throws IOException exception
+     */
+    @Test
+    public void testGetInstance() throws IOException {
+        File file = File.createTempFile("fop", ".ttf");
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(byteArray);
+            } finally {
+                out.close();
+            }
+            URI uri = file.toURI();
+            InternalResourceResolver defaultResolver
+                    = ResourceResolverFactory.createDefaultInternalResourceResolver(uri);
+            assertNotNull(defaultResolver.getLocalFile(uri));
+            fontReader = FontFileReader.getInstance(defaultResolver, uri);
+            fontReader.seekSet(0x10);
+            assertEquals(0x10111213, fontReader.readTTFLong());
+
+            ResourceResolver userResolver = mock(ResourceResolver.class);
+            when(userResolver.getResource(any(URI.class))).thenReturn(
+                    new Resource(new ByteArrayInputStream(byteArray)));
+            InternalResourceResolver resolver
+                    = ResourceResolverFactory.createInternalResourceResolver(uri, userResolver);
+            assertNull(resolver.getLocalFile(uri));
+            fontReader = FontFileReader.getInstance(resolver, uri);
+            fontReader.seekSet(0x10);
+            assertEquals(0x10111213, fontReader.readTTFLong());
+            verify(userResolver).getResource(uri);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that no reader is returned for a font file the resolver supplied by the user does
+     * not find.
+     * @throws IOException exception
+     */
+    @Test
+    public void testGetInstanceNotFound() throws IOException {
+        URI uri = URI.create("file:///missing.ttf");
+        ResourceResolver userResolver = mock(ResourceResolver.class);
+        InternalResourceResolver resolver
+                = ResourceResolverFactory.createInternalResourceResolver(uri, userResolver);
+        assertNull(FontFileReader.getInstance(resolver, uri));
+        verify(userResolver).getResource(uri);
+    }
 }
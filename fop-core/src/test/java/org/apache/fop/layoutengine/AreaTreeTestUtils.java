@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutengine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Utility class for the tests that lay out small FO documents, built from strings, and
+ * compare or inspect the area trees produced with different settings of the user agent.
+ */
+public final class AreaTreeTestUtils {
+
+    private AreaTreeTestUtils() {
+    }
+
+    /**
+     * Lays out an FO document and returns its area tree.
+     * @param userAgent the user agent, with the settings under test
+     * @param fo the FO document
+     * @return the area tree in the XML format of the area tree renderer
+     * @throws Exception if the layout fails
+     */
+    public static String renderAreaTree(FOUserAgent userAgent, String fo) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = userAgent.newFop(MimeConstants.MIME_FOP_AREA_TREE, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new ByteArrayInputStream(fo.getBytes("UTF-8")));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * Returns an FO document with a single, small page master, whose region-before holds the
+     * static content of the page-sequences.
+     * @param rootAttributes the attributes of the fo:root
+     * @param pageSequences the page-sequences, see {@link #pageSequence(String, String)}
+     * @return the FO document
+     */
+    public static String document(String rootAttributes, String pageSequences) {
+        return "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\" " + rootAttributes + ">"
+                + "<fo:layout-master-set>"
+                + "<fo:simple-page-master master-name=\"page\" page-height=\"6cm\" page-width=\"10cm\""
+                + " margin=\"1cm\">"
+                + "<fo:region-body margin-top=\"1cm\"/>"
+                + "<fo:region-before extent=\"1cm\"/>"
+                + "</fo:simple-page-master>"
+                + "</fo:layout-master-set>"
+                + pageSequences
+                + "</fo:root>";
+    }
+
+    /**
+     * Returns a page-sequence of a document built with {@link #document(String, String)}, with
+     * the page number in the region-before.
+     * @param attributes the attributes of the fo:page-sequence
+     * @param content the content of the flow
+     * @return the page-sequence
+     */
+    public static String pageSequence(String attributes, String content) {
+        return "<fo:page-sequence master-reference=\"page\" " + attributes + ">"
+                + "<fo:static-content flow-name=\"xsl-region-before\">"
+                + "<fo:block>Page <fo:page-number/></fo:block>"
+                + "</fo:static-content>"
+                + "<fo:flow flow-name=\"xsl-region-body\">" + content + "</fo:flow>"
+                + "</fo:page-sequence>";
+    }
+
+    /**
+     * Returns blocks of a single line, whose text is the given prefix followed by the number
+     * of the block, from 1 on.
+     * @param prefix the prefix of the text of the blocks
+     * @param count the number of blocks
+     * @param content the content appended to the text of every block
+     * @return the blocks
+     */
+    public static String blocks(String prefix, int count, String content) {
+        StringBuilder blocks = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            blocks.append("<fo:block>").append(prefix).append(i).append(content).append("</fo:block>");
+        }
+        return blocks.toString();
+    }
+
+    /**
+     * Counts the occurrences of a text in an area tree.
+     * @param areaTree the area tree
+     * @param text the text
+     * @return the number of occurrences
+     */
+    public static int count(String areaTree, String text) {
+        int count = 0;
+        for (int i = areaTree.indexOf(text); i >= 0; i = areaTree.indexOf(text, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KnuthElementStoreTestCase {
+
+    @Test
+    public void testLoad() {
+        List<KnuthElement> elements = new ArrayList<KnuthElement>();
+        elements.add(new KnuthGlue(100, 20, 10, null, false));
+        elements.add(new KnuthBox(1000, null, false));
+        elements.add(new KnuthPenalty(50, 30, true, null, false));
+        elements.add(new KnuthPenalty(0, -KnuthElement.INFINITE, false, null, false));
+        KnuthElementStore store = new KnuthElementStore();
+        store.load(elements);
+        assertEquals(4, store.size());
+        assertTrue(store.isGlue(0));
+        assertEquals(100, store.getWidth(0));
+        assertEquals(20, store.getStretch(0));
+        assertEquals(10, store.getShrink(0));
+        assertTrue(store.isBox(1));
+        assertEquals(1000, store.getWidth(1));
+        assertTrue(store.isPenalty(2));
+        assertEquals(50, store.getWidth(2));
+        assertEquals(30, store.getPenalty(2));
+        assertTrue(store.isFlaggedPenalty(2));
+        assertFalse(store.isForcedBreak(2));
+        assertFalse(store.isFlaggedPenalty(3));
+        assertTrue(store.isForcedBreak(3));
+        assertSame(elements.get(3), store.getElement(3));
+        assertEquals(1, store.getFirstBoxIndex(0));
+        assertEquals(4, store.getFirstBoxIndex(2));
+    }
+
+    @Test
+    public void testReloadAndInsert() {
+        KnuthElementStore store = new KnuthElementStore();
+        List<KnuthElement> elements = new ArrayList<KnuthElement>();
+        for (int i = 0; i < 100; i++) {
+            elements.add(new KnuthBox(i, null, false));
+        }
+        store.load(elements);
+        store.insert(0, KnuthPenalty.DUMMY_ZERO_PENALTY);
+        assertEquals(101, store.size());
+        assertTrue(store.isPenalty(0));
+        assertEquals(99, store.getWidth(100));
+        assertSame(elements.get(99), store.getElement(100));
+
+        elements.clear();
+        elements.add(new KnuthGlue(5, 0, 0, null, false));
+        store.load(elements);
+        assertEquals(1, store.size());
+        assertTrue(store.isGlue(0));
+        assertEquals(1, store.getFirstBoxIndex(0));
+    }
+
+    @Test
+    public void testLoadLazily() {
+        KnuthElementStore store = new KnuthElementStore();
+        List<KnuthElement> elements = new ArrayList<KnuthElement>();
+        for (int i = 0; i < 10000; i++) {
+            elements.add(i % 2 == 0 ? new KnuthBox(i, null, false) : new KnuthGlue(i, 1, 1, null, false));
+        }
+        store.loadLazily(elements, 9001);
+        assertEquals(10000, store.size());
+        // the element before the first one used is read too
+        assertTrue(store.isBox(9000));
+        assertEquals(9000, store.getWidth(9000));
+        assertTrue(store.isGlue(9001));
+        assertEquals(9002, store.getFirstBoxIndex(9001));
+        store.ensureLoaded(9999);
+        assertSame(elements.get(9999), store.getElement(9999));
+
+        // an element inserted before the elements copied shifts them
+        elements.add(0, KnuthPenalty.DUMMY_ZERO_PENALTY);
+        store.insert(0, KnuthPenalty.DUMMY_ZERO_PENALTY);
+        assertEquals(10001, store.size());
+        assertEquals(9000, store.getWidth(9001));
+        assertSame(elements.get(10000), store.getElement(10000));
+
+        // an element inserted among them is held
+        KnuthPenalty penalty = new KnuthPenalty(0, 0, false, null, false);
+        elements.add(9500, penalty);
+        store.insert(9500, penalty);
+        assertTrue(store.isPenalty(9500));
+        assertSame(elements.get(10001), store.getElement(10001));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.blocks;
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.count;
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.document;
+import static org.apache.fop.layoutengine.AreaTreeTestUtils.pageSequence;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.layoutengine.AreaTreeTestUtils;
+
+/**
+ * Tests the page breaking with a bounded lookahead, through {@link PageBreaker}, against the
+ * page breaking of whole element lists.
+ */
+public class PageBreakingLookaheadTestCase {
+
+    private static final int[] LOOKAHEADS = {1, 3};
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    @Test
+    public void testLongFlow() throws Exception {
+        String fo = document("", pageSequence("", blocks("a", 150, "")));
+        String expected = renderAreaTree(fo, 0);
+        assertTrue(count(expected, "<pageViewport") > 10);
+        for (int lookahead : LOOKAHEADS) {
+            assertEquals("Lookahead of " + lookahead + " pages", expected, renderAreaTree(fo, lookahead));
+        }
+    }
+
+    @Test
+    public void testForcedBreaksAndPageSequences() throws Exception {
+        String fo = document("", pageSequence("", blocks("a", 40, "")
+                + "<fo:block break-before=\"page\">a41</fo:block>" + blocks("b", 60, ""))
+                + pageSequence("", blocks("c", 80, "")));
+        String expected = renderAreaTree(fo, 0);
+        for (int lookahead : LOOKAHEADS) {
+            assertEquals("Lookahead of " + lookahead + " pages", expected, renderAreaTree(fo, lookahead));
+        }
+    }
+
+    @Test
+    public void testParagraphsWithKeeps() throws Exception {
+        StringBuilder paragraphs = new StringBuilder();
+        for (int i = 1; i <= 30; i++) {
+            paragraphs.append("<fo:block orphans=\"2\" widows=\"2\"")
+                    .append(i % 3 == 0 ? " keep-with-next.within-page=\"always\">" : ">");
+            for (int j = 1; j <= 4 + i % 5; j++) {
+                paragraphs.append("p").append(i).append('w').append(j)
+                        .append(" lorem ipsum dolor sit amet consectetur adipiscing elit ");
+            }
+            paragraphs.append("</fo:block>");
+        }
+        String fo = document("", pageSequence("", paragraphs.toString()));
+        for (int lookahead : LOOKAHEADS) {
+            String areaTree = renderAreaTree(fo, lookahead);
+            for (int i = 1; i <= 30; i++) {
+                for (int j = 1; j <= 4 + i % 5; j++) {
+                    assertEquals(1, count(areaTree, ">p" + i + "w" + j + "</word>"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFootnotes() throws Exception {
+        String fo = document("", pageSequence("", blocks("a", 120, "<fo:footnote><fo:inline>*</fo:inline>"
+                + "<fo:footnote-body><fo:block>note</fo:block></fo:footnote-body></fo:footnote>")));
+        String expected = renderAreaTree(fo, 0);
+        for (int lookahead : LOOKAHEADS) {
+            String areaTree = renderAreaTree(fo, lookahead);
+            for (int i = 1; i <= 120; i++) {
+                assertEquals(1, count(areaTree, ">a" + i + "</word>"));
+            }
+            assertEquals(count(expected, ">note</word>"), count(areaTree, ">note</word>"));
+        }
+    }
+
+    private String renderAreaTree(String fo, int lookahead) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setPageBreakingLookahead(lookahead);
+        return AreaTreeTestUtils.renderAreaTree(userAgent, fo);
+    }
+}
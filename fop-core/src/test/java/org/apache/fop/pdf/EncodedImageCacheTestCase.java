@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class EncodedImageCacheTestCase {
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        EncodedImageCache cache = new EncodedImageCache(400);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("c", new byte[100]);
+        assertNotNull(cache.get("a"));
+        cache.put("d", new byte[100]);
+        cache.put("e", new byte[100]);
+        assertEquals(400, cache.getSize());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("e"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLargeImagesNotCached() {
+        EncodedImageCache cache = new EncodedImageCache(400);
+        assertFalse(cache.accepts(101));
+        cache.put("a", new byte[101]);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testShrink() {
+        EncodedImageCache cache = new EncodedImageCache(400);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.setMaximumSize(100);
+        assertEquals(100, cache.getSize());
+        assertNotNull(cache.get("b"));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.apache.fop.fonts.EmbeddingMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FontSubsetCacheTestCase {
+
+    private static final URI FONT_URI = URI.create("file:///fonts/font.ttf");
+
+    @Test
+    public void testKeyIgnoresGlyphOrder() {
+        Map<Integer, Integer> glyphs = new LinkedHashMap<Integer, Integer>();
+        glyphs.put(0, 0);
+        glyphs.put(36, 1);
+        glyphs.put(72, 2);
+        Map<Integer, Integer> reversed = new LinkedHashMap<Integer, Integer>();
+        reversed.put(72, 2);
+        reversed.put(36, 1);
+        reversed.put(0, 0);
+        assertEquals(createKey(glyphs), createKey(reversed));
+    }
+
+    @Test
+    public void testKeyDependsOnSubset() {
+        Map<Integer, Integer> glyphs = new HashMap<Integer, Integer>();
+        glyphs.put(0, 0);
+        glyphs.put(36, 1);
+        glyphs.put(72, 2);
+        String key = createKey(glyphs);
+        Map<Integer, Integer> otherIndices = new HashMap<Integer, Integer>(glyphs);
+        otherIndices.put(36, 2);
+        otherIndices.put(72, 1);
+        assertFalse(key.equals(createKey(otherIndices)));
+        Map<Integer, Integer> moreGlyphs = new HashMap<Integer, Integer>(glyphs);
+        moreGlyphs.put(80, 3);
+        assertFalse(key.equals(createKey(moreGlyphs)));
+        assertFalse(key.equals(FontSubsetCache.createKey(FONT_URI, "Bold", EmbeddingMode.SUBSET,
+                glyphs)));
+        assertFalse(key.equals(FontSubsetCache.createKey(URI.create("file:///fonts/other.ttf"),
+                null, EmbeddingMode.SUBSET, glyphs)));
+    }
+
+    private String createKey(Map<Integer, Integer> glyphs) {
+        return FontSubsetCache.createKey(FONT_URI, null, EmbeddingMode.SUBSET, glyphs);
+    }
+
+    @Test
+    public void testEvictionByEncodedSize() {
+        FontSubsetCache cache = new FontSubsetCache(400);
+        cache.put("a", createSubset(100));
+        cache.put("b", createSubset(100));
+        cache.put("c", createSubset(100));
+        assertNotNull(cache.get("a"));
+        cache.put("d", createSubset(100));
+        cache.put("e", createSubset(100));
+        assertEquals(400, cache.getSize());
+        assertNull(cache.get("b"));
+        assertEquals(100, cache.get("a").getEncodedData().length);
+    }
+
+    private FontSubsetCache.FontSubset createSubset(int encodedLength) {
+        return new FontSubsetCache.FontSubset(encodedLength * 2, "/Filter /FlateDecode",
+                new byte[encodedLength]);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class LinearizationSpoolTestCase {
+
+    private final LinearizationSpool spool = new LinearizationSpool();
+
+    @After
+    public void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    public void testEntries() throws IOException {
+        byte[] first = createData(100000, 3);
+        byte[] second = createData(10, 7);
+        LinearizationSpool.Entry firstEntry = spool.createEntry();
+        firstEntry.write(first);
+        LinearizationSpool.Entry secondEntry = spool.createEntry();
+        secondEntry.getOutputStream().write(second);
+        assertEquals(first.length, firstEntry.getSize());
+        assertEquals(first.length + second.length, spool.getSize());
+        assertArrayEquals(first, contents(firstEntry));
+        assertArrayEquals(second, contents(secondEntry));
+    }
+
+    @Test
+    public void testCopyIntoNewerEntry() throws IOException {
+        byte[] data = createData(200000, 5);
+        LinearizationSpool.Entry stream = spool.createEntry();
+        stream.write(data);
+        LinearizationSpool.Entry body = spool.createEntry();
+        OutputStream out = body.getOutputStream();
+        out.write('<');
+        stream.outputContents(out);
+        out.write('>');
+        byte[] bodyData = contents(body);
+        assertEquals(data.length + 2, bodyData.length);
+        assertEquals('>', bodyData[bodyData.length - 1]);
+        assertEquals(data[data.length - 1], bodyData[bodyData.length - 2]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOlderEntryIsReadOnly() throws IOException {
+        LinearizationSpool.Entry first = spool.createEntry();
+        spool.createEntry();
+        first.write(new byte[1]);
+    }
+
+    private static byte[] createData(int size, int factor) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * factor);
+        }
+        return data;
+    }
+
+    private static byte[] contents(StreamCache cache) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.outputContents(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PDFContentWriterTestCase {
+
+    @Test
+    public void testDoubleFormatMatchesDoubleOut() {
+        Random random = new Random(1234);
+        PDFContentWriter writer = new PDFContentWriter();
+        for (int i = 0; i < 100000; i++) {
+            int dec = random.nextInt(17);
+            double value;
+            switch (i % 4) {
+            case 0:
+                value = random.nextInt(2000000) / 1000f;
+                break;
+            case 1:
+                value = -random.nextInt(100000) / 8.0;
+                break;
+            case 2:
+                value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 15);
+                break;
+            default:
+                value = Double.longBitsToDouble(random.nextLong());
+                break;
+            }
+            assertDoubleOut(writer, value, dec);
+        }
+        double[] special = {0.0, -0.0, 0.5, -0.5, 2.5, 1e-7, -1e-7, 123456789012.0, 1e20,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE};
+        for (double value : special) {
+            for (int dec = 0; dec <= 16; dec++) {
+                assertDoubleOut(writer, value, dec);
+            }
+        }
+    }
+
+    private void assertDoubleOut(PDFContentWriter writer, double value, int dec) {
+        writer.reset();
+        writer.append(value, dec);
+        assertEquals(value + " with " + dec + " decimals", PDFNumber.doubleOut(value, dec),
+                writer.toString());
+    }
+
+    @Test
+    public void testIntegers() {
+        PDFContentWriter writer = new PDFContentWriter(1);
+        writer.append(0).append(' ').append(-123).append(' ').append(Integer.MAX_VALUE)
+                .append(' ').append(Integer.MIN_VALUE);
+        assertEquals("0 -123 2147483647 -2147483648", writer.toString());
+    }
+
+    @Test
+    public void testOctalAndHex() {
+        PDFContentWriter writer = new PDFContentWriter();
+        writer.appendOctal(0).append(' ').appendOctal(255).append(' ')
+                .appendHex(0x41, 4).append(' ').appendHex(0x1F4A9, 6);
+        assertEquals("0 377 0041 01F4A9", writer.toString());
+    }
+
+    @Test
+    public void testEncoding() throws IOException {
+        PDFContentWriter writer = new PDFContentWriter();
+        writer.append("a\u00e9\u20ac\uD83D\uDCA9b");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertArrayEquals("a\u00e9??b".getBytes(PDFDocument.ENCODING), out.toByteArray());
+    }
+
+    @Test
+    public void testAppendContent() {
+        PDFContentWriter writer = new PDFContentWriter(2);
+        PDFContentWriter other = new PDFContentWriter();
+        other.append(1.5).append(" w\n");
+        writer.append("q\n").append(other).append(other);
+        assertEquals("q\n1.5 w\n1.5 w\n", writer.toString());
+    }
+}
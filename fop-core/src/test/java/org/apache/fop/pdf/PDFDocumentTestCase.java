@@ -19,12 +19,21 @@
 
 package org.apache.fop.pdf;
 
+import java.awt.Rectangle;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test case for {@link PDFDocument}
@@ -59,4 +68,186 @@ public class PDFDocumentTestCase {
         PDFDocument.flushTextBuffer(textBuffer, out);
         assertEquals(fullString, out.toString());
     }
+
+    /**
+     * Registers a large number of distinct links and checks that looking them up only compares
+     * a bounded number of candidates per lookup, i.e. that registration scales linearly.
+     */
+    @Test
+    public void testFindLinkScalesLinearly() {
+        PDFDocument doc = new PDFDocument("test");
+        PDFInternalLink action = new PDFInternalLink("1 0 R");
+        int[] comparisons = new int[1];
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            PDFLink link = new CountingLink(new Rectangle(i, 0, 10, 10), comparisons);
+            link.setAction(action);
+            assertNull(doc.findLink(link));
+            doc.registerObject(link);
+        }
+        assertTrue("Too many comparisons: " + comparisons[0], comparisons[0] <= count);
+
+        PDFLink first = new CountingLink(new Rectangle(42, 0, 10, 10), comparisons);
+        first.setAction(action);
+        PDFLink found = doc.findLink(first);
+        assertTrue(found != null && found != first);
+        PDFLink second = new CountingLink(new Rectangle(42, 0, 10, 10), comparisons);
+        second.setAction(action);
+        assertSame(found, doc.findLink(second));
+    }
+
+    /**
+     * Checks that the first registered equal object is found even if it was completed
+     * after registration.
+     */
+    @Test
+    public void testFindLinkCompletedAfterRegistration() {
+        PDFDocument doc = new PDFDocument("test");
+        PDFLink registered = new PDFLink(new Rectangle(0, 0, 10, 10));
+        doc.registerObject(registered);
+        registered.setAction(new PDFInternalLink("1 0 R"));
+
+        PDFLink link = new PDFLink(new Rectangle(0, 0, 10, 10));
+        link.setAction(new PDFInternalLink("1 0 R"));
+        assertSame(registered, doc.findLink(link));
+        link.setAction(new PDFInternalLink("2 0 R"));
+        assertNull(doc.findLink(link));
+    }
+
+    @Test
+    public void testFindGState() {
+        PDFDocument doc = new PDFDocument("test");
+        PDFGState current = new PDFGState();
+        current.addValues(PDFGState.DEFAULT);
+        Map<String, Float> settings = new HashMap<String, Float>();
+        settings.put(PDFGState.GSTATE_ALPHA_NONSTROKE, 0.5f);
+        PDFGState gstate = doc.getFactory().makeGState(settings, current);
+        assertSame(gstate, doc.getFactory().makeGState(settings, current));
+
+        settings.put(PDFGState.GSTATE_ALPHA_NONSTROKE, 0.25f);
+        assertNotSame(gstate, doc.getFactory().makeGState(settings, current));
+    }
+
+    /**
+     * Checks that encoding content streams in parallel produces the same document as
+     * encoding them on the output thread.
+     */
+    @Test
+    public void testParallelStreamEncoding() throws IOException {
+        String sequential = createDocumentWithStreams(0);
+        String parallel = createDocumentWithStreams(4);
+        int trailer = sequential.indexOf("\ntrailer");
+        assertTrue(trailer > 0);
+        assertEquals(sequential.substring(0, trailer), parallel.substring(0, parallel.indexOf("\ntrailer")));
+    }
+
+    private String createDocumentWithStreams(int threads) throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCreationDate(new Date(0));
+        doc.setStreamEncodingThreads(threads);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        for (int page = 0; page < 20; page++) {
+            for (int i = 0; i < 5; i++) {
+                PDFStream stream = doc.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, false);
+                for (int j = 0; j < 1000; j++) {
+                    stream.add("BT /F1 12 Tf " + page + " " + i + " Td (" + j + ") Tj ET\n");
+                }
+                doc.registerObject(stream);
+                PDFDictionary dict = new PDFDictionary();
+                dict.put("Contents", stream.makeReference());
+                doc.registerObject(dict);
+            }
+            doc.output(out);
+        }
+        doc.outputTrailer(out);
+        return out.toString(PDFDocument.ENCODING);
+    }
+
+    /**
+     * Checks that in streaming mode the data of written streams is discarded and that written
+     * pages are no longer held by the document.
+     */
+    @Test
+    public void testStreamingReleasesWrittenPages() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setStreamingEnabled(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        Rectangle box = new Rectangle(0, 0, 100, 100);
+        PDFPage page = doc.getFactory().makePage(doc.getResources(), 0, box, box, box, box);
+        PDFStream stream = doc.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, false);
+        stream.add("0 0 m 10 10 l S\n");
+        doc.registerObject(stream);
+        page.setContents(stream.makeReference());
+        doc.addObject(page);
+        doc.output(out);
+        assertEquals(0, stream.getDataLength());
+        assertTrue(doc.pageObjs.isEmpty());
+        doc.outputTrailer(out);
+        assertTrue(out.toString(PDFDocument.ENCODING).contains("/Kids [" + page.makeReference() + " ]"));
+    }
+
+    @Test
+    public void testCompactOutput() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCompactEnabled(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        int objectCount = CompactObjectWriter.MAX_OBJECTS_PER_STREAM + 10;
+        for (int i = 0; i < objectCount; i++) {
+            PDFDictionary dict = new PDFDictionary();
+            dict.put("Type", new PDFName("Annot"));
+            dict.put("Rect", new PDFArray(0, 0, 100, i));
+            doc.registerObject(dict);
+        }
+        doc.output(out);
+        doc.outputTrailer(out);
+        String pdf = out.toString(PDFDocument.ENCODING);
+        assertTrue(pdf.startsWith("%PDF-1.5"));
+        assertEquals(2, countOccurrences(pdf, "/Type /ObjStm"));
+        assertTrue(pdf.contains("/Type /XRef"));
+        assertFalse(pdf.contains("\ntrailer"));
+        assertFalse(pdf.contains("/Annot"));
+        assertTrue(doc.getCompactBytesSaved() > 0);
+    }
+
+    @Test
+    public void testCompactOutputWithFixedVersion() throws IOException {
+        PDFDocument doc = new PDFDocument("test",
+                VersionController.getFixedVersionController(Version.V1_4));
+        doc.setCompactEnabled(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        doc.outputTrailer(out);
+        String pdf = out.toString(PDFDocument.ENCODING);
+        assertTrue(pdf.startsWith("%PDF-1.4"));
+        assertFalse(pdf.contains("/Type /ObjStm"));
+        assertTrue(pdf.contains("\ntrailer"));
+        assertEquals(0, doc.getCompactBytesSaved());
+    }
+
+    private static int countOccurrences(String s, String part) {
+        int count = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static class CountingLink extends PDFLink {
+
+        private final int[] comparisons;
+
+        CountingLink(Rectangle rect, int[] comparisons) {
+            super(rect);
+            this.comparisons = comparisons;
+        }
+
+        @Override
+        protected boolean contentEquals(PDFObject obj) {
+            comparisons[0]++;
+            return super.contentEquals(obj);
+        }
+    }
 }
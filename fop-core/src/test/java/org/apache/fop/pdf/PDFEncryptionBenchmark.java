@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * Debug tool to measure the throughput of PDF encryption. It writes a document of the given
+ * number of pages without encryption, then with each encryption algorithm of the standard
+ * security handler: RC4 with a 40-bit and a 128-bit key, and AES with a 256-bit key.
+ */
+public final class PDFEncryptionBenchmark {
+
+    private static final int[] KEY_LENGTHS = {0, 40, 128, 256};
+
+    private static final String[] ALGORITHMS = {"none", "RC4-40", "RC4-128", "AES-256"};
+
+    private PDFEncryptionBenchmark() {
+    }
+
+    private static long writeDocument(int pageCount, int keyLength) throws IOException {
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        if (keyLength > 0) {
+            PDFEncryptionParams params = new PDFEncryptionParams();
+            params.setUserPassword("user");
+            params.setOwnerPassword("owner");
+            params.setEncryptionLengthInBits(keyLength);
+            doc.setEncryption(params);
+        }
+        doc.setStreamingEnabled(true);
+        CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+        doc.outputHeader(out);
+        Rectangle box = new Rectangle(0, 0, 595000, 842000);
+        for (int i = 0; i < pageCount; i++) {
+            PDFPage page = doc.getFactory().makePage(doc.getResources(), i, box, box, box, box);
+            PDFStream stream = doc.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, false);
+            for (int line = 0; line < 50; line++) {
+                stream.add("BT /F1 10 Tf 1 0 0 1 56.7 " + (785 - line * 14)
+                        + " Tm [(Page ) " + i + " (, line ) " + line
+                        + " (: the quick brown fox jumps over the lazy dog.)] TJ ET\n");
+            }
+            doc.registerObject(stream);
+            page.setContents(stream.makeReference());
+            doc.addObject(page);
+            doc.output(out);
+        }
+        doc.outputTrailer(out);
+        return out.getByteCount();
+    }
+
+    /**
+     * Main method.
+     * @param args the number of pages (default: 10000) and the number of runs (default: 3)
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        int pageCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        System.out.println("Writing " + pageCount + " pages, best of " + runs + " runs");
+        //Warm up
+        for (int keyLength : KEY_LENGTHS) {
+            writeDocument(Math.min(pageCount, 1000), keyLength);
+        }
+        for (int i = 0; i < KEY_LENGTHS.length; i++) {
+            long best = Long.MAX_VALUE;
+            long size = 0;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                size = writeDocument(pageCount, KEY_LENGTHS[i]);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            long millis = best / 1000000;
+            double megabytesPerSecond = size / (1024.0 * 1024.0) / (best / 1e9);
+            System.out.println(ALGORITHMS[i] + ": " + millis + " ms, " + size + " bytes, "
+                    + Math.round(megabytesPerSecond * 10) / 10.0 + " MB/s");
+        }
+    }
+}
@@ -26,7 +26,14 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -564,6 +571,102 @@ public class PDFEncryptionJCETestCase {
         assertArrayEquals(data, decryptedData);
     }
 
+    @Test
+    public void testRC4StreamEncryptedByBlocks() throws IOException {
+        PDFEncryptionParams params = new PDFEncryptionParams();
+        params.setEncryptionLengthInBits(128);
+        PDFEncryptionJCE encryption = createEncryptionObject(params);
+        byte[] data = createData(PDFEncryptionJCE.BLOCK_SIZE * 3 + 100);
+        PDFText text = new PDFText();
+        text.setObjectNumber(5);
+        assertArrayEquals(encryption.encrypt(data, text), encryptStream(encryption, 5, data));
+    }
+
+    @Test
+    public void testAES256StreamEncryptedByBlocks() throws Exception {
+        PDFEncryptionParams params = new PDFEncryptionParams();
+        params.setEncryptionLengthInBits(256);
+        params.setUserPassword("userpassword");
+        params.setOwnerPassword("ownerpassword");
+        PDFEncryptionJCE encryption = createEncryptionObject(params);
+        byte[] data = createData(PDFEncryptionJCE.BLOCK_SIZE * 2 + 5);
+        byte[] encrypted = encryptStream(encryption, 5, data);
+        byte[] fileEncryptionKey = getAES256FileEncryptionKey(encryption, params);
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(fileEncryptionKey, "AES"),
+                new IvParameterSpec(encrypted, 0, 16));
+        assertArrayEquals(data, cipher.doFinal(encrypted, 16, encrypted.length - 16));
+    }
+
+    private byte[] getAES256FileEncryptionKey(PDFEncryptionJCE encryption,
+            PDFEncryptionParams params) throws Exception {
+        String dictionary = new String(encryption.toPDF());
+        byte[] u = parseHexStringEntries(dictionary, "U");
+        byte[] ue = parseHexStringEntries(dictionary, "UE");
+        byte[] uPassBytes = params.getUserPassword().getBytes("UTF-8");
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(uPassBytes);
+        sha256.update(u, 40, 8);
+        Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(sha256.digest(), "AES"),
+                new IvParameterSpec(new byte[16]));
+        return cipher.doFinal(ue);
+    }
+
+    @Test
+    public void testConcurrentEncryption() throws Exception {
+        PDFEncryptionParams params = new PDFEncryptionParams();
+        params.setEncryptionLengthInBits(128);
+        final PDFEncryptionJCE encryption = createEncryptionObject(params);
+        final byte[] data = createData(1000);
+        final int objectCount = 200;
+        final byte[][] expected = new byte[objectCount][];
+        for (int i = 0; i < objectCount; i++) {
+            expected[i] = encryptStream(encryption, i + 1, data);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws IOException {
+                        boolean ok = true;
+                        for (int i = 0; i < objectCount; i++) {
+                            PDFText text = new PDFText();
+                            text.setObjectNumber(i + 1);
+                            ok &= Arrays.equals(expected[i], encryption.encrypt(data, text));
+                            ok &= Arrays.equals(expected[i], encryptStream(encryption, i + 1, data));
+                        }
+                        return ok;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] createData(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private byte[] encryptStream(PDFEncryptionJCE encryption, int objectNumber, byte[] data)
+            throws IOException {
+        PDFStream stream = new PDFStream();
+        stream.setDocument(encryption.getDocumentSafely());
+        stream.setObjectNumber(objectNumber);
+        stream.setData(data);
+        encryption.applyFilter(stream);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.encodeStream().outputContents(out);
+        return out.toByteArray();
+    }
+
     private byte[] parseHexStringEntries(String dictionary, String entry) throws UnsupportedEncodingException {
         String token = "/" + entry + " <";
         int start = dictionary.indexOf(token) + token.length();
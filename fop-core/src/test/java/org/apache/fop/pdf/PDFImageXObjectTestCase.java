@@ -21,10 +21,15 @@ package org.apache.fop.pdf;
 
 import java.awt.image.IndexColorModel;
 import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -102,4 +107,39 @@ public class PDFImageXObjectTestCase {
             assertEquals(2, ((PDFArray) obj).length());
         }
     }
+
+    @Test
+    public void testEncodedDataSharedBetweenDocuments() throws IOException {
+        EncodedImageCache cache = new EncodedImageCache();
+        byte[] first = outputImage(cache, new byte[] {1, 2, 3, 4});
+        assertEquals(0, cache.getHitCount());
+        assertTrue(cache.getSize() > 0);
+        //Same key, so the encoded data of the first document is used
+        byte[] second = outputImage(cache, new byte[] {5, 6, 7, 8});
+        assertEquals(1, cache.getHitCount());
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void testImageWithoutKeyIsNotCached() throws IOException {
+        EncodedImageCache cache = new EncodedImageCache();
+        byte[] first = outputImage(cache, null, new byte[] {1, 2, 3, 4});
+        byte[] second = outputImage(cache, null, new byte[] {5, 6, 7, 8});
+        assertEquals(0, cache.getSize());
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    private byte[] outputImage(EncodedImageCache cache, byte[] data) throws IOException {
+        return outputImage(cache, "logo", data);
+    }
+
+    private byte[] outputImage(EncodedImageCache cache, String key, byte[] data) throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setEncodedImageCache(cache);
+        PDFImageXObject xobj = doc.addImage(null, new BitmapImage(key, 2, 2, data, null));
+        xobj.setCacheable(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        xobj.output(out);
+        return out.toByteArray();
+    }
 }
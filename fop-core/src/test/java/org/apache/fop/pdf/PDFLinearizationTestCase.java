@@ -69,6 +69,30 @@ public class PDFLinearizationTestCase {
         checkPDF(data);
     }
 
+    @Test
+    public void testSpooledStreams() throws IOException {
+        PDFDocument doc = new PDFDocument("");
+        doc.setLinearizationEnabled(true);
+        PDFResources resources = new PDFResources(doc);
+        PDFResourceContext context = new PDFResourceContext(resources);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PDFContentGenerator gen = null;
+        for (int i = 0; i < 2; i++) {
+            gen = new PDFContentGenerator(doc, out, context);
+            Rectangle2D.Float f = new Rectangle2D.Float();
+            PDFPage page = new PDFPage(resources, i, f, f, f, f);
+            doc.registerObject(page);
+            gen.getStream().add("0 0 m " + i + " 10 l S\n");
+            doc.registerObject(gen.getStream());
+            page.setContents(new PDFReference(gen.getStream()));
+            doc.spoolPendingStreams();
+            Assert.assertEquals(0, gen.getStream().getDataLength());
+        }
+        gen.flushPDFDoc();
+        byte[] data = out.toByteArray();
+        checkPDF(data);
+    }
+
     @Test
     public void testImage() throws Exception {
         String fopxconf = "<fop version=\"1.0\"><renderers>"
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TieredStreamCacheTestCase {
+
+    private StreamCacheStore store;
+
+    @Before
+    public void setUp() {
+        store = new StreamCacheStore(4 * StreamCacheStore.BLOCK_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void testHeapStream() throws IOException {
+        assertRoundTrip(new TieredStreamCache(store, 0), 1000);
+    }
+
+    @Test
+    public void testDirectStream() throws IOException {
+        assertRoundTrip(new TieredStreamCache(store, 0), 3 * StreamCacheStore.BLOCK_SIZE + 17);
+    }
+
+    @Test
+    public void testFileStream() throws IOException {
+        assertRoundTrip(new TieredStreamCache(store, 0), TieredStreamCache.FILE_THRESHOLD * 2 + 5);
+    }
+
+    @Test
+    public void testMemoryBudgetExhausted() throws IOException {
+        TieredStreamCache first = new TieredStreamCache(store, 0);
+        assertRoundTrip(first, 4 * StreamCacheStore.BLOCK_SIZE);
+        assertNull(store.allocateDirectBlock());
+        //The budget is used up, so the next stream goes to the scratch file
+        assertRoundTrip(new TieredStreamCache(store, 0), 2 * StreamCacheStore.BLOCK_SIZE);
+        first.clear();
+        assertRoundTrip(new TieredStreamCache(store, 0), 2 * StreamCacheStore.BLOCK_SIZE);
+    }
+
+    @Test
+    public void testClearAndReuse() throws IOException {
+        TieredStreamCache cache = new TieredStreamCache(store, 0);
+        assertRoundTrip(cache, 2 * StreamCacheStore.BLOCK_SIZE);
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertRoundTrip(cache, 100);
+    }
+
+    @Test
+    public void testPDFStreamWithTieredCache() throws IOException {
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        doc.setStreamCacheMemoryBudget(StreamCacheStore.BLOCK_SIZE);
+        PDFStream stream = new PDFStream();
+        stream.add("before ");
+        stream.setDocument(doc);
+        stream.add("after");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.outputRawStreamData(out);
+        assertEquals("before after", out.toString("US-ASCII"));
+        doc.getStreamCacheFactory().close();
+    }
+
+    private void assertRoundTrip(StreamCache cache, int size) throws IOException {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        OutputStream out = cache.getOutputStream();
+        out.write(data[0]);
+        out.write(data, 1, size / 2 - 1);
+        cache.write(Arrays.copyOfRange(data, size / 2, size));
+        assertEquals(size, cache.getSize());
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        assertEquals(size, cache.outputContents(bout));
+        assertArrayEquals(data, bout.toByteArray());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.pdf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FopConfBuilder;
+import org.apache.fop.apps.FopConfParser;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.apps.PDFRendererConfBuilder;
+
+/**
+ * Tests the PDF documents rendered in compact mode, with the objects written into object
+ * streams.
+ */
+public class PDFCompactTestCase {
+
+    private static final String FO = "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+            + "<fo:layout-master-set>"
+            + "<fo:simple-page-master master-name=\"page\" page-height=\"10cm\" page-width=\"10cm\">"
+            + "<fo:region-body/>"
+            + "</fo:simple-page-master>"
+            + "</fo:layout-master-set>"
+            + "<fo:bookmark-tree>"
+            + "<fo:bookmark internal-destination=\"end\"><fo:bookmark-title>End</fo:bookmark-title>"
+            + "</fo:bookmark>"
+            + "</fo:bookmark-tree>"
+            + "<fo:page-sequence master-reference=\"page\">"
+            + "<fo:flow flow-name=\"xsl-region-body\">"
+            + "<fo:block><fo:basic-link internal-destination=\"end\">To the end</fo:basic-link></fo:block>"
+            + "<fo:block id=\"end\" break-before=\"page\">The end</fo:block>"
+            + "</fo:flow>"
+            + "</fo:page-sequence>"
+            + "</fo:root>";
+
+    @Test
+    public void testCompactOutput() throws Exception {
+        PDFRendererConfBuilder rendererConf = new FopConfBuilder()
+                .startRendererConfig(PDFRendererConfBuilder.class);
+        rendererConf.setCompactEnabled(true);
+        String pdf = render(rendererConf.endRendererConfig().build());
+        assertTrue(pdf.startsWith("%PDF-1.5"));
+        assertTrue(pdf.contains("/Type /ObjStm"));
+        assertTrue(pdf.contains("/Type /XRef"));
+        assertFalse(pdf.contains("\ntrailer"));
+        // the annotation and the outlines are in the object streams
+        assertFalse(pdf.contains("/Annot"));
+        assertFalse(pdf.contains("/Outlines"));
+    }
+
+    @Test
+    public void testCompactOutputWithEncryption() throws Exception {
+        PDFRendererConfBuilder rendererConf = new FopConfBuilder()
+                .startRendererConfig(PDFRendererConfBuilder.class);
+        rendererConf.setCompactEnabled(true);
+        rendererConf.startEncryptionParams().setUserPassword("user").endEncryptionParams();
+        String pdf = render(rendererConf.endRendererConfig().build());
+        assertTrue(pdf.contains("/Encrypt"));
+        assertFalse(pdf.contains("/Type /ObjStm"));
+        assertTrue(pdf.contains("\ntrailer"));
+    }
+
+    private String render(InputStream fopConf) throws Exception {
+        FopFactory fopFactory = new FopConfParser(fopConf, new File(".").toURI())
+                .getFopFactoryBuilder().build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new ByteArrayInputStream(FO.getBytes("UTF-8")));
+        Result res = new SAXResult(fopFactory.newFop(MimeConstants.MIME_PDF, out).getDefaultHandler());
+        transformer.transform(src, res);
+        return out.toString("ISO-8859-1");
+    }
+}
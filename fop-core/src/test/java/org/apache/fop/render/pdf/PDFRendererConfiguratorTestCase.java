@@ -73,4 +73,33 @@ public class PDFRendererConfiguratorTestCase extends
         docHandler.startDocument();
         Assert.assertTrue(getDocHandler().getThePDFDocument().isFormXObjectEnabled());
     }
+
+    @Test
+    public void testCompactEnabled() throws Exception {
+        parseConfig(createBuilder().setCompactEnabled(true));
+        docHandler.startDocument();
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isCompactEnabled());
+    }
+
+    @Test
+    public void testStreamingEnabled() throws Exception {
+        parseConfig(createBuilder().setStreamingEnabled(true));
+        docHandler.startDocument();
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isStreamingEnabled());
+    }
+
+    @Test
+    public void testStreamEncodingThreads() throws Exception {
+        parseConfig(createBuilder().setStreamEncodingThreads(4));
+        docHandler.startDocument();
+        Assert.assertEquals(4, getDocHandler().getThePDFDocument().getStreamEncodingThreads());
+    }
+
+    @Test
+    public void testStreamCacheMemoryBudget() throws Exception {
+        parseConfig(createBuilder().setStreamCacheMemoryBudget(1024 * 1024));
+        docHandler.startDocument();
+        Assert.assertEquals(1024 * 1024,
+                getDocHandler().getThePDFDocument().getStreamCacheMemoryBudget());
+    }
 }